@@ -0,0 +1,49 @@
+package edu.usfca.cs272;
+
+/**
+ * Okapi BM25, the matches of a word give less and less score the more times it
+ * shows up, the rare words weigh more and the long documents need more matches
+ * to get the same score.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class BM25Scorer implements Scorer {
+
+	/** how fast the score of more matches stops growing */
+	private final double k1;
+
+	/** how much the length of the document counts, between 0 and 1 */
+	private final double b;
+
+	/**
+	 * Constructor of the scorer with its parameters
+	 *
+	 * @param k1 how fast the score of more matches stops growing
+	 * @param b how much the length of the document counts, between 0 and 1
+	 */
+	public BM25Scorer(double k1, double b) {
+		this.k1 = k1;
+		this.b = b;
+	}
+
+	@Override
+	public double weight(int frequency, int documents) {
+		return Math.log(1 + (documents - frequency + 0.5) / (frequency + 0.5));
+	}
+
+	@Override
+	public double norm(int length, double averageLength) {
+		return k1 * (1 - b + b * length / averageLength);
+	}
+
+	@Override
+	public double score(int count, double weight, double norm) {
+		return weight * count * (k1 + 1) / (count + norm);
+	}
+
+	@Override
+	public String toString() {
+		return "bm25(k1=" + k1 + ", b=" + b + ")";
+	}
+}
@@ -0,0 +1,155 @@
+package edu.usfca.cs272;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Cursor over the documents that are in all the postings given. The postings
+ * are intersected starting from the one with the fewest documents, which gives
+ * the next candidate, and the others are moved forward to it with
+ * {@link PostingsCursor#advance(int)}, so the block skips of the longer postings
+ * are used instead of reading them. A posting that is past the candidate gives
+ * the next one, so the cost follows the shortest postings and not the sum.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class ConjunctionCursor implements PostingsCursor {
+
+	/** the cursors being intersected in the order they were given */
+	protected final PostingsCursor[] cursors;
+
+	/** the cursors from the one with the fewest documents */
+	private final PostingsCursor[] order;
+
+	/** the id of the current document */
+	private int document;
+
+	/** if the cursor is on a document */
+	private boolean started;
+
+	/** if there are no documents left */
+	private boolean done;
+
+	/**
+	 * Constructor of the intersection of the cursors given
+	 *
+	 * @param cursors the cursors to intersect, before their first document
+	 */
+	public ConjunctionCursor(PostingsCursor[] cursors) {
+		this.cursors = cursors;
+		this.order = Arrays.copyOf(cursors, cursors.length);
+		Arrays.sort(order, Comparator.comparingInt(PostingsCursor::documents));
+		this.started = false;
+		this.done = cursors.length == 0;
+	}
+
+	@Override
+	public boolean next() {
+		return find(started ? document + 1 : 0);
+	}
+
+	@Override
+	public boolean advance(int target) {
+		if (started && !done && document >= target) {
+			return true;
+		}
+		return find(target);
+	}
+
+	/**
+	 * Finds the first document from the target that is in every posting and
+	 * passes {@link #accept()}.
+	 *
+	 * @param target the smallest document to look at
+	 * @return true if there is such a document
+	 */
+	private boolean find(int target) {
+		started = true;
+		while (!done) {
+			if (!order[0].advance(target)) {
+				break;
+			}
+
+			int candidate = order[0].document();
+			target = candidate;
+			for (int i = 1; i < order.length && target == candidate; i++) {
+				if (!order[i].advance(candidate)) {
+					done = true;
+					return false;
+				}
+				target = order[i].document();
+			}
+
+			if (target == candidate) {
+				document = candidate;
+				if (accept()) {
+					return true;
+				}
+				target = candidate + 1;
+			}
+		}
+		done = true;
+		return false;
+	}
+
+	/**
+	 * Checks a document where every cursor is, the subclasses can override it to
+	 * look at more than the documents.
+	 *
+	 * @return true if the document is a match
+	 */
+	protected boolean accept() {
+		return true;
+	}
+
+	@Override
+	public int document() {
+		return document;
+	}
+
+	/**
+	 * The matches of all the cursors in the current document added up
+	 */
+	@Override
+	public int count() {
+		int count = 0;
+		for (PostingsCursor cursor : cursors) {
+			count += cursor.count();
+		}
+		return count;
+	}
+
+	/**
+	 * The positions of all the cursors in the current document merged together
+	 */
+	@Override
+	public PositionList positions() {
+		PositionList positions = new PositionList();
+		for (PostingsCursor cursor : cursors) {
+			positions.merge(cursor.positions());
+		}
+		return positions;
+	}
+
+	/**
+	 * The amount of documents of the shortest postings, the intersection can not
+	 * be in more documents than that but it can be in fewer.
+	 */
+	@Override
+	public int documents() {
+		return order.length > 0 ? order[0].documents() : 0;
+	}
+
+	/**
+	 * The count adds up the matches of every cursor, so the bounds add up too.
+	 */
+	@Override
+	public double maxScore() {
+		double bound = 0;
+		for (PostingsCursor cursor : cursors) {
+			bound += cursor.maxScore();
+		}
+		return bound;
+	}
+}
@@ -0,0 +1,32 @@
+package edu.usfca.cs272;
+
+/**
+ * The score the search always had, the matches of a location over its amount of
+ * words. The search keeps adding up the counts first and dividing once for this
+ * scorer, so the scores come out exactly the same as they always did.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class CountScorer implements Scorer {
+
+	@Override
+	public double weight(int frequency, int documents) {
+		return 1;
+	}
+
+	@Override
+	public double norm(int length, double averageLength) {
+		return length;
+	}
+
+	@Override
+	public double score(int count, double weight, double norm) {
+		return count / norm;
+	}
+
+	@Override
+	public String toString() {
+		return "count";
+	}
+}
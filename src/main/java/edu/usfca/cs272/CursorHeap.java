@@ -0,0 +1,192 @@
+package edu.usfca.cs272;
+
+import java.util.Arrays;
+
+/**
+ * Min heap of postings cursors ordered by their current document, used to go
+ * through many postings one document at a time. It keeps the index of every
+ * cursor together with a copy of its document in two int arrays, so moving the
+ * cursors around does not box anything or call back into the cursors.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class CursorHeap {
+
+	/** the cursors that the indexes in the heap point to */
+	private final PostingsCursor[] cursors;
+
+	/** the index of the cursor in every spot of the heap */
+	private final int[] heap;
+
+	/** the current document of the cursor in every spot of the heap */
+	private final int[] documents;
+
+	/** the amount of cursors in the heap */
+	private int size;
+
+	/**
+	 * Constructor of an empty heap for the cursors given
+	 *
+	 * @param cursors the cursors that can be added by index
+	 */
+	public CursorHeap(PostingsCursor[] cursors) {
+		this.cursors = cursors;
+		this.heap = new int[cursors.length];
+		this.documents = new int[cursors.length];
+		this.size = 0;
+	}
+
+	/**
+	 * Adds a cursor that is already on a document.
+	 *
+	 * @param cursor the index of the cursor
+	 */
+	public void add(int cursor) {
+		heap[size] = cursor;
+		documents[size] = cursors[cursor].document();
+		siftUp(size++);
+	}
+
+	/**
+	 * Boolean method that checks if there are no cursors left
+	 *
+	 * @return true if the heap is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Getter method of the index of the cursor with the smallest document
+	 *
+	 * @return the index of the top cursor
+	 */
+	public int top() {
+		return heap[0];
+	}
+
+	/**
+	 * Getter method of the smallest document of the cursors
+	 *
+	 * @return the document of the top cursor
+	 */
+	public int document() {
+		return documents[0];
+	}
+
+	/**
+	 * Moves the top cursor to its next document, taking it out of the heap when
+	 * its postings are done.
+	 *
+	 * @return true if the cursor had a next document, false if it was taken out
+	 */
+	public boolean next() {
+		if (cursors[heap[0]].next()) {
+			documents[0] = cursors[heap[0]].document();
+			siftDown(0);
+			return true;
+		}
+		pop();
+		return false;
+	}
+
+	/**
+	 * Moves every cursor before the target forward to it with
+	 * {@link PostingsCursor#advance(int)}, taking out the ones that are done.
+	 *
+	 * @param target the id of the document to move the cursors to
+	 */
+	public void advance(int target) {
+		while (size > 0 && documents[0] < target) {
+			if (cursors[heap[0]].advance(target)) {
+				documents[0] = cursors[heap[0]].document();
+				siftDown(0);
+			}
+			else {
+				pop();
+			}
+		}
+	}
+
+	/**
+	 * Takes the top cursor out of the heap.
+	 */
+	public void pop() {
+		size--;
+		heap[0] = heap[size];
+		documents[0] = documents[size];
+		siftDown(0);
+	}
+
+	/**
+	 * Takes out every cursor with an index smaller than the one given.
+	 *
+	 * @param first the smallest index of the cursors to keep
+	 */
+	public void removeBelow(int first) {
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			if (heap[i] >= first) {
+				heap[kept] = heap[i];
+				documents[kept] = documents[i];
+				kept++;
+			}
+		}
+		size = kept;
+		for (int i = size / 2 - 1; i >= 0; i--) {
+			siftDown(i);
+		}
+	}
+
+	/**
+	 * Moves the spot given up until its parent has a smaller document.
+	 *
+	 * @param spot the spot in the heap to move
+	 */
+	private void siftUp(int spot) {
+		int cursor = heap[spot];
+		int document = documents[spot];
+		while (spot > 0) {
+			int parent = (spot - 1) >>> 1;
+			if (documents[parent] <= document) {
+				break;
+			}
+			heap[spot] = heap[parent];
+			documents[spot] = documents[parent];
+			spot = parent;
+		}
+		heap[spot] = cursor;
+		documents[spot] = document;
+	}
+
+	/**
+	 * Moves the spot given down until its children have bigger documents.
+	 *
+	 * @param spot the spot in the heap to move
+	 */
+	private void siftDown(int spot) {
+		int cursor = heap[spot];
+		int document = documents[spot];
+		int half = size >>> 1;
+		while (spot < half) {
+			int child = 2 * spot + 1;
+			if (child + 1 < size && documents[child + 1] < documents[child]) {
+				child++;
+			}
+			if (document <= documents[child]) {
+				break;
+			}
+			heap[spot] = heap[child];
+			documents[spot] = documents[child];
+			spot = child;
+		}
+		heap[spot] = cursor;
+		documents[spot] = document;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(Arrays.copyOf(documents, size));
+	}
+}
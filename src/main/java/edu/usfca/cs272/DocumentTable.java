@@ -0,0 +1,339 @@
+package edu.usfca.cs272;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Dictionary that gives every location (file path or url) a dense int id so the
+ * postings of the inverted index do not have to repeat the location strings.
+ * The word count of each location is kept in an int array indexed by that id.
+ *
+ * <p>
+ * A location that is removed keeps its id as a tombstone in a bit set until the
+ * table is compacted, so the postings that still have the id can be skipped
+ * without being rewritten. If the location is added again it gets a new id.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class DocumentTable {
+
+	/** The capacity given to the counts array of a new table */
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/** the location of every id, the index in the list is the id */
+	private final ArrayList<String> locations;
+
+	/** the id given to every location */
+	private final HashMap<String, Integer> ids;
+
+	/** the amount of words in every location indexed by id */
+	private int[] counts;
+
+	/** the ids of the locations that were removed */
+	private final BitSet deleted;
+
+	/**
+	 * Constructor of an empty document table
+	 */
+	public DocumentTable() {
+		this.locations = new ArrayList<>();
+		this.ids = new HashMap<>();
+		this.counts = new int[DEFAULT_CAPACITY];
+		this.deleted = new BitSet();
+	}
+
+	/**
+	 * Constructor of a copy of another document table keeping the same ids
+	 *
+	 * @param other the document table to copy
+	 */
+	public DocumentTable(DocumentTable other) {
+		this.locations = new ArrayList<>(other.size());
+		this.ids = new HashMap<>();
+		this.counts = new int[Math.max(other.size(), 1)];
+		this.deleted = new BitSet();
+		// goes through the getters since the other table might keep them somewhere else
+		for (int id = 0; id < other.size(); id++) {
+			locations.add(other.getLocation(id));
+			counts[id] = other.getCount(id);
+			if (other.isDeleted(id)) {
+				deleted.set(id);
+			}
+			else {
+				ids.put(locations.get(id), id);
+			}
+		}
+	}
+
+	/**
+	 * Method that returns the id of the location, it gives the location a new id
+	 * if it did not have one already.
+	 *
+	 * @param location the location to look for
+	 * @return the id of the location
+	 */
+	public int add(String location) {
+		Integer id = ids.get(location);
+		if (id != null) {
+			return id;
+		}
+
+		int next = locations.size();
+		if (next == counts.length) {
+			counts = Arrays.copyOf(counts, counts.length * 2);
+		}
+		locations.add(location);
+		ids.put(location, next);
+		return next;
+	}
+
+	/**
+	 * Getter method of the id given to a location
+	 *
+	 * @param location the location to look for
+	 * @return the id of the location or -1 if it does not have one
+	 */
+	public int getId(String location) {
+		return ids.getOrDefault(location, -1);
+	}
+
+	/**
+	 * Getter method of the location of an id
+	 *
+	 * @param id the id of the location
+	 * @return the location with that id
+	 */
+	public String getLocation(int id) {
+		return locations.get(id);
+	}
+
+	/**
+	 * Getter method of the amount of words in a location
+	 *
+	 * @param id the id of the location
+	 * @return the word count of the location
+	 */
+	public int getCount(int id) {
+		return counts[id];
+	}
+
+	/**
+	 * The estimated bytes the table takes with its locations, ids and counts
+	 *
+	 * @return the bytes of the table
+	 */
+	public long bytes() {
+		int size = locations.size();
+		long bytes = IndexStats.align(IndexStats.OBJECT + 4 * IndexStats.REFERENCE)
+				+ IndexStats.align(IndexStats.OBJECT + IndexStats.REFERENCE + 2 * Integer.BYTES)
+				+ IndexStats.array(size, IndexStats.REFERENCE)
+				+ IndexStats.align(IndexStats.OBJECT + IndexStats.REFERENCE + 4 * Integer.BYTES + Float.BYTES)
+				+ IndexStats.array(Integer.highestOneBit(Math.max(size * 4 / 3, 1)) * 2, IndexStats.REFERENCE)
+				+ (long) ids.size() * IndexStats.HASH_ENTRY
+				+ IndexStats.array(counts.length, Integer.BYTES)
+				+ IndexStats.align(IndexStats.OBJECT + IndexStats.REFERENCE + Integer.BYTES + 1)
+				+ IndexStats.array(deleted.size() / Long.SIZE, Long.BYTES);
+		for (String location : locations) {
+			bytes += IndexStats.string(location);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Boolean method that checks if the table is kept outside of the heap
+	 *
+	 * @return true if {@link #bytes()} are not in the heap
+	 */
+	public boolean isOffHeap() {
+		return false;
+	}
+
+	/**
+	 * Updates the word count of the location, keeping the biggest count seen.
+	 *
+	 * @param id the id of the location
+	 * @param count the new possible count
+	 */
+	public void updateCount(int id, int count) {
+		counts[id] = Math.max(counts[id], count);
+	}
+
+	/**
+	 * Removes a location, its id is kept as a tombstone until the table is
+	 * compacted.
+	 *
+	 * @param location the location to remove
+	 * @return the id the location had or -1 if it was not in the table
+	 */
+	public int delete(String location) {
+		Integer id = ids.remove(location);
+		if (id == null) {
+			return -1;
+		}
+		deleted.set(id);
+		return id;
+	}
+
+	/**
+	 * Boolean method that checks if the id belongs to a removed location
+	 *
+	 * @param id the id of the location
+	 * @return true if the location was removed
+	 */
+	public boolean isDeleted(int id) {
+		return deleted.get(id);
+	}
+
+	/**
+	 * The amount of ids that belong to removed locations
+	 *
+	 * @return the amount of tombstones
+	 */
+	public int numDeleted() {
+		return deleted.cardinality();
+	}
+
+	/**
+	 * Wraps a cursor so it skips the documents of the removed locations, it gives
+	 * the cursor back as it is when nothing was removed.
+	 *
+	 * @param cursor the cursor over postings with the ids of this table
+	 * @return the cursor over the documents that were not removed
+	 */
+	public PostingsCursor live(PostingsCursor cursor) {
+		if (deleted.isEmpty()) {
+			return cursor;
+		}
+
+		return new PostingsCursor() {
+			@Override
+			public boolean next() {
+				while (cursor.next()) {
+					if (!deleted.get(cursor.document())) {
+						return true;
+					}
+				}
+				return false;
+			}
+
+			@Override
+			public boolean advance(int target) {
+				if (!cursor.advance(target)) {
+					return false;
+				}
+				return !deleted.get(cursor.document()) || next();
+			}
+
+			@Override
+			public int document() {
+				return cursor.document();
+			}
+
+			@Override
+			public int count() {
+				return cursor.count();
+			}
+
+			@Override
+			public PositionList positions() {
+				return cursor.positions();
+			}
+
+			/**
+			 * The documents of the postings with the tombstones, since counting the
+			 * others would mean reading the postings.
+			 */
+			@Override
+			public int documents() {
+				return cursor.documents();
+			}
+
+			@Override
+			public double maxScore() {
+				return cursor.maxScore();
+			}
+		};
+	}
+
+	/**
+	 * Takes out the tombstones giving the locations left new ids in the same
+	 * order, so the postings can keep their order when they are rewritten.
+	 *
+	 * @return the new id of every old id, -1 for the removed ones
+	 */
+	public int[] compact() {
+		int[] remap = new int[locations.size()];
+		int next = 0;
+		for (int id = 0; id < remap.length; id++) {
+			if (deleted.get(id)) {
+				remap[id] = -1;
+			}
+			else {
+				locations.set(next, locations.get(id));
+				counts[next] = counts[id];
+				ids.put(locations.get(next), next);
+				remap[id] = next++;
+			}
+		}
+		locations.subList(next, locations.size()).clear();
+		Arrays.fill(counts, next, counts.length, 0);
+		deleted.clear();
+		return remap;
+	}
+
+	/**
+	 * Boolean method that checks if the location has an id
+	 *
+	 * @param location the location to check
+	 * @return true if the location is in the table
+	 */
+	public boolean contains(String location) {
+		return ids.containsKey(location);
+	}
+
+	/**
+	 * The amount of ids given in the table, every id is smaller than this. It
+	 * includes the tombstones until the table is compacted.
+	 *
+	 * @return the amount of locations
+	 */
+	public int size() {
+		return locations.size();
+	}
+
+	/**
+	 * Getter method of all the locations sorted
+	 *
+	 * @return the sorted locations in an unmodifiable way
+	 */
+	public Set<String> getLocations() {
+		return Collections.unmodifiableSet(new TreeSet<>(ids.keySet()));
+	}
+
+	/**
+	 * Creates a sorted map from every location to its word count, used for output.
+	 *
+	 * @return the map of the locations and counts
+	 */
+	public TreeMap<String, Integer> toMap() {
+		TreeMap<String, Integer> map = new TreeMap<>();
+		for (int id = 0; id < locations.size(); id++) {
+			if (!deleted.get(id)) {
+				map.put(locations.get(id), counts[id]);
+			}
+		}
+		return map;
+	}
+
+	@Override
+	public String toString() {
+		return toMap().toString();
+	}
+}
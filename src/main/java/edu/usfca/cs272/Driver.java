@@ -23,6 +23,12 @@ public class Driver {
 	/** Static variable to let be the result implementation */
 	public static final String DEFAULTRESULT = "results.json";
 	
+	/** Static variable to let be the binary index implementation */
+	public static final String DEFAULTSAVE = "index.bin";
+	
+	/** Static variable to let be the statistics implementation */
+	public static final String DEFAULTSTATS = "stats.json";
+	
 	/**
 	 * Initializes the classes necessary based on the provided command-line
 	 * arguments. This includes (but is not limited to) how to build or search an
@@ -35,7 +41,7 @@ public class Driver {
 		Instant start = Instant.now();
 		
 		InvertedIndex invertedIndex = null; 
-		ThreadSafeInvertedIndex safeIndex = null;
+		InvertedIndex safeIndex = null;
 		
 		ArgumentParser argumentParser = new ArgumentParser(args);
 		WebCrawler webCrawler = null;
@@ -50,14 +56,13 @@ public class Driver {
 			
 			multiThread = true;
 			numThreads = argumentParser.getInteger("-threads", 5); 
-			safeIndex = new ThreadSafeInvertedIndex();
+			safeIndex = createThreadSafeIndex(argumentParser, numThreads);
 			invertedIndex = safeIndex;
-			queryHandler = new MultithreadedQueryHandler(safeIndex, numThreads);
 			int max = 1;
 			if(argumentParser.hasFlag("-max")) {
 				max = argumentParser.getInteger("-max",1);
 			}
-			webCrawler = new WebCrawler(numThreads, max);
+			webCrawler = new WebCrawler(numThreads, max, argumentParser.hasFlag("-steal"));
 			try {
 				webCrawler.processURLS(seed);
 				webCrawler.processHtml(safeIndex);
@@ -72,19 +77,21 @@ public class Driver {
 				numThreads = 5;
 			}
 			 
-			safeIndex = new ThreadSafeInvertedIndex();
+			safeIndex = createThreadSafeIndex(argumentParser, numThreads);
 			invertedIndex = safeIndex;
-			queryHandler = new MultithreadedQueryHandler(safeIndex, numThreads);
 			
 		}else {
 			invertedIndex = new InvertedIndex(); 
-			queryHandler = new QueryHandler(invertedIndex);
 		}
 		
 		if (argumentParser.hasFlag("-text")) {
 			Path input = argumentParser.getPath("-text");
 			try {
-				if(multiThread) {
+				if(multiThread && argumentParser.hasFlag("-reduce")) {
+					// the local indexes are merged among themselves and only the result is shared
+					MultithreadedInvertedIndexBuilder.buildReduced(input, safeIndex, numThreads);
+				}
+				else if(multiThread) {
 					MultithreadedInvertedIndexBuilder.build(input, safeIndex, numThreads);
 				}
 				else {
@@ -98,10 +105,85 @@ public class Driver {
 			}
 		}
 		
+		if(argumentParser.hasFlag("-load")) {
+			Path input = argumentParser.getPath("-load", Path.of(DEFAULTSAVE));
+			try {
+				FrozenInvertedIndex loaded = FrozenInvertedIndex.load(input);
+				if(argumentParser.hasFlag("-text") || argumentParser.hasFlag("-html")) {
+					invertedIndex.addAll(loaded);
+				}
+				else {
+					invertedIndex = loaded;
+				}
+			} catch (IOException e) {
+				System.out.println("Unable to load the inverted index from path: " + input);
+			}
+		}
+		
+		if(safeIndex instanceof SegmentedInvertedIndex segmentedIndex) {
+			// the loaded index is merged in first, then it waits for the background merges
+			segmentedIndex.close();
+		}
+		
+		if(safeIndex instanceof SnapshotInvertedIndex snapshotIndex) {
+			// the last batch is not published yet, and the outputs only read the published version
+			snapshotIndex.publish();
+		}
+		
+		// the statistics are of the index as it was built, before it is frozen
+		if(argumentParser.hasFlag("-stats")) {
+			Path output = argumentParser.getPath("-stats", Path.of(DEFAULTSTATS));
+			try {
+				invertedIndex.stats().toJSON(output);
+			} catch (IOException e) {
+				System.out.println("Unable to write the statistics to path: " + output);
+			}
+		}
+		
+		// the frozen copy is only made when something needs it, a thread safe index serves its own searches
+		FrozenInvertedIndex frozenIndex = null;
+		if(argumentParser.hasFlag("-save") || argumentParser.hasFlag("-partitions")
+				|| (argumentParser.hasFlag("-query") && !multiThread)) {
+			frozenIndex = invertedIndex.freeze(argumentParser.hasFlag("-offheap"));
+			invertedIndex = frozenIndex;
+		}
+		if(argumentParser.hasFlag("-cache")) {
+			invertedIndex.setCacheBudget(argumentParser.getInteger("-cache", 32) * 1024L * 1024L);
+		}
+		
+		if(argumentParser.hasFlag("-save")) {
+			Path output = argumentParser.getPath("-save", Path.of(DEFAULTSAVE));
+			try {
+				frozenIndex.save(output);
+			} catch (IOException e) {
+				System.out.println("Unable to save the inverted index to path: " + output);
+			}
+		}
+		Scorer scorer = Scorer.COUNT;
+		if(argumentParser.hasFlag("-scorer")) {
+			String name = argumentParser.getString("-scorer", "count");
+			scorer = Scorer.forName(name);
+			if(scorer == null) {
+				System.out.println("Unknown scorer " + name + ", using count");
+				scorer = Scorer.COUNT;
+			}
+		}
+		// the partitions are only searched, the output still comes from the frozen index
+		InvertedIndex searchIndex = invertedIndex;
+		if(argumentParser.hasFlag("-partitions")) {
+			searchIndex = new PartitionedInvertedIndex(frozenIndex, argumentParser.getInteger("-partitions", Runtime.getRuntime().availableProcessors()));
+		}
+		if(multiThread) {
+			queryHandler = new MultithreadedQueryHandler(searchIndex, numThreads, scorer);
+		}
+		else {
+			queryHandler = new QueryHandler(searchIndex, scorer);
+		}
+		
 		if(argumentParser.hasFlag("-query")) {
 			try {
 				Path input = argumentParser.getPath("-query");
-				queryHandler.parseQueryFile(input, argumentParser.hasFlag("-exact"));	
+				queryHandler.parseQueryFile(input, argumentParser.hasFlag("-exact"), argumentParser.getInteger("-limit", 0));	
 			} catch (IOException e) {
 				System.out.println("Unable to query from file ");
 			} catch (NullPointerException e) {
@@ -137,11 +219,47 @@ public class Driver {
 			}
 		}
 
+		if(safeIndex instanceof ThreadSafeInvertedIndex lockedIndex && lockedIndex.lockStats() != null) {
+			// only a lock made with -stats at the end of its name keeps them
+			System.out.println("Lock statistics: " + lockedIndex.lockStats());
+		}
 
 		// calculate time elapsed and output
 		long elapsed = Duration.between(start, Instant.now()).toMillis();
 		double seconds = (double) elapsed / Duration.ofSeconds(1).toMillis();
 		System.out.printf("Elapsed: %f seconds%n", seconds);
-	}	
+	}
+	
+	/**
+	 * Creates the thread safe index asked for by the flags, shared by the crawler
+	 * and the multithreaded build: a segmented, sharded or snapshot index, or one
+	 * with a single lock of the strategy given by -lock.
+	 *
+	 * @param argumentParser the flags given by the user
+	 * @param numThreads the amount of threads, used by the segmented index to merge
+	 * @return the new empty index
+	 */
+	private static InvertedIndex createThreadSafeIndex(ArgumentParser argumentParser, int numThreads) {
+		if(argumentParser.hasFlag("-segments")) {
+			return new SegmentedInvertedIndex(numThreads, argumentParser.getInteger("-segments", SegmentedInvertedIndex.DEFAULT_FLUSH), argumentParser.hasFlag("-offheap"));
+		}
+		if(argumentParser.hasFlag("-shards")) {
+			return new ShardedInvertedIndex(argumentParser.getInteger("-shards", ShardedInvertedIndex.DEFAULT_SHARDS));
+		}
+		if(argumentParser.hasFlag("-snapshots")) {
+			return new SnapshotInvertedIndex(argumentParser.getInteger("-snapshots", SnapshotInvertedIndex.DEFAULT_BATCH));
+		}
+		
+		LockStrategy lock = new ReadWriteLock();
+		if(argumentParser.hasFlag("-lock")) {
+			String name = argumentParser.getString("-lock", "simple");
+			lock = LockStrategy.forName(name);
+			if(lock == null) {
+				System.out.println("Unknown lock " + name + ", using simple");
+				lock = new ReadWriteLock();
+			}
+		}
+		return new ThreadSafeInvertedIndex(lock);
+	}
 	
 }
@@ -0,0 +1,812 @@
+package edu.usfca.cs272;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read only version of the inverted index made by {@link InvertedIndex#freeze()}
+ * once the building is done. The words are kept in a {@link TermDictionary}
+ * that gives every word its place in the sorted order, and the postings of all
+ * the words are compressed one after the other in two byte arrays, so there
+ * are no maps to walk and nothing changes after it is made, which means it can
+ * be searched by many threads at the same time without a lock.
+ *
+ * <p>
+ * For every document of a word the document stream has the gap from the
+ * previous document id, the amount of positions and the amount of bytes its
+ * positions take in the position stream, all of them encoded with {@link VByte}.
+ * The positions are stored as gaps from the previous position. Every
+ * {@value #BLOCK_SIZE} documents the postings start a new block, and a skip
+ * entry keeps the last document before the block and where the block starts in
+ * both streams, so a cursor can jump close to a document without decoding
+ * everything before it. The search only reads the document stream. The
+ * highest score any document gets from every word is also kept, so the top
+ * results search can skip the documents that can not make it to the top.
+ *
+ * <p>
+ * The index can be saved with {@link #save(Path)} and loaded back with
+ * {@link #load(Path)}. The file starts with {@value #MAGIC} and the version,
+ * then the documents, the words and the arrays of offsets and skip entries,
+ * and ends with the two streams. Loading maps the file into memory and only
+ * reads the documents, words and offsets into the heap, the streams are read
+ * straight from the mapped file, so a loaded index is ready right away and the
+ * pages are shared by every process that loads the same file.
+ *
+ * <p>
+ * An index frozen with {@link InvertedIndex#freeze(boolean)} can also keep the
+ * streams and the skip entries in direct buffers outside of the heap, with the
+ * documents in an {@link OffHeapDocumentTable}. Then the only things left in
+ * the heap are the dictionary and the arrays with one value for every word, so
+ * a big index does not make the garbage collector go through or copy its
+ * postings, and the heap can stay small.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class FrozenInvertedIndex extends InvertedIndex {
+
+	/** The amount of documents in every block of the postings */
+	public static final int BLOCK_SIZE = 128;
+
+	/** The first int of every saved index file */
+	public static final int MAGIC = 0x53454958;
+
+	/** The version of the saved index file layout */
+	public static final int VERSION = 2;
+
+	/** the dictionary with the ordinal of every word in sorted order */
+	private final TermDictionary dictionary;
+
+	/** the amount of documents of every word */
+	private final int[] documentCounts;
+
+	/** the highest score any document gets from every word */
+	private final double[] maxScores;
+
+	/** the start of every word in the document stream, with one extra offset for the end */
+	private final int[] documentOffsets;
+
+	/** the start of every word in the position stream */
+	private final int[] positionOffsets;
+
+	/** the compressed documents, counts and position sizes of all the words */
+	private final ByteBuffer documentData;
+
+	/** the compressed positions of all the words */
+	private final ByteBuffer positionData;
+
+	/** the first skip entry of every word, with one extra index for the end */
+	private final int[] skipStarts;
+
+	/** the last document id before the block of every skip entry */
+	private final IntBuffer skipDocuments;
+
+	/** where the block of every skip entry starts in the document stream */
+	private final IntBuffer skipDocumentPointers;
+
+	/** where the block of every skip entry starts in the position stream */
+	private final IntBuffer skipPositionPointers;
+
+	/**
+	 * Constructor that compresses the postings of the index given into the heap.
+	 *
+	 * @param index the index to freeze
+	 * @param documents the copy of the document table of the index
+	 */
+	FrozenInvertedIndex(InvertedIndex index, DocumentTable documents) {
+		this(index, documents, false);
+	}
+
+	/**
+	 * Constructor that compresses the postings of the index given. It goes through
+	 * the postings twice, once to know the size of the arrays and once to fill them.
+	 *
+	 * @param index the index to freeze
+	 * @param documents the copy of the document table of the index
+	 * @param offHeap true to keep the streams and the skip entries outside of the heap
+	 */
+	FrozenInvertedIndex(InvertedIndex index, DocumentTable documents, boolean offHeap) {
+		super(documents);
+		String[] words = index.words().toArray(new String[0]);
+		this.dictionary = new TermDictionary(words);
+		this.documentCounts = new int[words.length];
+		this.maxScores = new double[words.length];
+		this.documentOffsets = new int[words.length + 1];
+		this.positionOffsets = new int[words.length + 1];
+		this.skipStarts = new int[words.length + 1];
+
+		int documentSize = 0;
+		int positionSize = 0;
+		int skips = 0;
+		for (int word = 0; word < words.length; word++) {
+			documentOffsets[word] = documentSize;
+			positionOffsets[word] = positionSize;
+			skipStarts[word] = skips;
+
+			PostingsCursor cursor = index.postings(words[word]);
+			int previous = 0;
+			while (cursor.next()) {
+				maxScores[word] = Math.max(maxScores[word], (double) cursor.count() / documents.getCount(cursor.document()));
+				int bytes = positionBytes(cursor.positions());
+				documentSize += VByte.size(cursor.document() - previous) + VByte.size(cursor.count()) + VByte.size(bytes);
+				positionSize += bytes;
+				previous = cursor.document();
+			}
+			documentCounts[word] = cursor.documents();
+			skips += (cursor.documents() - 1) / BLOCK_SIZE;
+		}
+		documentOffsets[words.length] = documentSize;
+		positionOffsets[words.length] = positionSize;
+		skipStarts[words.length] = skips;
+
+		ByteBuffer documentBytes = allocate(documentSize, offHeap);
+		ByteBuffer positionBytes = allocate(positionSize, offHeap);
+		this.skipDocuments = allocate(skips * Integer.BYTES, offHeap).asIntBuffer();
+		this.skipDocumentPointers = allocate(skips * Integer.BYTES, offHeap).asIntBuffer();
+		this.skipPositionPointers = allocate(skips * Integer.BYTES, offHeap).asIntBuffer();
+
+		for (int word = 0; word < words.length; word++) {
+			PostingsCursor cursor = index.postings(words[word]);
+			int documentPointer = documentOffsets[word];
+			int positionPointer = positionOffsets[word];
+			int skip = skipStarts[word];
+			int previous = 0;
+			int count = 0;
+			while (cursor.next()) {
+				if (count > 0 && count % BLOCK_SIZE == 0) {
+					skipDocuments.put(skip, previous);
+					skipDocumentPointers.put(skip, documentPointer);
+					skipPositionPointers.put(skip, positionPointer);
+					skip++;
+				}
+
+				PositionList positions = cursor.positions();
+				documentPointer = VByte.write(documentBytes, documentPointer, cursor.document() - previous);
+				documentPointer = VByte.write(documentBytes, documentPointer, positions.size());
+				documentPointer = VByte.write(documentBytes, documentPointer, positionBytes(positions));
+
+				int last = 0;
+				for (int i = 0; i < positions.size(); i++) {
+					positionPointer = VByte.write(positionBytes, positionPointer, positions.get(i) - last);
+					last = positions.get(i);
+				}
+
+				previous = cursor.document();
+				count++;
+			}
+		}
+
+		this.documentData = documentBytes;
+		this.positionData = positionBytes;
+	}
+
+	/**
+	 * Makes an empty buffer in the heap or outside of it.
+	 *
+	 * @param size the amount of bytes
+	 * @param offHeap true for a direct buffer
+	 * @return the buffer in the native byte order
+	 */
+	private static ByteBuffer allocate(int size, boolean offHeap) {
+		ByteBuffer buffer = offHeap ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+		return buffer.order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Constructor that reads an index saved by {@link #save(Path)} from the mapped
+	 * file. The streams and the skip entries stay in the mapped file instead of
+	 * being copied.
+	 *
+	 * @param file the mapped file positioned after the version
+	 * @param documents the empty document table to fill
+	 * @throws IOException if the file is not a valid index file
+	 */
+	private FrozenInvertedIndex(ByteBuffer file, DocumentTable documents) throws IOException {
+		super(documents);
+		if (file.getInt() != BLOCK_SIZE) {
+			throw new IOException("The index file was saved with a different block size.");
+		}
+
+		int locations = file.getInt();
+		for (int id = 0; id < locations; id++) {
+			int document = documents.add(readString(file));
+			documents.updateCount(document, file.getInt());
+		}
+
+		String[] words = new String[file.getInt()];
+		for (int word = 0; word < words.length; word++) {
+			words[word] = readString(file);
+		}
+		this.dictionary = new TermDictionary(words);
+
+		this.documentCounts = readInts(file, words.length);
+		this.maxScores = new double[words.length];
+		file.asDoubleBuffer().get(maxScores);
+		file.position(file.position() + words.length * Double.BYTES);
+		this.documentOffsets = readInts(file, words.length + 1);
+		this.positionOffsets = readInts(file, words.length + 1);
+		this.skipStarts = readInts(file, words.length + 1);
+
+		int skips = file.getInt();
+		this.skipDocuments = readBytes(file, skips * Integer.BYTES).asIntBuffer();
+		this.skipDocumentPointers = readBytes(file, skips * Integer.BYTES).asIntBuffer();
+		this.skipPositionPointers = readBytes(file, skips * Integer.BYTES).asIntBuffer();
+
+		this.documentData = readBytes(file);
+		this.positionData = readBytes(file);
+	}
+
+	/**
+	 * Loads an index saved by {@link #save(Path)}. The file is mapped into memory
+	 * so only the documents, words and offsets are read before it can be searched.
+	 *
+	 * @param path the file to load
+	 * @return the loaded index
+	 * @throws IOException if the file can not be read or is not a valid index file
+	 */
+	public static FrozenInvertedIndex load(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("The index file is too big to be mapped: " + path);
+			}
+
+			ByteBuffer file = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			if (file.remaining() < 8 || file.getInt() != MAGIC) {
+				throw new IOException("Not an index file: " + path);
+			}
+			if (file.getInt() != VERSION) {
+				throw new IOException("Unsupported index file version: " + path);
+			}
+			return new FrozenInvertedIndex(file, new DocumentTable());
+		}
+		catch (RuntimeException e) {
+			throw new IOException("Corrupted index file: " + path, e);
+		}
+	}
+
+	/**
+	 * Saves the index into a binary file that can be loaded back with {@link #load(Path)}.
+	 *
+	 * @param path the file to write
+	 * @throws IOException if the file can not be written
+	 */
+	public void save(Path path) throws IOException {
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(BLOCK_SIZE);
+
+			DocumentTable documents = documents();
+			output.writeInt(documents.size());
+			for (int id = 0; id < documents.size(); id++) {
+				writeString(output, documents.getLocation(id));
+				output.writeInt(documents.getCount(id));
+			}
+
+			output.writeInt(dictionary.size());
+			for (String word : dictionary.words()) {
+				writeString(output, word);
+			}
+
+			writeInts(output, documentCounts);
+			for (double maxScore : maxScores) {
+				output.writeDouble(maxScore);
+			}
+			writeInts(output, documentOffsets);
+			writeInts(output, positionOffsets);
+			writeInts(output, skipStarts);
+
+			output.writeInt(skipDocuments.capacity());
+			writeInts(output, skipDocuments);
+			writeInts(output, skipDocumentPointers);
+			writeInts(output, skipPositionPointers);
+
+			writeBytes(output, documentData);
+			writeBytes(output, positionData);
+		}
+	}
+
+	/**
+	 * Writes the string as its length in bytes followed by its UTF-8 bytes.
+	 *
+	 * @param output where to write
+	 * @param string the string to write
+	 * @throws IOException if the file can not be written
+	 */
+	private static void writeString(DataOutputStream output, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	/**
+	 * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+	 *
+	 * @param file where to read from
+	 * @return the string read
+	 */
+	private static String readString(ByteBuffer file) {
+		byte[] bytes = new byte[file.getInt()];
+		file.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes all the values of the array, the length is known when reading.
+	 *
+	 * @param output where to write
+	 * @param values the values to write
+	 * @throws IOException if the file can not be written
+	 */
+	private static void writeInts(DataOutputStream output, int[] values) throws IOException {
+		for (int value : values) {
+			output.writeInt(value);
+		}
+	}
+
+	/**
+	 * Writes all the values of the buffer, the length is known when reading.
+	 *
+	 * @param output where to write
+	 * @param values the values to write
+	 * @throws IOException if the file can not be written
+	 */
+	private static void writeInts(DataOutputStream output, IntBuffer values) throws IOException {
+		for (int i = 0; i < values.capacity(); i++) {
+			output.writeInt(values.get(i));
+		}
+	}
+
+	/**
+	 * Reads an array written by {@link #writeInts(DataOutputStream, int[])}.
+	 *
+	 * @param file where to read from
+	 * @param length the amount of values to read
+	 * @return the values read
+	 */
+	private static int[] readInts(ByteBuffer file, int length) {
+		int[] values = new int[length];
+		file.asIntBuffer().get(values);
+		file.position(file.position() + length * Integer.BYTES);
+		return values;
+	}
+
+	/**
+	 * Writes the length of the stream followed by its bytes.
+	 *
+	 * @param output where to write
+	 * @param data the stream to write
+	 * @throws IOException if the file can not be written
+	 */
+	private static void writeBytes(DataOutputStream output, ByteBuffer data) throws IOException {
+		ByteBuffer source = data.duplicate().clear();
+		output.writeInt(source.remaining());
+		byte[] chunk = new byte[8192];
+		while (source.hasRemaining()) {
+			int length = Math.min(chunk.length, source.remaining());
+			source.get(chunk, 0, length);
+			output.write(chunk, 0, length);
+		}
+	}
+
+	/**
+	 * Reads a stream written by {@link #writeBytes(DataOutputStream, ByteBuffer)}
+	 * without copying it out of the file.
+	 *
+	 * @param file where to read from
+	 * @return the part of the file with the stream
+	 */
+	private static ByteBuffer readBytes(ByteBuffer file) {
+		return readBytes(file, file.getInt());
+	}
+
+	/**
+	 * Takes the next bytes of the file without copying them.
+	 *
+	 * @param file where to read from
+	 * @param length the amount of bytes
+	 * @return the part of the file with the bytes
+	 */
+	private static ByteBuffer readBytes(ByteBuffer file, int length) {
+		ByteBuffer data = file.slice(file.position(), length);
+		file.position(file.position() + length);
+		return data;
+	}
+
+	/**
+	 * The amount of bytes the positions take once they are compressed as gaps.
+	 *
+	 * @param positions the positions to compress
+	 * @return the amount of bytes
+	 */
+	private static int positionBytes(PositionList positions) {
+		int bytes = 0;
+		int last = 0;
+		for (int i = 0; i < positions.size(); i++) {
+			bytes += VByte.size(positions.get(i) - last);
+			last = positions.get(i);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Finds the index of a word in the sorted order with the dictionary.
+	 *
+	 * @param word the word to look for
+	 * @return the index of the word or -1 if it is not there
+	 */
+	private int indexOf(String word) {
+		return dictionary.ordinal(word);
+	}
+
+	/**
+	 * Creates a cursor already moved to the location in the postings of the word.
+	 *
+	 * @param word the word to look for
+	 * @param location the location to look for
+	 * @return the cursor on the document of the location or null if the word is not in this location
+	 */
+	private Cursor find(String word, String location) {
+		int index = indexOf(word);
+		int document = documents().getId(location);
+		if (index < 0 || document < 0) {
+			return null;
+		}
+
+		Cursor cursor = new Cursor(index);
+		if (cursor.advance(document) && cursor.document() == document) {
+			return cursor;
+		}
+		return null;
+	}
+
+	@Override
+	protected PostingsCursor postings(String word) {
+		int index = indexOf(word);
+		return index >= 0 ? new Cursor(index) : null;
+	}
+
+	@Override
+	protected List<PostingsCursor> prefixPostings(String prefix) {
+		int[] range = dictionary.prefixRange(prefix);
+		List<PostingsCursor> cursors = new ArrayList<>(range[1] - range[0]);
+		for (int word = range[0]; word < range[1]; word++) {
+			cursors.add(new Cursor(word));
+		}
+		return cursors;
+	}
+
+	@Override
+	protected List<String> prefixWords(String prefix) {
+		int[] range = dictionary.prefixRange(prefix);
+		return dictionary.words().subList(range[0], range[1]);
+	}
+
+	@Override
+	protected Collection<String> words() {
+		return dictionary.words();
+	}
+
+	@Override
+	protected PositionList findPositions(String word, String location) {
+		Cursor cursor = find(word, location);
+		return cursor != null ? cursor.positions() : null;
+	}
+
+	@Override
+	public int numWords() {
+		return dictionary.size();
+	}
+
+	@Override
+	public int numLocations(String word) {
+		int index = indexOf(word);
+		return index >= 0 ? documentCounts[index] : -1;
+	}
+
+	@Override
+	public int numPositions(String word, String location) {
+		Cursor cursor = find(word, location);
+		return cursor != null ? cursor.count() : -1;
+	}
+
+	@Override
+	public boolean containsWord(String word) {
+		return indexOf(word) >= 0;
+	}
+
+	@Override
+	public boolean containsLocation(String word, String location) {
+		return find(word, location) != null;
+	}
+
+	@Override
+	public boolean containsPosition(String word, String location, int position) {
+		Cursor cursor = find(word, location);
+		return cursor != null && cursor.containsPosition(position);
+	}
+
+	@Override
+	public Set<String> getWords() {
+		return new AbstractSet<String>() {
+			@Override
+			public boolean contains(Object object) {
+				return object instanceof String word && indexOf(word) >= 0;
+			}
+
+			@Override
+			public Iterator<String> iterator() {
+				return words().iterator();
+			}
+
+			@Override
+			public int size() {
+				return dictionary.size();
+			}
+		};
+	}
+
+	/**
+	 * Does nothing but fail, the frozen index can not be changed.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean addPosition(String word, String location, int count) {
+		throw new UnsupportedOperationException("The frozen index can not be changed.");
+	}
+
+	/**
+	 * Does nothing but fail, the frozen index can not be changed.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	protected void absorb(InvertedIndex other) {
+		throw new UnsupportedOperationException("The frozen index can not be changed.");
+	}
+
+	/**
+	 * Does nothing but fail, the frozen index can not be changed.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void addAll(InvertedIndex other) {
+		throw new UnsupportedOperationException("The frozen index can not be changed.");
+	}
+
+	/**
+	 * Does nothing but fail, the frozen index can not be changed.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean removeLocation(String location) {
+		throw new UnsupportedOperationException("The frozen index can not be changed.");
+	}
+
+	/**
+	 * The index is already frozen so it returns itself, wherever its postings are.
+	 *
+	 * @return this index
+	 */
+	@Override
+	public FrozenInvertedIndex freeze(boolean offHeap) {
+		return this;
+	}
+
+	/**
+	 * Adds the dictionary with the arrays kept for every word as the terms, and
+	 * the compressed streams with their skips as the postings, which are outside
+	 * of the heap when the index was frozen that way or loaded from a file.
+	 */
+	@Override
+	protected void estimatePostingsBytes(IndexStats stats) {
+		long terms = dictionary.bytes()
+				+ IndexStats.array(documentCounts.length, Integer.BYTES)
+				+ IndexStats.array(maxScores.length, Double.BYTES)
+				+ IndexStats.array(documentOffsets.length, Integer.BYTES)
+				+ IndexStats.array(positionOffsets.length, Integer.BYTES)
+				+ IndexStats.array(skipStarts.length, Integer.BYTES);
+		stats.addBytes("terms", terms, false);
+
+		stats.addBytes("postings", documentData.capacity() + positionData.capacity(), documentData.isDirect());
+		long skips = (long) (skipDocuments.capacity() + skipDocumentPointers.capacity()
+				+ skipPositionPointers.capacity()) * Integer.BYTES;
+		stats.addBytes("skips", skips, skipDocuments.isDirect());
+	}
+
+	/**
+	 * Finds the last skip entry of the word with a document before the target.
+	 *
+	 * @param from the first skip entry of the word
+	 * @param to the skip entry after the last one of the word
+	 * @param target the document to look for
+	 * @return the skip entry or from - 1 if the target is in the first block
+	 */
+	private int findSkip(int from, int to, int target) {
+		int low = from;
+		int high = to - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (skipDocuments.get(middle) < target) {
+				low = middle + 1;
+			}
+			else {
+				high = middle - 1;
+			}
+		}
+		return low - 1;
+	}
+
+	/**
+	 * Cursor that decodes the postings of one word straight from the compressed streams
+	 */
+	private class Cursor implements PostingsCursor {
+
+		/** the index of the word */
+		private final int word;
+
+		/** the offset after the last document of the word in the document stream */
+		private final int end;
+
+		/** the offset of the next document in the document stream */
+		private int pointer;
+
+		/** the offset of the positions of the next document in the position stream */
+		private int positionPointer;
+
+		/** the index of the next document inside the postings of the word */
+		private int index;
+
+		/** the id of the current document */
+		private int document;
+
+		/** the amount of positions of the current document */
+		private int count;
+
+		/** the offset of the positions of the current document */
+		private int positionStart;
+
+		/** true once the cursor went through all the documents */
+		private boolean done;
+
+		/**
+		 * Constructor of a cursor at the start of the postings of a word
+		 *
+		 * @param word the index of the word
+		 */
+		public Cursor(int word) {
+			this.word = word;
+			this.end = documentOffsets[word + 1];
+			this.pointer = documentOffsets[word];
+			this.positionPointer = positionOffsets[word];
+			this.index = 0;
+			this.document = 0;
+			this.done = false;
+		}
+
+		/**
+		 * Decodes the next value of the document stream.
+		 *
+		 * @return the decoded value
+		 */
+		private int read() {
+			int value = VByte.read(documentData, pointer);
+			pointer += VByte.size(value);
+			return value;
+		}
+
+		@Override
+		public boolean next() {
+			if (pointer >= end) {
+				done = true;
+				return false;
+			}
+			document += read();
+			count = read();
+			positionStart = positionPointer;
+			positionPointer += read();
+			index++;
+			return true;
+		}
+
+		@Override
+		public boolean advance(int target) {
+			if (done) {
+				return false;
+			}
+			if (index > 0 && document >= target) {
+				return true;
+			}
+
+			int from = skipStarts[word];
+			int skip = findSkip(from, skipStarts[word + 1], target);
+			if (skip >= from && (skip - from + 1) * BLOCK_SIZE > index) {
+				pointer = skipDocumentPointers.get(skip);
+				positionPointer = skipPositionPointers.get(skip);
+				document = skipDocuments.get(skip);
+				index = (skip - from + 1) * BLOCK_SIZE;
+			}
+
+			while (next()) {
+				if (document >= target) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int document() {
+			return document;
+		}
+
+		@Override
+		public int count() {
+			return count;
+		}
+
+		@Override
+		public PositionList positions() {
+			PositionList positions = new PositionList();
+			int offset = positionStart;
+			int last = 0;
+			for (int i = 0; i < count; i++) {
+				int value = VByte.read(positionData, offset);
+				offset += VByte.size(value);
+				last += value;
+				positions.addPosition(last);
+			}
+			return positions;
+		}
+
+		/**
+		 * Boolean method that checks if the current document has the position, it
+		 * stops decoding once it passes the position.
+		 *
+		 * @param position the position to look for
+		 * @return true if the position is in the current document
+		 */
+		public boolean containsPosition(int position) {
+			int offset = positionStart;
+			int last = 0;
+			for (int i = 0; i < count; i++) {
+				int value = VByte.read(positionData, offset);
+				offset += VByte.size(value);
+				last += value;
+				if (last >= position) {
+					return last == position;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int documents() {
+			return documentCounts[word];
+		}
+
+		@Override
+		public double maxScore() {
+			return maxScores[word];
+		}
+	}
+}
@@ -0,0 +1,335 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * The size and shape of an inverted index, made by {@link InvertedIndex#stats()}:
+ * how many words, documents, postings and positions it has, how long its
+ * posting lists are, its longest lists and about how many bytes every part of
+ * it takes. Making it only goes through the document ids of every posting list
+ * once, the positions are never read, so it can be asked for while a crawl is
+ * still going on.
+ *
+ * <p>
+ * The bytes are estimates for a 64 bit JVM with compressed references, they
+ * add up the objects and arrays every part keeps but not the padding of the
+ * garbage collector, so they are good to compare and to size the heap with,
+ * not exact.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class IndexStats {
+
+	/** The amount of longest posting lists kept */
+	public static final int LONGEST = 10;
+
+	/** The bytes of the header of an object */
+	public static final int OBJECT = 12;
+
+	/** The bytes of the header of an array */
+	public static final int ARRAY = 16;
+
+	/** The bytes of a reference */
+	public static final int REFERENCE = 4;
+
+	/** The bytes of an entry of a tree map */
+	public static final int TREE_ENTRY = 40;
+
+	/** The bytes of an entry of a hash map with its boxed int value */
+	public static final int HASH_ENTRY = 48;
+
+	/** the amount of documents that were not removed */
+	private final int documents;
+
+	/** the amount of words with postings */
+	private int words;
+
+	/** the amount of documents of all the words added up */
+	private long postings;
+
+	/** the amount of positions of all the words added up */
+	private long positions;
+
+	/** the amount of words whose posting list length has i + 1 bits */
+	private final long[] lengths;
+
+	/** the longest posting lists seen, the shortest of them on top */
+	private final PriorityQueue<Map.Entry<String, Integer>> longest;
+
+	/** the estimated bytes of every part of the index in the heap */
+	private final LinkedHashMap<String, Long> heapBytes;
+
+	/** the bytes of every part of the index outside of the heap */
+	private final LinkedHashMap<String, Long> offHeapBytes;
+
+	/**
+	 * Constructor of empty statistics
+	 *
+	 * @param documents the amount of documents of the index
+	 */
+	public IndexStats(int documents) {
+		this.documents = documents;
+		this.lengths = new long[Integer.SIZE];
+		this.longest = new PriorityQueue<>(LONGEST + 1, order());
+		this.heapBytes = new LinkedHashMap<>();
+		this.offHeapBytes = new LinkedHashMap<>();
+	}
+
+	/**
+	 * The order of the posting lists by length, with the words in reverse so
+	 * the first word in order wins a tie whatever order the words are counted in.
+	 *
+	 * @return the comparator from the shortest list to the longest
+	 */
+	private static Comparator<Map.Entry<String, Integer>> order() {
+		Comparator<Map.Entry<String, Integer>> length = Map.Entry.comparingByValue();
+		return length.thenComparing(Map.Entry.<String, Integer>comparingByKey().reversed());
+	}
+
+	/**
+	 * Counts the posting list of a word.
+	 *
+	 * @param word the word
+	 * @param documents the amount of documents of the word, words without any are skipped
+	 * @param positions the amount of positions of the word in all its documents
+	 */
+	public void addWord(String word, int documents, long positions) {
+		if (documents <= 0) {
+			return;
+		}
+		words++;
+		postings += documents;
+		this.positions += positions;
+		lengths[Integer.SIZE - 1 - Integer.numberOfLeadingZeros(documents)]++;
+
+		if (longest.size() < LONGEST || documents >= longest.peek().getValue()) {
+			longest.add(Map.entry(word, documents));
+			if (longest.size() > LONGEST) {
+				longest.poll();
+			}
+		}
+	}
+
+	/**
+	 * Adds to the estimated bytes of a part of the index.
+	 *
+	 * @param part the name of the part
+	 * @param bytes the bytes to add
+	 * @param offHeap true if the bytes are outside of the heap
+	 */
+	public void addBytes(String part, long bytes, boolean offHeap) {
+		(offHeap ? offHeapBytes : heapBytes).merge(part, bytes, Long::sum);
+	}
+
+	/**
+	 * The bytes an object takes once it is aligned to 8 bytes
+	 *
+	 * @param bytes the bytes of its header and fields
+	 * @return the aligned bytes
+	 */
+	public static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	/**
+	 * The bytes of an array
+	 *
+	 * @param length the amount of elements
+	 * @param element the bytes of every element
+	 * @return the bytes of the array
+	 */
+	public static long array(int length, int element) {
+		return align(ARRAY + (long) length * element);
+	}
+
+	/**
+	 * The bytes of a string with its array, counting one byte for every char
+	 * since most words and locations are latin
+	 *
+	 * @param string the string
+	 * @return the bytes of the string
+	 */
+	public static long string(String string) {
+		return align(OBJECT + REFERENCE + 2 * Integer.BYTES) + array(string.length(), 1);
+	}
+
+	/**
+	 * Getter method of the amount of documents
+	 *
+	 * @return the documents that were not removed
+	 */
+	public int getDocuments() {
+		return documents;
+	}
+
+	/**
+	 * Getter method of the vocabulary size
+	 *
+	 * @return the amount of words
+	 */
+	public int getWords() {
+		return words;
+	}
+
+	/**
+	 * Getter method of the amount of postings, one for every word in every document
+	 *
+	 * @return the amount of postings
+	 */
+	public long getPostings() {
+		return postings;
+	}
+
+	/**
+	 * Getter method of the amount of positions
+	 *
+	 * @return the amount of positions of all the words
+	 */
+	public long getPositions() {
+		return positions;
+	}
+
+	/**
+	 * The distribution of the lengths of the posting lists in powers of two,
+	 * only the ranges that have words.
+	 *
+	 * @return the amount of words for every range of lengths like "4-7"
+	 */
+	public Map<String, Long> getLengths() {
+		LinkedHashMap<String, Long> ranges = new LinkedHashMap<>();
+		for (int bits = 0; bits < lengths.length; bits++) {
+			if (lengths[bits] > 0) {
+				long from = 1L << bits;
+				long to = (from << 1) - 1;
+				ranges.put(from == to ? Long.toString(from) : from + "-" + to, lengths[bits]);
+			}
+		}
+		return ranges;
+	}
+
+	/**
+	 * The words with the longest posting lists, the longest first
+	 *
+	 * @return the amount of documents of every one of those words
+	 */
+	public Map<String, Integer> getLongest() {
+		List<Map.Entry<String, Integer>> sorted = new ArrayList<>(longest);
+		sorted.sort(order().reversed());
+		LinkedHashMap<String, Integer> words = new LinkedHashMap<>();
+		for (Map.Entry<String, Integer> entry : sorted) {
+			words.put(entry.getKey(), entry.getValue());
+		}
+		return words;
+	}
+
+	/**
+	 * Getter method of the estimated bytes in the heap
+	 *
+	 * @return the bytes of every part of the index in an unmodifiable way
+	 */
+	public Map<String, Long> getHeapBytes() {
+		return Collections.unmodifiableMap(heapBytes);
+	}
+
+	/**
+	 * Getter method of the bytes outside of the heap, in direct buffers or a mapped file
+	 *
+	 * @return the bytes of every part of the index in an unmodifiable way
+	 */
+	public Map<String, Long> getOffHeapBytes() {
+		return Collections.unmodifiableMap(offHeapBytes);
+	}
+
+	/**
+	 * The estimated bytes of the whole index in the heap
+	 *
+	 * @return the bytes of all the parts added up
+	 */
+	public long totalHeapBytes() {
+		return heapBytes.values().stream().mapToLong(Long::longValue).sum();
+	}
+
+	/**
+	 * The bytes of the whole index outside of the heap
+	 *
+	 * @return the bytes of all the parts added up
+	 */
+	public long totalOffHeapBytes() {
+		return offHeapBytes.values().stream().mapToLong(Long::longValue).sum();
+	}
+
+	/**
+	 * The counts of the index in a map
+	 *
+	 * @return the amount of words, documents, postings and positions
+	 */
+	public Map<String, Long> getCounts() {
+		LinkedHashMap<String, Long> counts = new LinkedHashMap<>();
+		counts.put("words", (long) words);
+		counts.put("documents", (long) documents);
+		counts.put("postings", postings);
+		counts.put("positions", positions);
+		counts.put("heap bytes", totalHeapBytes());
+		counts.put("off heap bytes", totalOffHeapBytes());
+		return counts;
+	}
+
+	/**
+	 * Writes the statistics as a pretty JSON object with one object for every group.
+	 *
+	 * @param writer the writer to use
+	 * @param indent the initial indent level
+	 * @throws IOException if an IO error occurs
+	 */
+	public void toJSON(Writer writer, int indent) throws IOException {
+		Map<String, Map<String, ? extends Number>> groups = new LinkedHashMap<>();
+		groups.put("counts", getCounts());
+		groups.put("posting lengths", getLengths());
+		groups.put("longest", getLongest());
+		groups.put("heap bytes", heapBytes);
+		groups.put("off heap bytes", offHeapBytes);
+
+		writer.write("{\n");
+		var iterator = groups.entrySet().iterator();
+		while (iterator.hasNext()) {
+			var group = iterator.next();
+			PrettyJsonWriter.writeQuote(group.getKey(), writer, indent + 1);
+			writer.write(": ");
+			PrettyJsonWriter.writeObject(group.getValue(), writer, indent + 1);
+			writer.write(iterator.hasNext() ? ",\n" : "\n");
+		}
+		PrettyJsonWriter.writeIndent(writer, indent);
+		writer.write("}");
+	}
+
+	/**
+	 * Writes the statistics as a pretty JSON object to file.
+	 *
+	 * @param path the file path to use
+	 * @throws IOException if an IO error occurs
+	 */
+	public void toJSON(Path path) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, UTF_8)) {
+			toJSON(writer, 0);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getCounts() + " heap " + heapBytes + " off heap " + offHeapBytes;
+	}
+}
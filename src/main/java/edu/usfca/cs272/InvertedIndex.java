@@ -3,10 +3,12 @@ package edu.usfca.cs272;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The class of the data structure needed to complete the project1test it has
- * a treeSet nested into a TreeMap nested into a tree map to keep it in order
+ * a tree map from every word to its posting list, the locations are kept in a
+ * document table and the postings only store their int ids
  * 
  * @author Santiago Jaramillo
  * @version fall 2022
@@ -27,16 +29,19 @@ public class InvertedIndex {
 		/** the amount of times the query was found */
 		private int count;
 		
-		/** location in string of the page score */
-		private final String location; 
+		/** id of the location of the page score */
+		private final int document; 
+		
+		/** location in string of the page score, looked up once the search is done */
+		private String location;
 		/**
 		 * Constructor method that assign all the values
-		 * @param location location in string of the page score
+		 * @param document id of the location of the page score
 		 */
-		public PageScore(String location) { 
+		public PageScore(int document) { 
 			this.score = 0;
 			this.count = 0;
-			this.location = location;
+			this.document = document;
 		}
 		
 		/**
@@ -56,20 +61,47 @@ public class InvertedIndex {
 		}
 		
 		/**
-		 * Getter method that returns the score
-		 * @return score of the page score
+		 * Getter method that returns the location
+		 * @return location in string of the page score
 		 */
 		public String getLocation() {
 			return location;
 		}
 		
+		/**
+		 * Getter method that returns the id of the location
+		 * @return id of the location of the page score
+		 */
+		public int getDocument() {
+			return document;
+		}
+		
 		/**
 		 * It updates the values from the count score
-		 * @param word need to know which values need to be updated
+		 * @param matches the amount of positions found for a word in this location
+		 */
+		private void updateValues(int matches) {
+			count += matches;
+			score = (double) count / documents.getCount(document); 
+		}
+		
+		/**
+		 * Sets the values of a search with a scorer, where the score was already added
+		 * up from the score of every word
+		 * @param matches the amount of positions found in this location
+		 * @param score the score of the location
 		 */
-		private void updateValues(String word) {
-			count += invertedIndex.get(word).get(location).size();
-			score = (double) count / filesCounter.get(location); 
+		private void setValues(int matches, double score) {
+			this.count = matches;
+			this.score = score;
+		}
+		
+		/**
+		 * Looks up the location of the page score in the document table, it is only
+		 * done for the results once all the postings were added.
+		 */
+		private void resolveLocation() {
+			location = documents.getLocation(document);
 		}
 
 		@Override
@@ -107,17 +139,34 @@ public class InvertedIndex {
 	
 	
 	/** the treeMap for the invertedIndex */
-	private final TreeMap<String, TreeMap<String, TreeSet<Integer>>> invertedIndex;
+	private final TreeMap<String, PostingList> invertedIndex;
+	
+	/** the table with the id and word count of every location */
+	private final DocumentTable documents; 
 	
-	/** the treeMap that contains a key query, and a value integer */
-	private final TreeMap<String, Integer> filesCounter; 
+	/** the merged postings of the prefixes that match many words */
+	private final PrefixCache prefixCache;
+	
+	/** the statistics of every scorer used on this index */
+	private final Map<Scorer, ScoreTable> scoreTables;
 	
 	/**
 	 * Constructor of InvertedIndex
 	 */
 	public InvertedIndex() {
-		invertedIndex = new TreeMap<>();
-		filesCounter = new TreeMap<>();
+		this(new DocumentTable());
+	}
+	
+	/**
+	 * Constructor of InvertedIndex that uses the document table given, used by
+	 * the subclasses that keep their postings somewhere else
+	 * @param documents the document table of the index
+	 */
+	protected InvertedIndex(DocumentTable documents) {
+		this.invertedIndex = new TreeMap<>();
+		this.documents = documents;
+		this.prefixCache = new PrefixCache(PrefixCache.DEFAULT_BUDGET);
+		this.scoreTables = new ConcurrentHashMap<>();
 	}
 	
 	/**
@@ -130,65 +179,587 @@ public class InvertedIndex {
 		return exact ? exactSearch(queries) : partialSearch(queries);
 	}
 	
+	/**
+	 * Search that only returns the best results, in the same order the full search
+	 * would have them. A limit of zero or less returns every result.
+	 * @param queries needed to do the search
+	 * @param exact check if its exact or partial
+	 * @param limit the amount of results to return
+	 * @return the best page scores of the search
+	 */
+	public List<PageScore> search(Set<String> queries, boolean exact, int limit) {
+		return search(queries, List.of(), exact, limit);
+	}
+	
+	/**
+	 * Search of the words and the phrases of a query, a phrase matches a location
+	 * every time all its words show up one right after the other, and each of those
+	 * matches adds to the count of the location like a word does. The words of the
+	 * phrases are always matched exactly.
+	 * @param queries the words of the search
+	 * @param phrases the words of every phrase in order
+	 * @param exact check if its exact or partial for the words
+	 * @param limit the amount of results to return, zero or less returns all
+	 * @return the best page scores of the search
+	 */
+	public List<PageScore> search(Set<String> queries, Collection<List<String>> phrases, boolean exact, int limit) {
+		return search(queries, phrases, exact, limit, Scorer.COUNT);
+	}
+	
+	/**
+	 * Search of the words and the phrases of a query with the scorer given. The
+	 * statistics of the scorer are computed once for the index in a {@link ScoreTable}
+	 * and kept until the index changes.
+	 * @param queries the words of the search
+	 * @param phrases the words of every phrase in order
+	 * @param exact check if its exact or partial for the words
+	 * @param limit the amount of results to return, zero or less returns all
+	 * @param scorer the way the locations are scored
+	 * @return the best page scores of the search
+	 */
+	public List<PageScore> search(Set<String> queries, Collection<List<String>> phrases, boolean exact, int limit, Scorer scorer) {
+		if(Query.hasOperators(queries)) {
+			return booleanSearch(queries, phrases, exact, limit, scorer);
+		}
+		List<PostingsCursor> matches = matchingPostings(queries, exact, scorer);
+		matches.addAll(phrasePostings(phrases));
+		if(scorer != Scorer.COUNT) {
+			return scoredSearch(matches, scoreTable(scorer), limit);
+		}
+		return limit > 0 ? topSearch(matches, limit) : searchHelper(matches);
+	}
+	
 	/**
 	 * Method that creates the exact search in the inverted index and returns a list.
+	 * The words can have the operators of a {@link Query}.
 	 * 
 	 * @param queries the different queries needed.
 	 * @return pageScores of every search.
 	 */
 	public List<PageScore> exactSearch(Set<String> queries) {
-		HashMap<String, PageScore> totalsFiles = new HashMap<>();
-		List<PageScore> pageScores = new ArrayList<>();
+		if(Query.hasOperators(queries)) {
+			return booleanSearch(queries, List.of(), true, 0, Scorer.COUNT);
+		}
+		return searchHelper(matchingPostings(queries, true));
+	}
 
-		for(String word: queries) {
-			if(invertedIndex.containsKey(word)) {
-				searchHelper(totalsFiles, pageScores, word);
+	/**
+	 * Method that creates the partial search in the inverted index and returns a list.
+	 * The words can have the operators of a {@link Query}.
+	 * 
+	 * @param queries the different queries needed.
+	 * @return pageScores of every search.
+	 */
+	public List<PageScore> partialSearch(Set<String> queries) {
+		if(Query.hasOperators(queries)) {
+			return booleanSearch(queries, List.of(), false, 0, Scorer.COUNT);
+		}
+		return searchHelper(matchingPostings(queries, false));
+	}
+	
+	/**
+	 * Method that goes through the postings of every word of the search adding up the
+	 * matches of every location in the accumulator of the thread, the page scores are
+	 * only created at the end once the count of every location is known.
+	 * @param matches the postings of the words of the search
+	 * @return the sorted page scores of the search
+	 */
+	private List<PageScore> searchHelper(List<PostingsCursor> matches) {
+		ScoreAccumulator accumulator = ScoreAccumulator.get(documents.size());
+		try {
+			for(PostingsCursor postings: matches) {
+				while(postings.next()) {
+					accumulator.add(postings.document(), postings.count());
+				}
+			}
+			return createScores(accumulator);
+		}
+		finally {
+			accumulator.clear();
+		}
+	}
+	
+	/**
+	 * Creates the page scores of every location in the accumulator and sorts them.
+	 * @param accumulator the matches of the search indexed by the ids of this index
+	 * @return the sorted page scores
+	 */
+	protected List<PageScore> createScores(ScoreAccumulator accumulator) {
+		List<PageScore> pageScores = new ArrayList<>(accumulator.size());
+		for(int i = 0; i < accumulator.size(); i++) {
+			int document = accumulator.getDocument(i);
+			pageScores.add(createScore(document, accumulator.getCount(document)));
+		}
+		Collections.sort(pageScores);
+		return pageScores;
+	}
+	
+	/**
+	 * Search with a scorer, every match adds the score of its word to the location.
+	 * With a limit only the locations that make it to the heap of the best results
+	 * get a page score.
+	 * @param matches the postings of the words of the search
+	 * @param table the statistics of the scorer for this index
+	 * @param limit the amount of results to return, zero or less returns all
+	 * @return the sorted page scores of the search
+	 */
+	private List<PageScore> scoredSearch(List<PostingsCursor> matches, ScoreTable table, int limit) {
+		Scorer scorer = table.getScorer();
+		ScoreAccumulator accumulator = ScoreAccumulator.get(documents.size());
+		try {
+			for(PostingsCursor postings: matches) {
+				double weight = table.weight(postings.documents());
+				while(postings.next()) {
+					int document = postings.document();
+					int count = postings.count();
+					accumulator.add(document, count, scorer.score(count, weight, table.norm(document)));
+				}
+			}
+			return collectScores(accumulator, true, limit);
+		}
+		finally {
+			accumulator.clear();
+		}
+	}
+	
+	/**
+	 * Creates the page scores of the locations in the accumulator and sorts them, with
+	 * a limit only the locations that make it to the heap of the best results get a
+	 * page score.
+	 * @param accumulator the matches of the search indexed by the ids of this index
+	 * @param scored if the accumulator has the scores of a scorer, otherwise they are
+	 *   the matches over the words of the location
+	 * @param limit the amount of results to return, zero or less returns all
+	 * @return the sorted page scores
+	 */
+	private List<PageScore> collectScores(ScoreAccumulator accumulator, boolean scored, int limit) {
+		if(limit <= 0 && !scored) {
+			return createScores(accumulator);
+		}
+		
+		if(limit <= 0) {
+			List<PageScore> pageScores = new ArrayList<>(accumulator.size());
+			for(int i = 0; i < accumulator.size(); i++) {
+				int document = accumulator.getDocument(i);
+				pageScores.add(createScore(document, accumulator.getCount(document), accumulator.getScore(document)));
 			}
+			Collections.sort(pageScores);
+			return pageScores;
 		}
 		
+		PriorityQueue<PageScore> heap = new PriorityQueue<>(limit + 1, Collections.reverseOrder());
+		for(int i = 0; i < accumulator.size(); i++) {
+			int document = accumulator.getDocument(i);
+			int count = accumulator.getCount(document);
+			double score = scored ? accumulator.getScore(document) : (double) count / documents.getCount(document);
+			if(heap.size() < limit || score >= heap.peek().getScore()) {
+				heap.add(scored ? createScore(document, count, score) : createScore(document, count));
+				if(heap.size() > limit) {
+					heap.poll();
+				}
+			}
+		}
+		List<PageScore> pageScores = new ArrayList<>(heap);
 		Collections.sort(pageScores);
 		return pageScores;
 	}
-
+	
 	/**
-	 * Method that creates the exact search in the inverted index and returns a list.
+	 * Search of a query with required and excluded words. The operators only choose
+	 * the locations, every location that is left gets the same count and score the
+	 * search without them would give it. A required word that matches more than one
+	 * word in a partial search is the union of those words.
 	 * 
-	 * @param queries the different queries needed.
-	 * @return pageScores of every search.
+	 * <p>
+	 * With required words the candidates come from intersecting their postings from
+	 * the one with the fewest documents, and the other postings are only moved to
+	 * the candidates with {@link PostingsCursor#advance(int)}, so the cost follows
+	 * the rarest required word instead of every posting. Without them the locations
+	 * of the excluded words are marked first and skipped while adding up the others.
+	 * @param queries the words of the search with their operators
+	 * @param phrases the words of every phrase in order
+	 * @param exact check if its exact or partial for the words
+	 * @param limit the amount of results to return, zero or less returns all
+	 * @param scorer the way the locations are scored
+	 * @return the best page scores of the search
 	 */
-	public List<PageScore> partialSearch(Set<String> queries) {
-		HashMap<String, PageScore> totalsFiles = new HashMap<>();
-		List<PageScore> pageScores = new ArrayList<>();
+	private List<PageScore> booleanSearch(Set<String> queries, Collection<List<String>> phrases, boolean exact, int limit, Scorer scorer) {
+		Set<String> words = new TreeSet<>();
+		List<PostingsCursor> required = new ArrayList<>();
+		List<PostingsCursor> excluded = new ArrayList<>();
+		for(String query: queries) {
+			char operator = query.isEmpty() ? ' ' : query.charAt(0);
+			if(operator != Query.REQUIRED && operator != Query.EXCLUDED) {
+				words.add(query);
+				continue;
+			}
+			
+			String word = query.substring(1);
+			List<PostingsCursor> postings = word.isEmpty() ? List.of() : matchingPostings(Set.of(word), exact);
+			PostingsCursor union = postings.size() == 1 ? postings.get(0) : new UnionCursor(postings.toArray(new PostingsCursor[0]));
+			if(operator == Query.EXCLUDED) {
+				excluded.add(union);
+			}
+			else if(postings.isEmpty()) {
+				return new ArrayList<>();
+			}
+			else {
+				required.add(union);
+				words.add(word);
+			}
+		}
+		
+		List<PostingsCursor> matches = matchingPostings(words, exact, scorer);
+		matches.addAll(phrasePostings(phrases));
+		ScoreTable table = scorer != Scorer.COUNT ? scoreTable(scorer) : null;
+		double[] weights = new double[matches.size()];
+		for(int i = 0; i < weights.length; i++) {
+			weights[i] = table != null ? table.weight(matches.get(i).documents()) : 0;
+		}
+		
+		ScoreAccumulator accumulator = ScoreAccumulator.get(documents.size());
+		try {
+			if(required.isEmpty()) {
+				BitSet skipped = new BitSet();
+				for(PostingsCursor postings: excluded) {
+					while(postings.next()) {
+						skipped.set(postings.document());
+					}
+				}
+				for(int i = 0; i < weights.length; i++) {
+					PostingsCursor postings = matches.get(i);
+					while(postings.next()) {
+						if(!skipped.get(postings.document())) {
+							accumulate(accumulator, postings, weights[i], table);
+						}
+					}
+				}
+			}
+			else {
+				boolean[] done = new boolean[weights.length];
+				PostingsCursor candidates = new ConjunctionCursor(required.toArray(new PostingsCursor[0]));
+				candidates:
+				while(candidates.next()) {
+					int document = candidates.document();
+					for(PostingsCursor postings: excluded) {
+						if(postings.advance(document) && postings.document() == document) {
+							continue candidates;
+						}
+					}
+					for(int i = 0; i < weights.length; i++) {
+						PostingsCursor postings = matches.get(i);
+						if(!done[i]) {
+							done[i] = !postings.advance(document);
+							if(!done[i] && postings.document() == document) {
+								accumulate(accumulator, postings, weights[i], table);
+							}
+						}
+					}
+				}
+			}
+			return collectScores(accumulator, table != null, limit);
+		}
+		finally {
+			accumulator.clear();
+		}
+	}
+	
+	/**
+	 * Adds the matches of the current document of a cursor to the accumulator, with
+	 * the score of its word when there is a scorer.
+	 * @param accumulator the accumulator of the search
+	 * @param postings the cursor on the document
+	 * @param weight the weight of the word of the cursor
+	 * @param table the statistics of the scorer, null to only add the matches
+	 */
+	private static void accumulate(ScoreAccumulator accumulator, PostingsCursor postings, double weight, ScoreTable table) {
+		int document = postings.document();
+		int count = postings.count();
+		if(table == null) {
+			accumulator.add(document, count);
+		}
+		else {
+			accumulator.add(document, count, table.getScorer().score(count, weight, table.norm(document)));
+		}
+	}
+	
+	/**
+	 * Getter method of the statistics of a scorer for this index, they are computed
+	 * the first time the scorer is used and kept until the index changes.
+	 * @param scorer the scorer of the search
+	 * @return the statistics of the scorer
+	 */
+	protected ScoreTable scoreTable(Scorer scorer) {
+		return scoreTables.computeIfAbsent(scorer, key -> new ScoreTable(key, documents));
+	}
+	
+	/**
+	 * Top results search with the MaxScore algorithm. The postings are sorted by the
+	 * highest score their word can give, and once the heap has the limit of results
+	 * the words whose bounds added up can not reach the worst score in it become
+	 * non essential: their documents are never started on, they are only looked up
+	 * with {@link PostingsCursor#advance(int)} for the documents found by the other
+	 * words, and only while the document can still make it to the heap. A document
+	 * that ties the worst score is still scored since the count or the location may
+	 * put it first.
+	 * @param matches the postings of the words of the search
+	 * @param limit the amount of results to return
+	 * @return the best page scores of the search sorted
+	 */
+	private List<PageScore> topSearch(List<PostingsCursor> matches, int limit) {
+		PostingsCursor[] cursors = matches.toArray(new PostingsCursor[0]);
+		Arrays.sort(cursors, Comparator.comparingDouble(PostingsCursor::maxScore));
 		
-		for(String querie: queries) {
-			for(String word: invertedIndex.tailMap(querie).keySet()) { 
-				if(!word.startsWith(querie)) {
+		int size = cursors.length;
+		double[] bounds = new double[size];
+		boolean[] done = new boolean[size];
+		CursorHeap essentials = new CursorHeap(cursors);
+		for(int i = 0; i < size; i++) {
+			bounds[i] = (i > 0 ? bounds[i - 1] : 0) + cursors[i].maxScore();
+			done[i] = !cursors[i].next();
+			if(!done[i]) {
+				essentials.add(i);
+			}
+		}
+		
+		PriorityQueue<PageScore> heap = new PriorityQueue<>(limit + 1, Collections.reverseOrder());
+		double threshold = Double.NEGATIVE_INFINITY;
+		int essential = 0;
+		
+		while(!essentials.isEmpty()) {
+			int document = essentials.document();
+			int count = 0;
+			while(!essentials.isEmpty() && essentials.document() == document) {
+				int i = essentials.top();
+				count += cursors[i].count();
+				done[i] = !essentials.next();
+			}
+			
+			int words = documents.getCount(document);
+			for(int i = essential - 1; i >= 0; i--) {
+				if(below((double) count / words + bounds[i], threshold)) {
 					break;
 				}
-				searchHelper(totalsFiles, pageScores, word);
+				if(!done[i]) {
+					done[i] = !cursors[i].advance(document);
+					if(!done[i] && cursors[i].document() == document) {
+						count += cursors[i].count();
+					}
+				}
+			}
+			
+			double score = (double) count / words;
+			if(heap.size() < limit || !below(score, threshold)) {
+				heap.add(createScore(document, count));
+				if(heap.size() > limit) {
+					heap.poll();
+				}
+				if(heap.size() == limit) {
+					threshold = heap.peek().getScore();
+					int previous = essential;
+					while(essential < size && below(bounds[essential], threshold)) {
+						essential++;
+					}
+					if(essential > previous) {
+						essentials.removeBelow(essential);
+					}
+				}
 			}
 		}
 		
+		List<PageScore> pageScores = new ArrayList<>(heap);
 		Collections.sort(pageScores);
 		return pageScores;
 	}
 	
 	/**
-	 * Method that creates the new page score, add in to the totals files and to the page scores structure the needed methods
-	 * @param totalsFiles data structure to be added the page score
-	 * @param pageScores data structure to be added the page score
-	 * @param word of the search an to find its page score or make it.
+	 * Checks if a bound is under the worst score of the heap, leaving some room for
+	 * the rounding of the bounds being added up in another order than the score.
+	 * @param bound the highest score a document can still get
+	 * @param threshold the worst score of the heap
+	 * @return true if the document can not make it to the heap
+	 */
+	private static boolean below(double bound, double threshold) {
+		return bound < threshold - Math.abs(threshold) * 1e-9;
+	}
+	
+	/**
+	 * Creates the page score of a document with all the matches found for it, used by
+	 * the subclasses that add up the matches of other indexes on their own.
+	 * @param document the id of the location in the document table of this index
+	 * @param count the amount of matches found in the location
+	 * @return the page score with its location looked up
+	 */
+	protected PageScore createScore(int document, int count) {
+		PageScore pageScore = new PageScore(document);
+		pageScore.updateValues(count);
+		pageScore.resolveLocation();
+		return pageScore;
+	}
+	
+	/**
+	 * Creates the page score of a document with the score a scorer gave it.
+	 * @param document the id of the location in the document table of this index
+	 * @param count the amount of matches found in the location
+	 * @param score the score of the location
+	 * @return the page score with its location looked up
+	 */
+	protected PageScore createScore(int document, int count, double score) {
+		PageScore pageScore = new PageScore(document);
+		pageScore.setValues(count, score);
+		pageScore.resolveLocation();
+		return pageScore;
+	}
+	
+	/**
+	 * Getter method of the postings of all the words that match the queries, in the order
+	 * of the queries. An exact search matches the word itself and a partial search every
+	 * word that starts with it.
+	 * @param queries the different queries needed
+	 * @param exact check if its exact or partial
+	 * @return the cursors of every matching word
+	 */
+	protected List<PostingsCursor> matchingPostings(Set<String> queries, boolean exact) {
+		return matchingPostings(queries, exact, Scorer.COUNT);
+	}
+	
+	/**
+	 * Getter method of the postings of all the words that match the queries for a
+	 * search with the scorer given. The merged postings of the prefix cache are only
+	 * used to count matches, the other scorers weigh every word by its own document
+	 * frequency so they always get the cursor of every word.
+	 * @param queries the different queries needed
+	 * @param exact check if its exact or partial
+	 * @param scorer the way the locations are scored
+	 * @return the cursors of every matching word
+	 */
+	protected List<PostingsCursor> matchingPostings(Set<String> queries, boolean exact, Scorer scorer) {
+		List<PostingsCursor> matches = new ArrayList<>();
+		for(String query: queries) {
+			if(exact) {
+				PostingsCursor postings = postings(query);
+				if(postings != null) {
+					matches.add(postings);
+				}
+			}
+			else if(scorer == Scorer.COUNT) {
+				matches.addAll(prefixCache.postings(query, this));
+			}
+			else {
+				matches.addAll(prefixPostings(query));
+			}
+		}
+		return matches;
+	}
+	
+	/**
+	 * Getter method of the cursors of the phrases that can show up in this index,
+	 * the phrases with a word that is not in the index are left out.
+	 * @param phrases the words of every phrase in order
+	 * @return the cursors of the phrases
+	 */
+	protected List<PostingsCursor> phrasePostings(Collection<List<String>> phrases) {
+		List<PostingsCursor> matches = new ArrayList<>();
+		for(List<String> phrase: phrases) {
+			PostingsCursor[] words = new PostingsCursor[phrase.size()];
+			for(int i = 0; i < words.length && (i == 0 || words[i - 1] != null); i++) {
+				words[i] = postings(phrase.get(i));
+			}
+			if(words.length > 0 && words[words.length - 1] != null) {
+				matches.add(new PhraseCursor(words));
+			}
+		}
+		return matches;
+	}
+	
+	/**
+	 * Changes the memory budget of the cache of the merged postings of the prefixes
+	 * that match many words in a partial search.
+	 * @param bytes the most bytes the cache can take, 0 turns it off
+	 */
+	public void setCacheBudget(long bytes) {
+		prefixCache.setBudget(bytes);
+	}
+	
+	/**
+	 * Getter method of a cursor over the postings of a word, the subclasses that
+	 * store the postings in another way override it so the search works the same.
+	 * @param word the word to look for
+	 * @return the cursor or null if there is no such word
+	 */
+	protected PostingsCursor postings(String word) {
+		PostingList postings = invertedIndex.get(word);
+		return postings != null ? documents.live(postings.cursor()) : null;
+	}
+	
+	/**
+	 * Getter method of the cursors over the postings of all the words that start
+	 * with the prefix given, in the order of the words.
+	 * @param prefix the start of the words
+	 * @return the cursors of every word with that prefix
+	 */
+	protected List<PostingsCursor> prefixPostings(String prefix) {
+		List<PostingsCursor> postings = new ArrayList<>();
+		for(var entry: invertedIndex.tailMap(prefix).entrySet()) {
+			if(!entry.getKey().startsWith(prefix)) {
+				break;
+			}
+			postings.add(documents.live(entry.getValue().cursor()));
+		}
+		return postings;
+	}
+	
+	/**
+	 * Getter method of the words that start with the prefix given, in order.
+	 * @param prefix the start of the words
+	 * @return the sorted words with that prefix
 	 */
-	private void searchHelper(HashMap<String, PageScore> totalsFiles, List<PageScore> pageScores, String word) {
-		Set<String> locations = invertedIndex.get(word).keySet();
-		for(String location : locations) {
-			if (!totalsFiles.containsKey(location)) {
-				PageScore pageScore = new PageScore(location);
-				totalsFiles.put(location, pageScore);
-				pageScores.add(pageScore);
+	protected List<String> prefixWords(String prefix) {
+		List<String> words = new ArrayList<>();
+		for(String word: invertedIndex.tailMap(prefix).keySet()) {
+			if(!word.startsWith(prefix)) {
+				break;
 			}
-			totalsFiles.get(location).updateValues(word);
+			words.add(word);
 		}
+		return words;
+	}
+	
+	/**
+	 * Getter method of the posting list of a word that creates it if the word is
+	 * new, used by the subclasses that give the documents their ids on their own.
+	 * @param word the word of the postings
+	 * @return the posting list of the word
+	 */
+	protected PostingList postingList(String word) {
+		return invertedIndex.computeIfAbsent(word, key -> new PostingList());
+	}
+	
+	/**
+	 * Getter method of all the words in order without any locking, used inside
+	 * of the index where the public getter could lock again.
+	 * @return the sorted words of the index
+	 */
+	protected Collection<String> words() {
+		return invertedIndex.keySet();
+	}
+	
+	/**
+	 * The version of the index that a group of searches or a copy should read, so
+	 * they all see the same documents. An index that changes in place is its own
+	 * version, and the ones that publish immutable copies give the latest one.
+	 * @return the index to read from
+	 */
+	public InvertedIndex version() {
+		return this;
+	}
+	
+	/**
+	 * Getter method of the document table of the index
+	 * @return the document table
+	 */
+	protected DocumentTable documents() {
+		return documents;
 	}
 	
 	/**
@@ -197,7 +768,8 @@ public class InvertedIndex {
 	 * @return an integer that positive of the amount of words in this location or a negative number if this location does not exist.
 	 */
 	public int getCount(String location) {
-		return filesCounter.getOrDefault(location, 0);
+		int document = documents.getId(location);
+		return document >= 0 ? documents.getCount(document) : 0;
 	}
 	
 	/**
@@ -206,7 +778,7 @@ public class InvertedIndex {
 	 * @return boolean result of contains key
 	 */
 	public boolean containsLocation(String location) {
-		return filesCounter.containsKey(location);
+		return documents.contains(location);
 	}
 	
 	/**
@@ -214,7 +786,7 @@ public class InvertedIndex {
 	 * @return the keys in a unmodifiable way
 	 */
 	public Set<String> getLocationsFilesCounter() {
-		return Collections.unmodifiableSet(filesCounter.keySet());
+		return documents.getLocations();
 	}
 	
 	
@@ -237,7 +809,15 @@ public class InvertedIndex {
 	 */
 	public int numLocations(String word) {
 		if(this.containsWord(word)) {
-			return invertedIndex.get(word).size();
+			if(documents.numDeleted() == 0) {
+				return invertedIndex.get(word).size();
+			}
+			int locations = 0;
+			PostingsCursor postings = postings(word);
+			while(postings.next()) {
+				locations++;
+			}
+			return locations;
 		}
 		return -1;
 	}
@@ -250,8 +830,9 @@ public class InvertedIndex {
 	 * @return amount of indexes in the file of this word
 	 */
 	public int numPositions(String word, String location) {
-		if(containsLocation(word, location)) {
-			return invertedIndex.get(word).get(location).size();
+		PositionList positions = findPositions(word, location);
+		if(positions != null) {
+			return positions.size();
 		}
 		return -1;
 	}
@@ -273,10 +854,7 @@ public class InvertedIndex {
 	 * @return true if the locations is contained inside of the word of the invertedIndex else false.
 	 */
 	public boolean containsLocation(String word, String location) {
-		if(containsWord(word)) {
-			return invertedIndex.get(word).containsKey(location);
-		}
-		return false;
+		return findPositions(word, location) != null;
 	}
 	
 	/**
@@ -288,8 +866,9 @@ public class InvertedIndex {
 	 * @return true if the position exist false otherwise.
 	 */
 	public boolean containsPosition(String word, String location, int position) {
-		if(containsLocation(word, location)) {
-			return invertedIndex.get(word).get(location).contains(position);
+		PositionList positions = findPositions(word, location);
+		if(positions != null) {
+			return positions.containsPosition(position);
 		}
 		return false;
 	}
@@ -308,11 +887,16 @@ public class InvertedIndex {
 	 * Getter method of all the keys of the locations in the inverted index.
 	 * 
 	 * @param word of the keySet of locations needed.
-	 * @return the keySet of all the locations of this word or null if there is no such word.
+	 * @return the sorted set of all the locations of this word or null if there is no such word.
 	 */
 	public Set<String> getLocations(String word) {
-		if(containsWord(word)) {
-			return invertedIndex.get(word).keySet();
+		PostingsCursor postings = postings(word);
+		if(postings != null) {
+			TreeSet<String> locations = new TreeSet<>();
+			while(postings.next()) {
+				locations.add(documents.getLocation(postings.document()));
+			}
+			return locations;
 		}
 		return null;
 	}
@@ -325,12 +909,38 @@ public class InvertedIndex {
 	 * @return the set of all the positions.
 	 */
 	public Set<Integer> getPositions(String word, String location) {
-		if(containsLocation(word, location)) {
-			return invertedIndex.get(word).get(location);
+		return findPositions(word, location);
+	}
+	
+	/**
+	 * Looks up the positions of a word in a location through the document table.
+	 * 
+	 * @param word the word to look for
+	 * @param location the location to look for
+	 * @return the positions or null if the word is not in this location
+	 */
+	protected PositionList findPositions(String word, String location) {
+		PostingList postings = invertedIndex.get(word);
+		if(postings != null) {
+			int document = documents.getId(location);
+			if(document >= 0) {
+				return postings.get(document);
+			}
 		}
 		return null;
 	}
 	
+	/**
+	 * Drops everything that was computed from the postings, called whenever the
+	 * index changes, also by the subclasses that change their postings on their own.
+	 */
+	protected void changed() {
+		prefixCache.clear();
+		if(!scoreTables.isEmpty()) {
+			scoreTables.clear();
+		}
+	}
+	
 	/**
 	 * Add method of position.
 	 * 
@@ -340,12 +950,12 @@ public class InvertedIndex {
 	 * @return true if added
 	 */
 	public boolean addPosition(String word, String location, int count) {
-		int current = filesCounter.getOrDefault(location, 0);
-		filesCounter.put(location, Math.max(current, count));
+		changed();
+		int document = documents.add(location);
+		documents.updateCount(document, count);
 		
-		invertedIndex.putIfAbsent(word, new TreeMap<String, TreeSet<Integer>>());
-		invertedIndex.get(word).putIfAbsent(location, new TreeSet<Integer>());	
-		return invertedIndex.get(word).get(location).add(count);
+		invertedIndex.putIfAbsent(word, new PostingList());
+		return invertedIndex.get(word).getOrAdd(document).addPosition(count);
 	}
 	
 	@Override
@@ -353,7 +963,28 @@ public class InvertedIndex {
 	 * Method toString that give you the string of the inverted index.
 	 */
 	public String toString() {
-		return invertedIndex.toString();
+		return toLocationMap().toString();
+	}
+	
+	/**
+	 * Creates the nested map of words, locations and positions with the location
+	 * strings resolved from the document table, only used for output.
+	 * 
+	 * @return the sorted nested map of the index
+	 */
+	private TreeMap<String, TreeMap<String, PositionList>> toLocationMap() {
+		TreeMap<String, TreeMap<String, PositionList>> map = new TreeMap<>();
+		for(String word: words()) {
+			PostingsCursor postings = postings(word);
+			TreeMap<String, PositionList> locations = new TreeMap<>();
+			while(postings.next()) {
+				locations.put(documents.getLocation(postings.document()), postings.positions());
+			}
+			if(!locations.isEmpty()) {
+				map.put(word, locations);
+			}
+		}
+		return map;
 	}
 	
 	/**
@@ -363,7 +994,7 @@ public class InvertedIndex {
 	 * @throws IOException writing in a file can give you a exception
 	 */
 	public void toJSON(Path path) throws IOException {
-		PrettyJsonWriter.writeSuperNestedArrays(invertedIndex, path);
+		PrettyJsonWriter.writeSuperNestedArrays(toLocationMap(), path);
 	}
 	
 	/**
@@ -373,37 +1004,227 @@ public class InvertedIndex {
 	 * @throws IOException writing in a file can give you a exception
 	 */
 	public void countToJSON(Path output) throws IOException {
-		PrettyJsonWriter.writeObject(filesCounter, output);
+		PrettyJsonWriter.writeObject(documents.toMap(), output);
 	}
 	
 	/**
-	 * The copying of one inverted index to the other
+	 * The copying of one inverted index to the other, the locations of the other
+	 * index are given ids in this document table before merging the postings. It
+	 * copies the {@link #version()} of the other index.
 	 * @param other inverted index to be written too
 	 */
 	public void addAll(InvertedIndex other) {
-		for (var wordsEntry: other.invertedIndex.entrySet()) {
-			String word = wordsEntry.getKey();
-			TreeMap<String, TreeSet<Integer>> locations = wordsEntry.getValue();
+		changed();
+		InvertedIndex source = other.version();
+		int[] ids = new int[source.documents.size()];
+		for (int document = 0; document < ids.length; document++) {
+			if (!source.documents.isDeleted(document)) {
+				ids[document] = this.documents.add(source.documents.getLocation(document));
+				this.documents.updateCount(ids[document], source.documents.getCount(document));
+			}
+		}
+		
+		for (String word: source.words()) {
+			PostingsCursor others = source.postings(word);
+			PostingList postings = this.invertedIndex.get(word);
 			
-			if (this.invertedIndex.containsKey(word)) {
-				for(var positionEntry: locations.entrySet()) {
-					String position = positionEntry.getKey();
-					TreeSet<Integer> positions = positionEntry.getValue();
-					if(this.invertedIndex.get(word).containsKey(position)) {
-						this.invertedIndex.get(word).get(position).addAll(positions);
-					}else {
-						invertedIndex.get(word).put(position, positions);
-					}
+			while (others.next()) {
+				if (postings == null) {
+					postings = new PostingList();
+					this.invertedIndex.put(word, postings);
 				}
+				postings.add(ids[others.document()], others.positions());
 			}
-			else {
-				this.invertedIndex.put(word, locations);
+		}
+	}
+	
+	/**
+	 * Moves the postings of another index into this one instead of copying them,
+	 * used to put together the local indexes of a build. The words that are only
+	 * in the other index keep its posting lists with the ids changed in place, and
+	 * the rest are added to the end of the lists of this index. The other index is
+	 * left without words, and neither index can be used by other threads meanwhile.
+	 * @param other the index to move, only a plain {@link InvertedIndex}
+	 */
+	protected void absorb(InvertedIndex other) {
+		changed();
+		other.changed();
+		int[] ids = new int[other.documents.size()];
+		boolean ordered = true;
+		int last = -1;
+		for (int document = 0; document < ids.length; document++) {
+			if (other.documents.isDeleted(document)) {
+				ids[document] = -1;
+				continue;
 			}
+			ids[document] = this.documents.add(other.documents.getLocation(document));
+			this.documents.updateCount(ids[document], other.documents.getCount(document));
+			ordered &= ids[document] > last;
+			last = ids[document];
 		}
 		
-		for (var countsEntry : other.filesCounter.entrySet()) {
-			int current = this.filesCounter.getOrDefault(countsEntry.getKey(), 0);
-			this.filesCounter.put(countsEntry.getKey(), Math.max(current, countsEntry.getValue()));
+		for (var entry: other.invertedIndex.entrySet()) {
+			PostingList postings = this.invertedIndex.get(entry.getKey());
+			if (postings == null && ordered) {
+				// the new ids keep the order of the old ones, so the list can be reused as it is
+				if (entry.getValue().compact(ids) > 0) {
+					this.invertedIndex.put(entry.getKey(), entry.getValue());
+				}
+				continue;
+			}
+			
+			PostingsCursor others = other.documents.live(entry.getValue().cursor());
+			while (others.next()) {
+				if (postings == null) {
+					postings = new PostingList();
+					this.invertedIndex.put(entry.getKey(), postings);
+				}
+				postings.add(ids[others.document()], others.positions());
+			}
+		}
+		other.invertedIndex.clear();
+	}
+	
+	/**
+	 * Removes a location from the index. The postings of the location stay where
+	 * they are as tombstones, the searches and the getters skip them with a bit set
+	 * of the removed ids, and {@link #purge()} takes them out. Until then the words
+	 * that were only in removed locations are still counted by {@link #numWords()}
+	 * and the scorers count the removed locations in the documents of every word.
+	 * @param location the location to remove
+	 * @return true if the location was in the index
+	 */
+	public boolean removeLocation(String location) {
+		changed();
+		return documents.delete(location) >= 0;
+	}
+	
+	/**
+	 * Replaces everything the index had for a location with the postings of another
+	 * index, used when a file changes or a page is crawled again. The location gets
+	 * a new id, so its old positions and word count are not mixed with the new ones.
+	 * @param location the location to replace
+	 * @param other the index with the new postings of the location
+	 */
+	public void replaceLocation(String location, InvertedIndex other) {
+		removeLocation(location);
+		addAll(other);
+	}
+	
+	/**
+	 * The amount of locations removed whose postings were not purged yet
+	 * @return the amount of tombstones
+	 */
+	public int numRemoved() {
+		return documents.numDeleted();
+	}
+	
+	/**
+	 * Takes the postings of the removed locations out of the index, giving the
+	 * locations left new ids in the same order so every posting list only has to
+	 * be rewritten once. The words left without locations are removed.
+	 */
+	public void purge() {
+		if(documents.numDeleted() == 0) {
+			return;
+		}
+		changed();
+		compact(documents.compact());
+	}
+	
+	/**
+	 * Rewrites every posting list with the new ids of the documents after the
+	 * document table was compacted.
+	 * @param remap the new id of every old id, -1 for the removed ones
+	 */
+	protected void compact(int[] remap) {
+		invertedIndex.values().removeIf(postings -> postings.compact(remap) == 0);
+	}
+	
+	/**
+	 * Creates the read only version of this index. It copies the postings into
+	 * a compact form that does not need a lock to be searched, so it should be
+	 * called once the index is done being built. The removed locations are left out.
+	 * @return the frozen copy of this index
+	 */
+	public FrozenInvertedIndex freeze() {
+		return freeze(false);
+	}
+	
+	/**
+	 * Creates the read only version of this index, keeping its postings and
+	 * documents outside of the heap if asked to. The off heap version is a bit
+	 * slower to read, but the garbage collector never has to go through it.
+	 * @param offHeap true to keep the postings and the documents in direct buffers
+	 * @return the frozen copy of this index
+	 */
+	public FrozenInvertedIndex freeze(boolean offHeap) {
+		if(documents.numDeleted() > 0) {
+			InvertedIndex live = new InvertedIndex();
+			live.addAll(this);
+			return live.freeze(offHeap);
+		}
+		DocumentTable copy = offHeap ? new OffHeapDocumentTable(documents) : new DocumentTable(documents);
+		return new FrozenInvertedIndex(this, copy, offHeap);
+	}
+	
+	/**
+	 * Counts the size and the shape of the index: its words, documents, postings
+	 * and positions, the lengths of its posting lists and about how many bytes
+	 * every part takes. It goes once through the documents of every word without
+	 * reading their positions, so it is cheap enough to call now and then while
+	 * the index is being built.
+	 * @return the statistics of the index
+	 */
+	public IndexStats stats() {
+		IndexStats stats = new IndexStats(documents.size() - documents.numDeleted());
+		countWords(stats);
+		estimateBytes(stats);
+		return stats;
+	}
+	
+	/**
+	 * Adds the amount of documents and positions of every word to the statistics.
+	 * @param stats the statistics to add the words to
+	 */
+	protected void countWords(IndexStats stats) {
+		for(String word: words()) {
+			PostingsCursor postings = postings(word);
+			if(postings != null) {
+				int count = 0;
+				long positions = 0;
+				while(postings.next()) {
+					count++;
+					positions += postings.count();
+				}
+				stats.addWord(word, count, positions);
+			}
+		}
+	}
+	
+	/**
+	 * Adds the estimated bytes of every part of the index to the statistics,
+	 * the subclasses made of other indexes add up the bytes of their parts.
+	 * @param stats the statistics to add the bytes to
+	 */
+	protected void estimateBytes(IndexStats stats) {
+		stats.addBytes("documents", documents.bytes(), documents.isOffHeap());
+		estimatePostingsBytes(stats);
+	}
+	
+	/**
+	 * Adds the estimated bytes of the words and the postings of the index to the
+	 * statistics, without the document table.
+	 * @param stats the statistics to add the bytes to
+	 */
+	protected void estimatePostingsBytes(IndexStats stats) {
+		long terms = IndexStats.align(IndexStats.OBJECT + 4 * IndexStats.REFERENCE + 2 * Integer.BYTES);
+		long postings = 0;
+		for(var entry: invertedIndex.entrySet()) {
+			terms += IndexStats.TREE_ENTRY + IndexStats.string(entry.getKey());
+			postings += entry.getValue().bytes();
 		}
+		stats.addBytes("terms", terms, false);
+		stats.addBytes("postings", postings, false);
 	}
 }
@@ -25,15 +25,16 @@ public class InvertedIndexBuilder {
 	 * @throws IOException adding a file can made me send a no file exception
 	 */
 	public static void build(Path input, InvertedIndex invertedIndex) throws IOException {
+		TermPool pool = new TermPool();
 		if (Files.isDirectory(input)) {
 			HashSet<Path> hashSet = DirectoryTraverser.getAllTextFiles(input);
 			
 			for(Path path: hashSet) {
-				InvertedIndexBuilder.addFile(invertedIndex, path);
+				InvertedIndexBuilder.addFile(invertedIndex, path, pool);
 			}
 		}
 		else {
-			InvertedIndexBuilder.addFile(invertedIndex, input);
+			InvertedIndexBuilder.addFile(invertedIndex, input, pool);
 		}
 	}
 
@@ -47,6 +48,19 @@ public class InvertedIndexBuilder {
 	 * @throws IOException file can throw exceptions
 	 */
 	public static void addFile(InvertedIndex invertedIndex, Path input) throws IOException {
+		addFile(invertedIndex, input, new TermPool());
+	}
+	
+	/**
+	 * Method that adds all the list of words into the invertedIndex using
+	 * the stems of the pool, so the same stem is the same string everywhere.
+	 * 
+	 * @param invertedIndex add all the list words to the data structure
+	 * @param input the inputFiles that need to be the key of the words
+	 * @param pool the pool of stems of the build
+	 * @throws IOException file can throw exceptions
+	 */
+	public static void addFile(InvertedIndex invertedIndex, Path input, TermPool pool) throws IOException {
 		int counter = 1;
 		String location = input.toString();
 		
@@ -56,7 +70,7 @@ public class InvertedIndexBuilder {
 			while((line = buffer.readLine()) != null) {
 				String[] cleanedAndSplitText = WordCleaner.parse(line);
 				for(String word: cleanedAndSplitText) {
-					String stemed = stemmer.stem(word).toString();
+					String stemed = pool.stem(word, stemmer);
 					invertedIndex.addPosition(stemed, location, counter++);
 				}
 			}
@@ -0,0 +1,311 @@
+package edu.usfca.cs272;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What a {@link ReadWriteLock} made with instrumentation went through: how long
+ * the readers and the writers waited for it and held it, the most readers that
+ * held it at the same time, and how many times a thread waited longer than
+ * {@link #STARVATION_NANOS}, which is counted as starving. The times are kept in
+ * histograms with one bucket for every power of two of nanoseconds, so
+ * recording a time is only a few additions.
+ *
+ * <p>
+ * The lock records into its own statistics while holding its monitor and gives
+ * copies out with {@link ReadWriteLock#stats()}, so a copy does not change.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class LockStats {
+
+	/** The wait after which a thread is counted as starving, 100 milliseconds */
+	public static final long STARVATION_NANOS = 100_000_000L;
+
+	/** the time the readers waited for the lock */
+	private final Histogram readWait;
+
+	/** the time the readers held the lock */
+	private final Histogram readHold;
+
+	/** the time the writers waited for the lock */
+	private final Histogram writeWait;
+
+	/** the time the writers held the lock */
+	private final Histogram writeHold;
+
+	/** the most readers that held the lock at the same time */
+	private int peakReaders;
+
+	/** the amount of readers that waited longer than the starvation time */
+	private long readerStarvations;
+
+	/** the amount of writers that waited longer than the starvation time */
+	private long writerStarvations;
+
+	/**
+	 * Constructor of empty statistics
+	 */
+	public LockStats() {
+		this.readWait = new Histogram();
+		this.readHold = new Histogram();
+		this.writeWait = new Histogram();
+		this.writeHold = new Histogram();
+	}
+
+	/**
+	 * Constructor of a copy of other statistics
+	 *
+	 * @param other the statistics to copy
+	 */
+	public LockStats(LockStats other) {
+		this.readWait = new Histogram(other.readWait);
+		this.readHold = new Histogram(other.readHold);
+		this.writeWait = new Histogram(other.writeWait);
+		this.writeHold = new Histogram(other.writeHold);
+		this.peakReaders = other.peakReaders;
+		this.readerStarvations = other.readerStarvations;
+		this.writerStarvations = other.writerStarvations;
+	}
+
+	/**
+	 * Records the wait of a reader that got the lock.
+	 *
+	 * @param nanos the time it waited
+	 * @param readers the amount of readers with it
+	 */
+	void readAcquired(long nanos, int readers) {
+		readWait.record(nanos);
+		peakReaders = Math.max(peakReaders, readers);
+		if (nanos > STARVATION_NANOS) {
+			readerStarvations++;
+		}
+	}
+
+	/**
+	 * Records the time a reader held the lock.
+	 *
+	 * @param nanos the time it held the lock
+	 */
+	void readReleased(long nanos) {
+		readHold.record(nanos);
+	}
+
+	/**
+	 * Records the wait of a writer that got the lock.
+	 *
+	 * @param nanos the time it waited
+	 */
+	void writeAcquired(long nanos) {
+		writeWait.record(nanos);
+		if (nanos > STARVATION_NANOS) {
+			writerStarvations++;
+		}
+	}
+
+	/**
+	 * Records the time a writer held the lock.
+	 *
+	 * @param nanos the time it held the lock
+	 */
+	void writeReleased(long nanos) {
+		writeHold.record(nanos);
+	}
+
+	/**
+	 * Getter method of the waits of the readers
+	 *
+	 * @return the histogram of the time the readers waited
+	 */
+	public Histogram getReadWait() {
+		return readWait;
+	}
+
+	/**
+	 * Getter method of the holds of the readers
+	 *
+	 * @return the histogram of the time the readers held the lock
+	 */
+	public Histogram getReadHold() {
+		return readHold;
+	}
+
+	/**
+	 * Getter method of the waits of the writers
+	 *
+	 * @return the histogram of the time the writers waited
+	 */
+	public Histogram getWriteWait() {
+		return writeWait;
+	}
+
+	/**
+	 * Getter method of the holds of the writers
+	 *
+	 * @return the histogram of the time the writers held the lock
+	 */
+	public Histogram getWriteHold() {
+		return writeHold;
+	}
+
+	/**
+	 * Getter method of the most readers at the same time
+	 *
+	 * @return the peak amount of readers
+	 */
+	public int getPeakReaders() {
+		return peakReaders;
+	}
+
+	/**
+	 * Getter method of the readers that starved
+	 *
+	 * @return the amount of readers that waited longer than the starvation time
+	 */
+	public long getReaderStarvations() {
+		return readerStarvations;
+	}
+
+	/**
+	 * Getter method of the writers that starved
+	 *
+	 * @return the amount of writers that waited longer than the starvation time
+	 */
+	public long getWriterStarvations() {
+		return writerStarvations;
+	}
+
+	@Override
+	public String toString() {
+		return "read wait " + readWait + ", read hold " + readHold + ", write wait " + writeWait + ", write hold "
+				+ writeHold + ", peak readers " + peakReaders + ", starved readers " + readerStarvations
+				+ ", starved writers " + writerStarvations;
+	}
+
+	/**
+	 * Histogram of times in nanoseconds with one bucket for every power of two.
+	 */
+	public static class Histogram {
+
+		/** the amount of times in every bucket, bucket i has the times below 2 to the i */
+		private final long[] buckets;
+
+		/** the amount of times recorded */
+		private long count;
+
+		/** all the times added up */
+		private long total;
+
+		/** the longest time recorded */
+		private long max;
+
+		/**
+		 * Constructor of an empty histogram
+		 */
+		public Histogram() {
+			this.buckets = new long[Long.SIZE];
+		}
+
+		/**
+		 * Constructor of a copy of another histogram
+		 *
+		 * @param other the histogram to copy
+		 */
+		public Histogram(Histogram other) {
+			this.buckets = other.buckets.clone();
+			this.count = other.count;
+			this.total = other.total;
+			this.max = other.max;
+		}
+
+		/**
+		 * Records a time.
+		 *
+		 * @param nanos the time in nanoseconds
+		 */
+		public void record(long nanos) {
+			nanos = Math.max(nanos, 0);
+			buckets[Long.SIZE - Long.numberOfLeadingZeros(nanos)]++;
+			count++;
+			total += nanos;
+			max = Math.max(max, nanos);
+		}
+
+		/**
+		 * Getter method of the amount of times
+		 *
+		 * @return the amount of times recorded
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Getter method of the total time
+		 *
+		 * @return all the times added up in nanoseconds
+		 */
+		public long getTotal() {
+			return total;
+		}
+
+		/**
+		 * Getter method of the longest time
+		 *
+		 * @return the longest time in nanoseconds
+		 */
+		public long getMax() {
+			return max;
+		}
+
+		/**
+		 * The average time
+		 *
+		 * @return the average in nanoseconds, zero if nothing was recorded
+		 */
+		public double mean() {
+			return count == 0 ? 0 : (double) total / count;
+		}
+
+		/**
+		 * The time below which the fraction given of the times are, rounded up to
+		 * the end of its bucket so it is never lower than the real one.
+		 *
+		 * @param fraction the fraction of the times, like 0.99
+		 * @return the time in nanoseconds, zero if nothing was recorded
+		 */
+		public long percentile(double fraction) {
+			long needed = (long) Math.ceil(Math.min(Math.max(fraction, 0), 1) * count);
+			long seen = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				seen += buckets[i];
+				if (seen >= needed && seen > 0) {
+					return Math.min(i == Long.SIZE - 1 ? Long.MAX_VALUE : (1L << i) - 1, max);
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * The amount of times in every bucket that has any, by the upper bound of the bucket
+		 *
+		 * @return the amount of times below every power of two of nanoseconds
+		 */
+		public Map<String, Long> getBuckets() {
+			LinkedHashMap<String, Long> map = new LinkedHashMap<>();
+			for (int i = 0; i < buckets.length; i++) {
+				if (buckets[i] > 0) {
+					map.put("< " + (i == Long.SIZE - 1 ? Long.MAX_VALUE : 1L << i) + " ns", buckets[i]);
+				}
+			}
+			return map;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("[count %d, mean %.0f ns, p50 %d ns, p99 %d ns, max %d ns]", count, mean(),
+					percentile(0.5), percentile(0.99), max);
+		}
+	}
+}
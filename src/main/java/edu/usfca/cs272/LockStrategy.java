@@ -0,0 +1,63 @@
+package edu.usfca.cs272;
+
+import edu.usfca.cs272.ReadWriteLock.SimpleLock;
+
+/**
+ * The way a thread safe index locks its data. Every strategy has a read lock
+ * that many threads can hold at once and a write lock that only one can, and a
+ * thread that holds the write lock can take any of the two again.
+ *
+ * <p>
+ * A new lock is made for every index, so {@link #forName(String)} gives a new
+ * strategy every time it is called.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public interface LockStrategy {
+
+	/**
+	 * Returns the read lock.
+	 *
+	 * @return the read lock
+	 */
+	public SimpleLock read();
+
+	/**
+	 * Returns the write lock.
+	 *
+	 * @return the write lock
+	 */
+	public SimpleLock write();
+
+	/**
+	 * Returns what the lock went through, for the strategies that keep it.
+	 *
+	 * @return a copy of the statistics up to now, or null if the lock does not keep any
+	 */
+	public default LockStats stats() {
+		return null;
+	}
+
+	/**
+	 * Makes one of the strategies by its name, used by the command line.
+	 *
+	 * @param name simple, writer, fifo, reentrant or stamped in any case, the
+	 *   first three are a {@link ReadWriteLock} with each {@link ReadWriteLock.Policy},
+	 *   and they are instrumented with -stats at the end, like fifo-stats
+	 * @return a new strategy or null if there is no strategy with that name
+	 */
+	public static LockStrategy forName(String name) {
+		return switch (name.toLowerCase()) {
+			case "simple" -> new ReadWriteLock();
+			case "writer" -> new ReadWriteLock(ReadWriteLock.Policy.WRITER_PREFERENCE);
+			case "fifo" -> new ReadWriteLock(ReadWriteLock.Policy.FIFO);
+			case "simple-stats" -> new ReadWriteLock(ReadWriteLock.Policy.READER_PREFERENCE, true);
+			case "writer-stats" -> new ReadWriteLock(ReadWriteLock.Policy.WRITER_PREFERENCE, true);
+			case "fifo-stats" -> new ReadWriteLock(ReadWriteLock.Policy.FIFO, true);
+			case "reentrant" -> new ReentrantLockStrategy();
+			case "stamped" -> new StampedLockStrategy();
+			default -> null;
+		};
+	}
+}
@@ -3,7 +3,11 @@ package edu.usfca.cs272;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -21,27 +25,124 @@ public class MultithreadedInvertedIndexBuilder{
 	 * Method that creates the inverted index data structure by adding task to a newly made workQueue
 	 * this task are basically finding the words in a file and adding them to the inverted index
 	 * @param input the path to read all files existing in this trajectory or file.
-	 * @param invertedIndex the invertedIndex being build.
+	 * @param invertedIndex the invertedIndex being build, it has to be safe to add to from many threads.
 	 * @param threads the amount of threads the worker needs.
 	 * @throws IOException reading a file can throw exceptions.
 	 */
-	public static void build(Path input, ThreadSafeInvertedIndex invertedIndex, int threads) throws IOException {
-		WorkQueue workQueue = new WorkQueue(threads);
+	public static void build(Path input, InvertedIndex invertedIndex, int threads) throws IOException {
+		// the files are big tasks, so the traversal waits for room instead of reading one itself
+		WorkQueue workQueue = new WorkQueue(threads, WorkQueue.DEFAULT_CAPACITY, WorkQueue.Policy.BLOCK);
+		// one pool for all the tasks so the local indexes and the shared one use the same strings
+		TermPool pool = new TermPool();
 		try {
 			if (Files.isDirectory(input)) {
 				HashSet<Path> hashSet = DirectoryTraverser.getAllTextFiles(input);
 				for(Path path: hashSet) {
-					workQueue.execute(new Task(path, invertedIndex));
+					workQueue.execute(new Task(path, invertedIndex, pool));
 				}
 			}
 			else {
-				workQueue.execute(new Task(input, invertedIndex));
+				workQueue.execute(new Task(input, invertedIndex, pool));
 			}
 		}finally {
 			workQueue.join();
 		}
 	}
 	
+	/**
+	 * Method that creates the inverted index without sharing it while it is built.
+	 * The files are split in half until there is one file for every task of a fork
+	 * join pool, every file is read into its own local index, and the local indexes
+	 * are merged two at a time on the way back up, so the merges run in parallel
+	 * too instead of one by one under the lock of the shared index. Only the last
+	 * index is moved into the shared one.
+	 * @param input the path to read all files existing in this trajectory or file.
+	 * @param invertedIndex the invertedIndex being build.
+	 * @param threads the amount of threads of the pool.
+	 * @throws IOException reading a file can throw exceptions.
+	 */
+	public static void buildReduced(Path input, InvertedIndex invertedIndex, int threads) throws IOException {
+		List<Path> files = new ArrayList<>();
+		if (Files.isDirectory(input)) {
+			files.addAll(DirectoryTraverser.getAllTextFiles(input));
+		}
+		else {
+			files.add(input);
+		}
+		if (files.isEmpty()) {
+			return;
+		}
+		
+		ForkJoinPool pool = new ForkJoinPool(Math.max(threads, 1));
+		try {
+			InvertedIndex reduced = pool.invoke(new ReduceTask(files, 0, files.size(), new TermPool()));
+			log.debug("Reduced {} files into {} words", files.size(), reduced.numWords());
+			invertedIndex.absorb(reduced);
+		}finally {
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * The task of the fork join pool that builds the local index of a range of files
+	 * @author Santiago Jaramillo
+	 *
+	 */
+	private static class ReduceTask extends RecursiveTask<InvertedIndex> {
+		
+		/**The version of the class, the tasks are never serialized*/
+		private static final long serialVersionUID = 1L;
+		
+		/**The files of the build*/
+		private final List<Path> files;
+		/**The first file of the range*/
+		private final int from;
+		/**The file after the last one of the range*/
+		private final int to;
+		/**The pool of stems shared by the tasks*/
+		private final TermPool pool;
+		
+		/**
+		 * The task for a range of files
+		 * @param files the files of the build
+		 * @param from the first file of the range
+		 * @param to the file after the last one of the range
+		 * @param pool the pool of stems shared by the tasks
+		 */
+		public ReduceTask(List<Path> files, int from, int to, TermPool pool) {
+			this.files = files;
+			this.from = from;
+			this.to = to;
+			this.pool = pool;
+		}
+		
+		@Override
+		protected InvertedIndex compute() {
+			if (to - from == 1) {
+				InvertedIndex localIndex = new InvertedIndex();
+				try {
+					InvertedIndexBuilder.addFile(localIndex, files.get(from), pool);
+				} catch (IOException e) {
+					System.out.println("error found" + e);
+				}
+				return localIndex;
+			}
+			
+			int middle = (from + to) >>> 1;
+			ReduceTask left = new ReduceTask(files, from, middle, pool);
+			left.fork();
+			InvertedIndex second = new ReduceTask(files, middle, to, pool).compute();
+			InvertedIndex first = left.join();
+			// the smaller index is the one moved, so its lists are the ones walked
+			if (first.numWords() < second.numWords()) {
+				second.absorb(first);
+				return second;
+			}
+			first.absorb(second);
+			return first;
+		}
+	}
+	
 	/**
 	 * The task for the work queue
 	 * @author Santiago Jaramillo
@@ -52,16 +153,20 @@ public class MultithreadedInvertedIndexBuilder{
 		/**The file to be reading from*/
 		private final Path file; 
 		/**The inverted to write to*/
-		private final ThreadSafeInvertedIndex invertedIndex;
+		private final InvertedIndex invertedIndex;
+		/**The pool of stems shared by the tasks*/
+		private final TermPool pool;
 		
 		/**
 		 * The task at hand
 		 * @param file to write to
 		 * @param invertedIndex invert index to save
+		 * @param pool the pool of stems shared by the tasks
 		 */
-		public Task(Path file, ThreadSafeInvertedIndex invertedIndex) {
+		public Task(Path file, InvertedIndex invertedIndex, TermPool pool) {
 			this.file = file;
 			this.invertedIndex = invertedIndex;
+			this.pool = pool;
 		}
 		
 		@Override
@@ -69,7 +174,7 @@ public class MultithreadedInvertedIndexBuilder{
 			log.debug("Got into a run");
 			InvertedIndex localIndex = new InvertedIndex();
 			try {
-				InvertedIndexBuilder.addFile(localIndex, file);
+				InvertedIndexBuilder.addFile(localIndex, file, pool);
 			} catch (IOException e) {
 				System.out.println("error found" + e);
 			}
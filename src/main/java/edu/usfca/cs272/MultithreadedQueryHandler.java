@@ -9,7 +9,6 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.TreeSet;
 import edu.usfca.cs272.InvertedIndex.PageScore;
 
 /**
@@ -25,17 +24,31 @@ public class MultithreadedQueryHandler implements QueryHandlerInterface{
 	/** data structure that holds the page scores and the querie line for output*/
 	private final Map<String, Collection<PageScore>> searchResults;
 
-	/** the inverted Index needed to json */
-	private final ThreadSafeInvertedIndex invertedIndex;
+	/** the inverted Index needed to json, it has to be safe to search from many threads */
+	private final InvertedIndex invertedIndex;
+
+	/** the way the results are scored */
+	private final Scorer scorer;
 
 	/**
 	 * Same as the other but with a work queue
-	 * @param invertedIndex for the search
+	 * @param invertedIndex for the search, either a thread safe or a frozen index
+	 * @param threads for the task
+	 */
+	public MultithreadedQueryHandler(InvertedIndex invertedIndex, int threads) {
+		this(invertedIndex, threads, Scorer.COUNT);
+	}
+
+	/**
+	 * Same as the other but with a work queue and the scorer given
+	 * @param invertedIndex for the search, either a thread safe or a frozen index
 	 * @param threads for the task
+	 * @param scorer the way the results are scored
 	 */
-	public MultithreadedQueryHandler(ThreadSafeInvertedIndex invertedIndex, int threads) {
+	public MultithreadedQueryHandler(InvertedIndex invertedIndex, int threads, Scorer scorer) {
 		this.invertedIndex = invertedIndex;
 		this.threads = threads;
+		this.scorer = scorer;
 		this.searchResults = new TreeMap<>();
 	}
 
@@ -45,14 +58,18 @@ public class MultithreadedQueryHandler implements QueryHandlerInterface{
 	 * very similar to the regular query handler parse query file.
 	 * @param input the files to read to get the information from
 	 * @param exact checks if it's going to need an exact search or a partial
+	 * @param limit the amount of results to keep for every query, zero or less keeps all
 	 * @throws IOException reading a file can throw exceptions.
 	 */
-	public void parseQueryFile(Path input, boolean exact) throws IOException {
-		WorkQueue workQueue = new WorkQueue(threads);
+	public void parseQueryFile(Path input, boolean exact, int limit) throws IOException {
+		// the reader runs a search itself when the queue is full, so the lines are not all read into tasks at once
+		WorkQueue workQueue = new WorkQueue(threads, WorkQueue.DEFAULT_CAPACITY, WorkQueue.Policy.CALLER_RUNS);
+		// every query of the file searches the same version of the index
+		InvertedIndex version = invertedIndex.version();
 		try(BufferedReader bufferReader = Files.newBufferedReader(input)) {
 			String line;
 			while((line = bufferReader.readLine()) != null) {
-				workQueue.execute(new Task(line, exact));
+				workQueue.execute(new Task(line, exact, limit, version));
 			}
 		}finally {
 			workQueue.join(); 
@@ -62,23 +79,35 @@ public class MultithreadedQueryHandler implements QueryHandlerInterface{
 	
 	@Override
 	/**
-	 * Method that parses the queries with unique stems of word cleaner, it creates a string version 
-	 * and it adds it to the search results data structure. 
+	 * Method that parses the queries with unique stems of word cleaner and the phrases in quotes,
+	 * it creates a string version and it adds it to the search results data structure. 
 	 * @param input the line needed to be parsed
 	 * @param exact if we are going to do a partial or exact search
+	 * @param limit the amount of results to keep, zero or less keeps all
 	 * @throws IOException reading a file can sometimes throw.
 	 */
-	public void parseQueryLine(String input, boolean exact) throws IOException {
-		TreeSet<String> stems = WordCleaner.uniqueStems(input);
-		if(!stems.isEmpty()) {
-			String strQuery = String.join(" ", stems);
+	public void parseQueryLine(String input, boolean exact, int limit) throws IOException {
+		parseQueryLine(input, exact, limit, invertedIndex.version());
+	}
+	
+	/**
+	 * Parses the query line and searches the version of the index given.
+	 * @param input the line needed to be parsed
+	 * @param exact if we are going to do a partial or exact search
+	 * @param limit the amount of results to keep, zero or less keeps all
+	 * @param version the version of the index to search
+	 */
+	private void parseQueryLine(String input, boolean exact, int limit, InvertedIndex version) {
+		Query query = new Query(input);
+		if(!query.isEmpty()) {
+			String strQuery = query.toString();
 			
 			synchronized(searchResults) {
 				if(searchResults.containsKey(strQuery)) {
 					return;
 				}
 			}
-			var local = invertedIndex.search(stems, exact);
+			var local = version.search(query.getWords(), query.getPhrases(), exact, limit, scorer);
 			
 			synchronized(searchResults) {
 				searchResults.put(strQuery, local);
@@ -100,23 +129,39 @@ public class MultithreadedQueryHandler implements QueryHandlerInterface{
 		/**exact or not for task*/
 		private final boolean exact;
 		
+		/**amount of results to keep for task*/
+		private final int limit;
+		
+		/**the version of the index the task searches*/
+		private final InvertedIndex version;
+		
 		/**
 		 * Constructor that you give the string need to create the result and if it is an exact search or not
 		 * @param input to use to search
 		 * @param exact true if it is an exact search otherwise partial search.
+		 * @param limit the amount of results to keep, zero or less keeps all
+		 */
+		public Task(String input,  boolean exact, int limit) {
+			this(input, exact, limit, invertedIndex.version());
+		}
+		
+		/**
+		 * Constructor of a task that searches the version of the index given
+		 * @param input to use to search
+		 * @param exact true if it is an exact search otherwise partial search.
+		 * @param limit the amount of results to keep, zero or less keeps all
+		 * @param version the version of the index shared by the tasks of one file
 		 */
-		public Task(String input,  boolean exact) {
+		public Task(String input,  boolean exact, int limit, InvertedIndex version) {
 			this.input = input;
 			this.exact = exact;
+			this.limit = limit;
+			this.version = version;
 		}
 		
 		@Override
 		public void run() {
-			try {
-				parseQueryLine(input, exact);
-			} catch (IOException e) {
-				System.out.println("Error handling the file." + e);
-			}
+			parseQueryLine(input, exact, limit, version);
 		}	
 	}
 	
@@ -167,9 +212,9 @@ public class MultithreadedQueryHandler implements QueryHandlerInterface{
 	 * @return a collection of all the page score solutions.
 	 */
 	public Collection<PageScore> getQueryResults(String unprocessedLine) {
-		TreeSet<String> stems = WordCleaner.uniqueStems(unprocessedLine);
-		if(!stems.isEmpty()) {
-			String strQuery = String.join(" ", stems);
+		Query query = new Query(unprocessedLine);
+		if(!query.isEmpty()) {
+			String strQuery = query.toString();
 			synchronized (searchResults) {
 				if(searchResults.containsKey(strQuery)) {
 					return searchResults.get(strQuery);
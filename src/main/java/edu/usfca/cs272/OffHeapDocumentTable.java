@@ -0,0 +1,244 @@
+package edu.usfca.cs272;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Read only copy of a document table kept in direct buffers outside of the
+ * heap, made when an index is frozen with {@link InvertedIndex#freeze(boolean)}.
+ * The locations are stored one after the other as UTF-8 bytes, and the id of a
+ * location is found with an open addressing hash table of ints, so there are no
+ * strings, boxed ints or map entries for the garbage collector to go through.
+ * The strings are only made when a location is asked for.
+ *
+ * <p>
+ * It keeps the same ids as the table it copies, and since it can not change it
+ * is safe to read from many threads at the same time.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class OffHeapDocumentTable extends DocumentTable {
+
+	/** the UTF-8 bytes of all the locations one after the other */
+	private final ByteBuffer names;
+
+	/** where the bytes of every location start, with one more at the end */
+	private final IntBuffer starts;
+
+	/** the amount of words in every location indexed by id */
+	private final IntBuffer counts;
+
+	/** the hash and the id plus one of every location, zero marks an empty slot */
+	private final IntBuffer slots;
+
+	/** the amount of slots minus one, the amount of slots is a power of two */
+	private final int mask;
+
+	/** the amount of ids in the table */
+	private final int size;
+
+	/**
+	 * Constructor that copies a document table outside of the heap.
+	 *
+	 * @param other the table to copy, without removed locations
+	 * @throws IllegalArgumentException if the table has removed locations
+	 */
+	public OffHeapDocumentTable(DocumentTable other) {
+		super();
+		if (other.numDeleted() > 0) {
+			throw new IllegalArgumentException("The table to copy off the heap can not have removed locations.");
+		}
+
+		this.size = other.size();
+		byte[][] bytes = new byte[size][];
+		int length = 0;
+		for (int id = 0; id < size; id++) {
+			bytes[id] = other.getLocation(id).getBytes(StandardCharsets.UTF_8);
+			length += bytes[id].length;
+		}
+
+		this.names = ByteBuffer.allocateDirect(length);
+		this.starts = allocate(size + 1);
+		this.counts = allocate(size);
+		for (int id = 0; id < size; id++) {
+			starts.put(id, names.position());
+			names.put(bytes[id]);
+			counts.put(id, other.getCount(id));
+		}
+		starts.put(size, names.position());
+
+		int capacity = Integer.highestOneBit(Math.max(size, 1)) * 4;
+		this.mask = capacity - 1;
+		this.slots = allocate(capacity * 2);
+		for (int id = 0; id < size; id++) {
+			int hash = hash(other.getLocation(id));
+			int slot = hash & mask;
+			while (slots.get(2 * slot + 1) != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots.put(2 * slot, hash);
+			slots.put(2 * slot + 1, id + 1);
+		}
+	}
+
+	/**
+	 * Makes a direct buffer of ints filled with zeros.
+	 *
+	 * @param length the amount of ints
+	 * @return the buffer in the native byte order
+	 */
+	private static IntBuffer allocate(int length) {
+		return ByteBuffer.allocateDirect(length * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+	}
+
+	/**
+	 * Spreads the hash code of the location so the low bits used for the slots
+	 * depend on all of its bits.
+	 *
+	 * @param location the location to hash
+	 * @return the spread hash
+	 */
+	private static int hash(String location) {
+		int hash = location.hashCode() * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Boolean method that checks if the bytes of an id are the ones given
+	 *
+	 * @param id the id to check
+	 * @param bytes the UTF-8 bytes of a location
+	 * @return true if the location of the id has the same bytes
+	 */
+	private boolean matches(int id, byte[] bytes) {
+		int start = starts.get(id);
+		if (starts.get(id + 1) - start != bytes.length) {
+			return false;
+		}
+		for (int i = 0; i < bytes.length; i++) {
+			if (names.get(start + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int getId(String location) {
+		int hash = hash(location);
+		byte[] bytes = location.getBytes(StandardCharsets.UTF_8);
+		for (int slot = hash & mask; slots.get(2 * slot + 1) != 0; slot = (slot + 1) & mask) {
+			int id = slots.get(2 * slot + 1) - 1;
+			if (slots.get(2 * slot) == hash && matches(id, bytes)) {
+				return id;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public String getLocation(int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException(id);
+		}
+		byte[] bytes = new byte[starts.get(id + 1) - starts.get(id)];
+		names.get(starts.get(id), bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public int getCount(int id) {
+		return counts.get(id);
+	}
+
+	@Override
+	public long bytes() {
+		return names.capacity() + (long) (starts.capacity() + counts.capacity() + slots.capacity()) * Integer.BYTES;
+	}
+
+	@Override
+	public boolean isOffHeap() {
+		return true;
+	}
+
+	@Override
+	public boolean contains(String location) {
+		return getId(location) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gives the id of a location already in the table.
+	 *
+	 * @throws UnsupportedOperationException if the location is not in the table
+	 */
+	@Override
+	public int add(String location) {
+		int id = getId(location);
+		if (id < 0) {
+			throw new UnsupportedOperationException("The off heap document table can not be changed.");
+		}
+		return id;
+	}
+
+	/**
+	 * Does nothing but fail, the table can not be changed.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void updateCount(int id, int count) {
+		throw new UnsupportedOperationException("The off heap document table can not be changed.");
+	}
+
+	/**
+	 * Does nothing but fail, the table can not be changed.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public int delete(String location) {
+		throw new UnsupportedOperationException("The off heap document table can not be changed.");
+	}
+
+	/**
+	 * There are no tombstones to take out, so every id stays the same.
+	 */
+	@Override
+	public int[] compact() {
+		int[] remap = new int[size];
+		for (int id = 0; id < size; id++) {
+			remap[id] = id;
+		}
+		return remap;
+	}
+
+	@Override
+	public Set<String> getLocations() {
+		TreeSet<String> locations = new TreeSet<>();
+		for (int id = 0; id < size; id++) {
+			locations.add(getLocation(id));
+		}
+		return Collections.unmodifiableSet(locations);
+	}
+
+	@Override
+	public TreeMap<String, Integer> toMap() {
+		TreeMap<String, Integer> map = new TreeMap<>();
+		for (int id = 0; id < size; id++) {
+			map.put(getLocation(id), counts.get(id));
+		}
+		return map;
+	}
+}
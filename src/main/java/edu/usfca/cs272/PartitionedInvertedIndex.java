@@ -0,0 +1,498 @@
+package edu.usfca.cs272;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Read only index split by location into frozen partitions, where every
+ * location and all its postings live in one partition. A search runs on every
+ * partition at the same time in a fork join pool, and since the partitions
+ * return their results already sorted, every task of the pool merges the
+ * results of its two halves, which makes a k-way merge out of two-way merges
+ * that stop at the limit and run in parallel too. This makes a single query
+ * faster on many cores, not only a batch of them.
+ *
+ * <p>
+ * A location is only in one partition, so the counts, the boolean operators
+ * and the phrases work the same in every partition. The scorers need the
+ * statistics of the whole index, so every partition scores with the amount of
+ * documents and the average length of the whole index, and the cursors of its
+ * words give the amount of documents the word has in all the partitions. A
+ * partial search with a scorer weights every word on its own, the same as the
+ * index that was split, so the scores do not depend on a cache.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class PartitionedInvertedIndex extends InvertedIndex {
+
+	/** the partitions, the location with id i of the whole index is in partition i % size */
+	private final Partition[] partitions;
+
+	/** the pool that searches the partitions */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor with one partition for every processor
+	 *
+	 * @param index the index to split
+	 */
+	public PartitionedInvertedIndex(InvertedIndex index) {
+		this(index, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor that splits the locations of an index into partitions taking
+	 * turns, so the partitions get about the same amount of locations.
+	 *
+	 * @param index the index to split, it should not change while it is split
+	 * @param partitions the amount of partitions
+	 */
+	public PartitionedInvertedIndex(InvertedIndex index, int partitions) {
+		super();
+		this.pool = ForkJoinPool.commonPool();
+
+		DocumentTable source = index.documents();
+		InvertedIndex[] parts = new InvertedIndex[Math.max(partitions, 1)];
+		for (int i = 0; i < parts.length; i++) {
+			parts[i] = new InvertedIndex();
+		}
+
+		int[] local = new int[source.size()];
+		int[] part = new int[source.size()];
+		for (int document = 0; document < source.size(); document++) {
+			if (source.isDeleted(document)) {
+				continue;
+			}
+			String location = source.getLocation(document);
+			int id = documents().add(location);
+			documents().updateCount(id, source.getCount(document));
+
+			part[document] = id % parts.length;
+			local[document] = parts[part[document]].documents().add(location);
+			parts[part[document]].documents().updateCount(local[document], source.getCount(document));
+		}
+
+		for (String word : index.words()) {
+			PostingsCursor postings = index.postings(word);
+			while (postings.next()) {
+				int document = postings.document();
+				parts[part[document]].postingList(word).add(local[document], postings.positions());
+			}
+		}
+
+		this.partitions = new Partition[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			this.partitions[i] = new Partition(parts[i], this);
+		}
+	}
+
+	/**
+	 * A frozen part of the index whose scores use the statistics of the whole
+	 * index.
+	 */
+	private static class Partition extends FrozenInvertedIndex {
+
+		/** the whole index */
+		private final PartitionedInvertedIndex whole;
+
+		/** the statistics of every scorer with the sizes of the whole index */
+		private final Map<Scorer, ScoreTable> tables;
+
+		/**
+		 * Constructor that freezes one part of the index
+		 *
+		 * @param part the postings of the part
+		 * @param whole the whole index
+		 */
+		private Partition(InvertedIndex part, PartitionedInvertedIndex whole) {
+			super(part, new DocumentTable(part.documents()));
+			this.whole = whole;
+			this.tables = new ConcurrentHashMap<>();
+			setCacheBudget(0);
+		}
+
+		/**
+		 * The cursor of the word with the amount of documents it has in the whole
+		 * index, since that is what the scorers weight the word with.
+		 */
+		@Override
+		protected PostingsCursor postings(String word) {
+			PostingsCursor cursor = super.postings(word);
+			if (cursor == null) {
+				return null;
+			}
+
+			return new PostingsCursor() {
+				/** the documents of the word in every partition, -1 until it is needed */
+				private int documents = -1;
+
+				@Override
+				public boolean next() {
+					return cursor.next();
+				}
+
+				@Override
+				public boolean advance(int target) {
+					return cursor.advance(target);
+				}
+
+				@Override
+				public int document() {
+					return cursor.document();
+				}
+
+				@Override
+				public int count() {
+					return cursor.count();
+				}
+
+				@Override
+				public PositionList positions() {
+					return cursor.positions();
+				}
+
+				@Override
+				public int documents() {
+					if (documents < 0) {
+						documents = whole.frequency(word);
+					}
+					return documents;
+				}
+
+				@Override
+				public double maxScore() {
+					return cursor.maxScore();
+				}
+			};
+		}
+
+		@Override
+		protected List<PostingsCursor> prefixPostings(String prefix) {
+			List<PostingsCursor> postings = new ArrayList<>();
+			for (String word : prefixWords(prefix)) {
+				postings.add(postings(word));
+			}
+			return postings;
+		}
+
+		@Override
+		protected ScoreTable scoreTable(Scorer scorer) {
+			return tables.computeIfAbsent(scorer, key -> {
+				ScoreTable global = whole.scoreTable(key);
+				return new ScoreTable(key, documents(), global.size(), global.getAverageLength());
+			});
+		}
+	}
+
+	/**
+	 * The amount of documents that have a word in all the partitions
+	 *
+	 * @param word the word to look for
+	 * @return the amount of documents with the word
+	 */
+	private int frequency(String word) {
+		int documents = 0;
+		for (Partition partition : partitions) {
+			documents += Math.max(partition.numLocations(word), 0);
+		}
+		return documents;
+	}
+
+	/**
+	 * The amount of partitions of the index
+	 *
+	 * @return the amount of partitions
+	 */
+	public int numPartitions() {
+		return partitions.length;
+	}
+
+	/**
+	 * Task that searches a range of partitions, splitting the range in half until
+	 * there is a single partition and merging the results of the halves.
+	 */
+	private class SearchTask extends RecursiveTask<List<PageScore>> {
+
+		/** the version of the class, the tasks are never serialized */
+		private static final long serialVersionUID = 1L;
+
+		/** the unique stems of the search */
+		private final Set<String> queries;
+
+		/** the words of every phrase in order */
+		private final Collection<List<String>> phrases;
+
+		/** check if its exact or partial */
+		private final boolean exact;
+
+		/** the amount of results, zero or less for all */
+		private final int limit;
+
+		/** the way the locations are scored */
+		private final Scorer scorer;
+
+		/** the first partition of the range */
+		private final int from;
+
+		/** the partition after the last one of the range */
+		private final int to;
+
+		/**
+		 * Constructor of the task
+		 *
+		 * @param queries the unique stems of the search
+		 * @param phrases the words of every phrase in order
+		 * @param exact check if its exact or partial
+		 * @param limit the amount of results, zero or less for all
+		 * @param scorer the way the locations are scored
+		 * @param from the first partition of the range
+		 * @param to the partition after the last one of the range
+		 */
+		public SearchTask(Set<String> queries, Collection<List<String>> phrases, boolean exact, int limit, Scorer scorer, int from, int to) {
+			this.queries = queries;
+			this.phrases = phrases;
+			this.exact = exact;
+			this.limit = limit;
+			this.scorer = scorer;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<PageScore> compute() {
+			if (to - from == 1) {
+				return partitions[from].search(queries, phrases, exact, limit, scorer);
+			}
+
+			int middle = (from + to) >>> 1;
+			SearchTask left = new SearchTask(queries, phrases, exact, limit, scorer, from, middle);
+			SearchTask right = new SearchTask(queries, phrases, exact, limit, scorer, middle, to);
+			left.fork();
+			List<PageScore> second = right.compute();
+			return merge(left.join(), second, limit);
+		}
+	}
+
+	/**
+	 * Merges two sorted lists of results.
+	 *
+	 * @param first the sorted results of some partitions
+	 * @param second the sorted results of other partitions
+	 * @param limit the amount of results to return, zero or less returns all
+	 * @return the sorted results of both
+	 */
+	private static List<PageScore> merge(List<PageScore> first, List<PageScore> second, int limit) {
+		int total = first.size() + second.size();
+		int size = limit > 0 ? Math.min(limit, total) : total;
+		List<PageScore> merged = new ArrayList<>(size);
+		int i = 0;
+		int j = 0;
+		while (merged.size() < size) {
+			if (j == second.size() || (i < first.size() && first.get(i).compareTo(second.get(j)) <= 0)) {
+				merged.add(first.get(i++));
+			}
+			else {
+				merged.add(second.get(j++));
+			}
+		}
+		return merged;
+	}
+
+	@Override
+	public List<PageScore> search(Set<String> queries, Collection<List<String>> phrases, boolean exact, int limit, Scorer scorer) {
+		if (partitions.length == 1) {
+			return partitions[0].search(queries, phrases, exact, limit, scorer);
+		}
+		return pool.invoke(new SearchTask(queries, phrases, exact, limit, scorer, 0, partitions.length));
+	}
+
+	@Override
+	public List<PageScore> search(Set<String> queries, boolean exact) {
+		return search(queries, List.of(), exact, 0, Scorer.COUNT);
+	}
+
+	@Override
+	public List<PageScore> exactSearch(Set<String> queries) {
+		return search(queries, true);
+	}
+
+	@Override
+	public List<PageScore> partialSearch(Set<String> queries) {
+		return search(queries, false);
+	}
+
+	/**
+	 * Getter method of the partition of a location
+	 *
+	 * @param location the location to look for
+	 * @return the partition or null if the location is not in the index
+	 */
+	private Partition partition(String location) {
+		int document = documents().getId(location);
+		return document >= 0 ? partitions[document % partitions.length] : null;
+	}
+
+	/**
+	 * Collects the postings of the word from every partition with the ids of the
+	 * whole index, it is only used for the output and the getters.
+	 */
+	@Override
+	protected PostingsCursor postings(String word) {
+		List<int[]> entries = new ArrayList<>();
+		List<PositionList> positions = new ArrayList<>();
+		for (Partition partition : partitions) {
+			PostingsCursor cursor = partition.postings(word);
+			while (cursor != null && cursor.next()) {
+				entries.add(new int[] { documents().getId(partition.documents().getLocation(cursor.document())), positions.size() });
+				positions.add(cursor.positions());
+			}
+		}
+		if (entries.isEmpty()) {
+			return null;
+		}
+
+		entries.sort((a, b) -> Integer.compare(a[0], b[0]));
+		PostingList postings = new PostingList();
+		for (int[] entry : entries) {
+			postings.add(entry[0], positions.get(entry[1]));
+		}
+		return postings.cursor();
+	}
+
+	@Override
+	protected List<PostingsCursor> prefixPostings(String prefix) {
+		List<PostingsCursor> postings = new ArrayList<>();
+		for (String word : prefixWords(prefix)) {
+			postings.add(postings(word));
+		}
+		return postings;
+	}
+
+	@Override
+	protected List<String> prefixWords(String prefix) {
+		TreeSet<String> words = new TreeSet<>();
+		for (Partition partition : partitions) {
+			words.addAll(partition.prefixWords(prefix));
+		}
+		return new ArrayList<>(words);
+	}
+
+	@Override
+	protected Collection<String> words() {
+		TreeSet<String> words = new TreeSet<>();
+		for (Partition partition : partitions) {
+			words.addAll(partition.words());
+		}
+		return words;
+	}
+
+	/**
+	 * Counts the documents of every word in each partition, so the postings are
+	 * never put back together.
+	 */
+	@Override
+	protected void countWords(IndexStats stats) {
+		for (String word : words()) {
+			int count = 0;
+			long positions = 0;
+			for (Partition partition : partitions) {
+				PostingsCursor postings = partition.postings(word);
+				while (postings != null && postings.next()) {
+					count++;
+					positions += postings.count();
+				}
+			}
+			stats.addWord(word, count, positions);
+		}
+	}
+
+	/**
+	 * Adds up the partitions, each with its own copy of its locations.
+	 */
+	@Override
+	protected void estimatePostingsBytes(IndexStats stats) {
+		for (Partition partition : partitions) {
+			partition.estimateBytes(stats);
+		}
+	}
+
+	@Override
+	protected PositionList findPositions(String word, String location) {
+		Partition partition = partition(location);
+		return partition != null ? partition.findPositions(word, location) : null;
+	}
+
+	@Override
+	public int numWords() {
+		return words().size();
+	}
+
+	@Override
+	public int numLocations(String word) {
+		return containsWord(word) ? frequency(word) : -1;
+	}
+
+	@Override
+	public boolean containsWord(String word) {
+		for (Partition partition : partitions) {
+			if (partition.containsWord(word)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public Set<String> getWords() {
+		return Collections.unmodifiableSet(new TreeSet<>(words()));
+	}
+
+	/**
+	 * Does nothing but fail, the partitions are frozen.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean addPosition(String word, String location, int count) {
+		throw new UnsupportedOperationException("The partitioned index can not be changed.");
+	}
+
+	/**
+	 * Does nothing but fail, the partitions are frozen.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	protected void absorb(InvertedIndex other) {
+		throw new UnsupportedOperationException("The partitioned index can not be changed.");
+	}
+
+	/**
+	 * Does nothing but fail, the partitions are frozen.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void addAll(InvertedIndex other) {
+		throw new UnsupportedOperationException("The partitioned index can not be changed.");
+	}
+
+	/**
+	 * Does nothing but fail, the partitions are frozen.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean removeLocation(String location) {
+		throw new UnsupportedOperationException("The partitioned index can not be changed.");
+	}
+}
@@ -0,0 +1,103 @@
+package edu.usfca.cs272;
+
+/**
+ * Cursor over the documents where the words of a phrase show up one right after
+ * the other. The postings of the words are intersected by document like a
+ * {@link ConjunctionCursor}, so the postings of the common words are skipped
+ * instead of read. Once every word is in the same document their positions are
+ * intersected by offset, going through the shortest position list and galloping
+ * through the others.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class PhraseCursor extends ConjunctionCursor {
+
+	/** the first position of every match of the phrase in the current document */
+	private PositionList matches;
+
+	/**
+	 * Constructor of a cursor over the phrase of the words given
+	 *
+	 * @param words the cursors of the words in the order of the phrase, before the first document
+	 */
+	public PhraseCursor(PostingsCursor[] words) {
+		super(words);
+	}
+
+	/**
+	 * Only accepts the documents where the whole phrase shows up.
+	 */
+	@Override
+	protected boolean accept() {
+		matches = matchPositions();
+		return matches.size() > 0;
+	}
+
+	/**
+	 * Intersects the positions of the words in the current document, a match is a
+	 * start position where every word is at its offset in the phrase.
+	 *
+	 * @return the start positions of the matches
+	 */
+	private PositionList matchPositions() {
+		PositionList[] positions = new PositionList[cursors.length];
+		int shortest = 0;
+		for (int i = 0; i < cursors.length; i++) {
+			positions[i] = cursors[i].positions();
+			if (positions[i].size() < positions[shortest].size()) {
+				shortest = i;
+			}
+		}
+
+		PositionList found = new PositionList();
+		int[] indexes = new int[cursors.length];
+		for (int k = 0; k < positions[shortest].size(); k++) {
+			int start = positions[shortest].get(k) - shortest;
+			boolean match = true;
+			for (int i = 0; i < cursors.length && match; i++) {
+				if (i == shortest) {
+					continue;
+				}
+				indexes[i] = positions[i].ceilingIndex(indexes[i], start + i);
+				if (indexes[i] >= positions[i].size()) {
+					return found;
+				}
+				match = positions[i].get(indexes[i]) == start + i;
+			}
+			if (match) {
+				found.addPosition(start);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * The amount of times the whole phrase shows up in the current document
+	 */
+	@Override
+	public int count() {
+		return matches.size();
+	}
+
+	/**
+	 * The positions where every match of the phrase starts
+	 */
+	@Override
+	public PositionList positions() {
+		return matches;
+	}
+
+	/**
+	 * A phrase can not show up more times than any of its words, so the lowest
+	 * bound of its words holds for it too.
+	 */
+	@Override
+	public double maxScore() {
+		double bound = Double.POSITIVE_INFINITY;
+		for (PostingsCursor word : cursors) {
+			bound = Math.min(bound, word.maxScore());
+		}
+		return bound;
+	}
+}
@@ -0,0 +1,234 @@
+package edu.usfca.cs272;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Sorted set of word positions backed by a growable primitive int array instead
+ * of boxed integers inside of a tree set. The builders always add positions in
+ * increasing order so adding is normally just an append, and lookups use a
+ * binary search over the array.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class PositionList extends AbstractSet<Integer> {
+
+	/** The capacity given to a new list, most words only show up a few times in a file */
+	private static final int DEFAULT_CAPACITY = 4;
+
+	/** the positions in increasing order, only the first size values are used */
+	private int[] positions;
+
+	/** the amount of positions stored */
+	private int size;
+
+	/**
+	 * Constructor of an empty position list
+	 */
+	public PositionList() {
+		this.positions = new int[DEFAULT_CAPACITY];
+		this.size = 0;
+	}
+
+	/**
+	 * Constructor of a position list with a copy of a range of a sorted array
+	 *
+	 * @param positions the array with the positions in increasing order
+	 * @param from the first index to copy
+	 * @param to the index after the last one to copy
+	 */
+	public PositionList(int[] positions, int from, int to) {
+		this.positions = Arrays.copyOfRange(positions, from, to);
+		this.size = to - from;
+	}
+
+	/**
+	 * Adds a position keeping the list sorted. When the position is bigger than
+	 * the last one (the normal case while building) it is appended.
+	 *
+	 * @param position the position to add
+	 * @return true if the position was added, false if it was already there
+	 */
+	public boolean addPosition(int position) {
+		if (size == 0 || position > positions[size - 1]) {
+			ensureCapacity(size + 1);
+			positions[size++] = position;
+			return true;
+		}
+
+		int index = Arrays.binarySearch(positions, 0, size, position);
+		if (index >= 0) {
+			return false;
+		}
+
+		index = -index - 1;
+		ensureCapacity(size + 1);
+		System.arraycopy(positions, index, positions, index + 1, size - index);
+		positions[index] = position;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Merges all the positions of another list into this one.
+	 *
+	 * @param other the list to take the positions from
+	 */
+	public void merge(PositionList other) {
+		if (other.size == 0) {
+			return;
+		}
+
+		if (size == 0 || other.positions[0] > positions[size - 1]) {
+			ensureCapacity(size + other.size);
+			System.arraycopy(other.positions, 0, positions, size, other.size);
+			size += other.size;
+			return;
+		}
+
+		int[] merged = new int[size + other.size];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i < size && j < other.size) {
+			if (positions[i] < other.positions[j]) {
+				merged[k++] = positions[i++];
+			}
+			else if (positions[i] > other.positions[j]) {
+				merged[k++] = other.positions[j++];
+			}
+			else {
+				merged[k++] = positions[i++];
+				j++;
+			}
+		}
+		while (i < size) {
+			merged[k++] = positions[i++];
+		}
+		while (j < other.size) {
+			merged[k++] = other.positions[j++];
+		}
+
+		positions = merged;
+		size = k;
+	}
+
+	/**
+	 * Boolean method that checks if the position is inside the list using a binary search.
+	 *
+	 * @param position the position to look for
+	 * @return true if the position is in the list
+	 */
+	public boolean containsPosition(int position) {
+		return Arrays.binarySearch(positions, 0, size, position) >= 0;
+	}
+
+	/**
+	 * Finds the first index from the one given with a position bigger or equal to
+	 * the target. It gallops forward doubling the step until it passes the target
+	 * and then does a binary search in the last step, so walking a list with
+	 * increasing targets only costs the log of the distance moved every time.
+	 *
+	 * @param from the index to start looking from
+	 * @param position the position to look for
+	 * @return the index of the first position bigger or equal, or size if there is none
+	 */
+	public int ceilingIndex(int from, int position) {
+		int low = from;
+		int step = 1;
+		while (low + step < size && positions[low + step] < position) {
+			low += step;
+			step <<= 1;
+		}
+		if (low >= size || positions[low] >= position) {
+			return low;
+		}
+
+		int found = Arrays.binarySearch(positions, low + 1, Math.min(low + step, size - 1) + 1, position);
+		return found >= 0 ? found : -found - 1;
+	}
+
+	/**
+	 * Getter method of the position in the index given
+	 *
+	 * @param index of the position, between 0 and size
+	 * @return the position stored at that index
+	 */
+	public int get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(index);
+		}
+		return positions[index];
+	}
+
+	/**
+	 * The estimated bytes the list takes in the heap with its backing array
+	 *
+	 * @return the bytes of the list
+	 */
+	public long bytes() {
+		return IndexStats.align(IndexStats.OBJECT + IndexStats.REFERENCE + Integer.BYTES)
+				+ IndexStats.array(positions.length, Integer.BYTES);
+	}
+
+	/**
+	 * Shrinks the backing array so it does not hold any unused capacity.
+	 */
+	public void trimToSize() {
+		if (positions.length > size) {
+			positions = Arrays.copyOf(positions, size);
+		}
+	}
+
+	/**
+	 * Makes sure the backing array can hold the amount of positions given, it
+	 * grows by half of its size every time.
+	 *
+	 * @param capacity the amount of positions needed
+	 */
+	private void ensureCapacity(int capacity) {
+		if (capacity > positions.length) {
+			int grown = positions.length + (positions.length >> 1) + 1;
+			positions = Arrays.copyOf(positions, Math.max(grown, capacity));
+		}
+	}
+
+	@Override
+	public boolean add(Integer position) {
+		return addPosition(position);
+	}
+
+	@Override
+	public boolean contains(Object object) {
+		return object instanceof Integer position && containsPosition(position);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Iterator<Integer> iterator() {
+		return new Iterator<Integer>() {
+			/** the index of the next position to return */
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public Integer next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return positions[next++];
+			}
+		};
+	}
+}
@@ -0,0 +1,246 @@
+package edu.usfca.cs272;
+
+import java.util.Arrays;
+
+/**
+ * The postings of one word: the ids of the documents that contain it, sorted,
+ * and the positions of the word inside each of those documents.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class PostingList {
+
+	/** The capacity given to a new list */
+	private static final int DEFAULT_CAPACITY = 2;
+
+	/** the document ids in increasing order */
+	private int[] documents;
+
+	/** the positions of the word in the document at the same index */
+	private PositionList[] positions;
+
+	/** the amount of documents stored */
+	private int size;
+
+	/**
+	 * Constructor of an empty posting list
+	 */
+	public PostingList() {
+		this.documents = new int[DEFAULT_CAPACITY];
+		this.positions = new PositionList[DEFAULT_CAPACITY];
+		this.size = 0;
+	}
+
+	/**
+	 * Getter method of the positions in a document
+	 *
+	 * @param document the id of the document
+	 * @return the positions or null if the document is not in the list
+	 */
+	public PositionList get(int document) {
+		int index = indexOf(document);
+		return index >= 0 ? positions[index] : null;
+	}
+
+	/**
+	 * Getter method of the positions in a document that creates an empty list
+	 * for the document if it was not there.
+	 *
+	 * @param document the id of the document
+	 * @return the positions of the document
+	 */
+	public PositionList getOrAdd(int document) {
+		if (size > 0 && documents[size - 1] == document) {
+			return positions[size - 1];
+		}
+
+		int index = indexOf(document);
+		if (index >= 0) {
+			return positions[index];
+		}
+
+		PositionList list = new PositionList();
+		insert(-index - 1, document, list);
+		return list;
+	}
+
+	/**
+	 * Adds the positions of a document, merging them if the document was already
+	 * in the list.
+	 *
+	 * @param document the id of the document
+	 * @param list the positions to add
+	 */
+	public void add(int document, PositionList list) {
+		int index = indexOf(document);
+		if (index >= 0) {
+			positions[index].merge(list);
+		}
+		else {
+			insert(-index - 1, document, list);
+		}
+	}
+
+	/**
+	 * Boolean method that checks if the document is in the list
+	 *
+	 * @param document the id of the document
+	 * @return true if the document is in the list
+	 */
+	public boolean contains(int document) {
+		return indexOf(document) >= 0;
+	}
+
+	/**
+	 * The amount of documents in the list
+	 *
+	 * @return the amount of documents
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * The estimated bytes the list takes in the heap with all its positions
+	 *
+	 * @return the bytes of the list
+	 */
+	public long bytes() {
+		long bytes = IndexStats.align(IndexStats.OBJECT + 2 * IndexStats.REFERENCE + Integer.BYTES)
+				+ IndexStats.array(documents.length, Integer.BYTES)
+				+ IndexStats.array(positions.length, IndexStats.REFERENCE);
+		for (int i = 0; i < size; i++) {
+			bytes += positions[i].bytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Getter method of the document id stored at an index
+	 *
+	 * @param index between 0 and size
+	 * @return the document id
+	 */
+	public int getDocument(int index) {
+		return documents[index];
+	}
+
+	/**
+	 * Getter method of the positions stored at an index
+	 *
+	 * @param index between 0 and size
+	 * @return the positions of the document at that index
+	 */
+	public PositionList getPositions(int index) {
+		return positions[index];
+	}
+
+	/**
+	 * Creates a cursor that goes through the documents of this list in order.
+	 *
+	 * @return the new cursor
+	 */
+	public PostingsCursor cursor() {
+		return new PostingsCursor() {
+			/** the index of the current document */
+			private int current = -1;
+
+			@Override
+			public boolean next() {
+				return ++current < size;
+			}
+
+			@Override
+			public boolean advance(int target) {
+				if (current >= size) {
+					return false;
+				}
+				if (current >= 0 && documents[current] >= target) {
+					return true;
+				}
+				int index = Arrays.binarySearch(documents, current + 1, size, target);
+				current = index >= 0 ? index : -index - 1;
+				return current < size;
+			}
+
+			@Override
+			public int document() {
+				return documents[current];
+			}
+
+			@Override
+			public int count() {
+				return positions[current].size();
+			}
+
+			@Override
+			public PositionList positions() {
+				return positions[current];
+			}
+
+			@Override
+			public int documents() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Takes out the documents that were removed and gives the others their new
+	 * ids, the new ids have to keep the order of the old ones. The arrays are cut
+	 * to the documents left.
+	 *
+	 * @param remap the new id of every old id, -1 for the removed ones
+	 * @return the amount of documents left
+	 */
+	public int compact(int[] remap) {
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			int document = remap[documents[i]];
+			if (document >= 0) {
+				documents[kept] = document;
+				positions[kept] = positions[i];
+				kept++;
+			}
+		}
+		size = kept;
+		documents = Arrays.copyOf(documents, Math.max(size, DEFAULT_CAPACITY));
+		positions = Arrays.copyOf(positions, Math.max(size, DEFAULT_CAPACITY));
+		return size;
+	}
+
+	/**
+	 * Finds the index of a document with a binary search, checking the last
+	 * document first since documents are normally added in order.
+	 *
+	 * @param document the id of the document
+	 * @return the index or the negative insertion point minus one
+	 */
+	private int indexOf(int document) {
+		if (size == 0 || document > documents[size - 1]) {
+			return -size - 1;
+		}
+		return Arrays.binarySearch(documents, 0, size, document);
+	}
+
+	/**
+	 * Inserts the document at the index, moving the rest to the right.
+	 *
+	 * @param index where the document goes
+	 * @param document the id of the document
+	 * @param list the positions of the document
+	 */
+	private void insert(int index, int document, PositionList list) {
+		if (size == documents.length) {
+			int capacity = size + (size >> 1) + 1;
+			documents = Arrays.copyOf(documents, capacity);
+			positions = Arrays.copyOf(positions, capacity);
+		}
+		System.arraycopy(documents, index, documents, index + 1, size - index);
+		System.arraycopy(positions, index, positions, index + 1, size - index);
+		documents[index] = document;
+		positions[index] = list;
+		size++;
+	}
+}
@@ -0,0 +1,70 @@
+package edu.usfca.cs272;
+
+/**
+ * Cursor that goes through the postings of one word, one document at a time in
+ * increasing document id order. It lets the search code work the same way no
+ * matter how the postings are stored.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public interface PostingsCursor {
+
+	/**
+	 * Moves the cursor to the next document of the postings, it has to be called
+	 * once before reading the first document.
+	 *
+	 * @return true if there was a next document, false if the postings are done
+	 */
+	public boolean next();
+
+	/**
+	 * Moves the cursor forward to the first document with an id bigger or equal to
+	 * the target, skipping the documents in between without reading them when the
+	 * storage allows it. It does not move if the current document is already
+	 * there, and it can be called instead of the first {@link #next()}.
+	 *
+	 * @param target the id of the document to look for
+	 * @return true if there is such a document, false if the postings are done
+	 */
+	public boolean advance(int target);
+
+	/**
+	 * Getter method of the id of the current document
+	 *
+	 * @return the id of the current document
+	 */
+	public int document();
+
+	/**
+	 * Getter method of the amount of positions of the word in the current document
+	 *
+	 * @return the amount of positions in the current document
+	 */
+	public int count();
+
+	/**
+	 * Getter method of the positions of the word in the current document
+	 *
+	 * @return the positions in the current document
+	 */
+	public PositionList positions();
+
+	/**
+	 * The amount of documents in the postings
+	 *
+	 * @return the amount of documents that contain the word
+	 */
+	public int documents();
+
+	/**
+	 * The highest score any document can get from this word, used by the top
+	 * results search to skip the documents that can not make it to the top. The
+	 * default does not know it so it never lets anything be skipped.
+	 *
+	 * @return the highest possible score of a document for this word
+	 */
+	public default double maxScore() {
+		return Double.POSITIVE_INFINITY;
+	}
+}
@@ -0,0 +1,285 @@
+package edu.usfca.cs272;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Cache of the postings of short prefixes that match many words, already
+ * merged into one list of documents with the matches of all the words added
+ * up. A partial search of a prefix like "co" would otherwise go through the
+ * postings of thousands of words every time.
+ *
+ * <p>
+ * Only the prefixes that match at least {@value #MIN_WORDS} words are kept, the
+ * others are cheap enough to merge every time. The cache keeps the entries that
+ * were used last until their size reaches the memory budget, and it has to be
+ * cleared every time the index changes.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class PrefixCache {
+
+	/** The default memory budget of the cache in bytes */
+	public static final long DEFAULT_BUDGET = 32L * 1024 * 1024;
+
+	/** The amount of words a prefix has to match to be cached */
+	public static final int MIN_WORDS = 16;
+
+	/** The amount of bytes counted for every entry besides its arrays */
+	private static final int ENTRY_BYTES = 96;
+
+	/** the merged postings of every prefix in the order they were used */
+	private final LinkedHashMap<String, Entry> entries;
+
+	/** the most bytes the entries can take */
+	private volatile long budget;
+
+	/** the bytes the entries take, read without the lock to skip clearing an empty cache */
+	private volatile long bytes;
+
+	/**
+	 * Constructor of an empty cache with the budget given
+	 *
+	 * @param budget the most bytes the entries can take, 0 turns the cache off
+	 */
+	public PrefixCache(long budget) {
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+		this.budget = budget;
+		this.bytes = 0;
+	}
+
+	/**
+	 * Finds the postings of the words of a prefix, it gives the single merged
+	 * cursor when the prefix is cached, merging and caching it first if it is
+	 * not there yet and it matches enough words.
+	 *
+	 * @param prefix the prefix of the partial search
+	 * @param index the index the prefix is searched in
+	 * @return the merged cursor or the cursors of every word of the prefix
+	 */
+	public List<PostingsCursor> postings(String prefix, InvertedIndex index) {
+		synchronized (this) {
+			Entry entry = entries.get(prefix);
+			if (entry != null) {
+				return List.of(entry.cursor(prefix, index));
+			}
+		}
+
+		List<PostingsCursor> postings = index.prefixPostings(prefix);
+		if (postings.size() < MIN_WORDS || budget <= 0) {
+			return postings;
+		}
+
+		Entry entry = new Entry(postings, index.documents());
+		put(prefix, entry);
+		return List.of(entry.cursor(prefix, index));
+	}
+
+	/**
+	 * Adds an entry evicting the ones used the longest time ago until it fits.
+	 *
+	 * @param prefix the prefix of the entry
+	 * @param entry the merged postings
+	 */
+	private synchronized void put(String prefix, Entry entry) {
+		if (entry.bytes() > budget || entries.containsKey(prefix)) {
+			return;
+		}
+
+		entries.put(prefix, entry);
+		long used = bytes + entry.bytes();
+		Iterator<Entry> eldest = entries.values().iterator();
+		while (used > budget) {
+			used -= eldest.next().bytes();
+			eldest.remove();
+		}
+		bytes = used;
+	}
+
+	/**
+	 * Changes the memory budget, evicting the entries that do not fit anymore.
+	 *
+	 * @param budget the most bytes the entries can take, 0 turns the cache off
+	 */
+	public synchronized void setBudget(long budget) {
+		this.budget = budget;
+		long used = bytes;
+		Iterator<Entry> eldest = entries.values().iterator();
+		while (used > budget) {
+			used -= eldest.next().bytes();
+			eldest.remove();
+		}
+		bytes = used;
+	}
+
+	/**
+	 * Removes every entry, it has to be called whenever the index changes.
+	 */
+	public void clear() {
+		if (bytes == 0) {
+			return;
+		}
+		synchronized (this) {
+			entries.clear();
+			bytes = 0;
+		}
+	}
+
+	/**
+	 * The amount of prefixes cached
+	 *
+	 * @return the amount of entries
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * The bytes the entries take
+	 *
+	 * @return the bytes counted for the entries
+	 */
+	public long bytes() {
+		return bytes;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "PrefixCache" + entries.keySet() + " " + bytes + "/" + budget + " bytes";
+	}
+
+	/**
+	 * The merged postings of one prefix, with the document ids in increasing order
+	 * and the matches of all the words of the prefix in every document.
+	 */
+	private static class Entry {
+
+		/** the documents with matches in increasing order */
+		private final int[] documents;
+
+		/** the matches of every document */
+		private final int[] counts;
+
+		/** the highest score a document gets from the prefix */
+		private final double maxScore;
+
+		/**
+		 * Constructor that merges the postings of all the words of a prefix.
+		 *
+		 * @param postings the cursors of the words of the prefix
+		 * @param table the document table with the word counts of the documents
+		 */
+		private Entry(List<PostingsCursor> postings, DocumentTable table) {
+			PostingsCursor[] cursors = postings.toArray(new PostingsCursor[0]);
+			CursorHeap heap = new CursorHeap(cursors);
+			int capacity = 0;
+			for (int i = 0; i < cursors.length; i++) {
+				capacity += cursors[i].documents();
+				if (cursors[i].next()) {
+					heap.add(i);
+				}
+			}
+
+			int[] documents = new int[capacity];
+			int[] counts = new int[capacity];
+			int size = 0;
+			double maxScore = 0;
+			while (!heap.isEmpty()) {
+				int document = heap.document();
+				int count = 0;
+				while (!heap.isEmpty() && heap.document() == document) {
+					count += cursors[heap.top()].count();
+					heap.next();
+				}
+				documents[size] = document;
+				counts[size] = count;
+				maxScore = Math.max(maxScore, (double) count / table.getCount(document));
+				size++;
+			}
+
+			this.documents = Arrays.copyOf(documents, size);
+			this.counts = Arrays.copyOf(counts, size);
+			this.maxScore = maxScore;
+		}
+
+		/**
+		 * The bytes counted for the entry
+		 *
+		 * @return the size of the arrays and the entry
+		 */
+		private long bytes() {
+			return ENTRY_BYTES + 8L * documents.length;
+		}
+
+		/**
+		 * Creates a new cursor over the merged postings. The positions are not
+		 * cached, the cursor looks them up in the index when they are asked for,
+		 * which is fine since the entry is cleared every time the index changes.
+		 *
+		 * @param prefix the prefix of the entry
+		 * @param invertedIndex the index the prefix was searched in
+		 * @return the cursor before the first document
+		 */
+		private PostingsCursor cursor(String prefix, InvertedIndex invertedIndex) {
+			return new PostingsCursor() {
+				/** the index of the current document */
+				private int index = -1;
+
+				@Override
+				public boolean next() {
+					return ++index < documents.length;
+				}
+
+				@Override
+				public boolean advance(int target) {
+					if (index >= 0 && index < documents.length && documents[index] >= target) {
+						return true;
+					}
+					int from = Math.max(index, 0);
+					int found = Arrays.binarySearch(documents, from, documents.length, target);
+					index = found >= 0 ? found : -found - 1;
+					return index < documents.length;
+				}
+
+				@Override
+				public int document() {
+					return documents[index];
+				}
+
+				@Override
+				public int count() {
+					return counts[index];
+				}
+
+				/**
+				 * The positions of all the words of the prefix in the current document
+				 * merged together, found again in the postings of the index.
+				 */
+				@Override
+				public PositionList positions() {
+					int document = documents[index];
+					PositionList positions = new PositionList();
+					for (PostingsCursor postings : invertedIndex.prefixPostings(prefix)) {
+						if (postings.advance(document) && postings.document() == document) {
+							positions.merge(postings.positions());
+						}
+					}
+					return positions;
+				}
+
+				@Override
+				public int documents() {
+					return documents.length;
+				}
+
+				@Override
+				public double maxScore() {
+					return maxScore;
+				}
+			};
+		}
+	}
+}
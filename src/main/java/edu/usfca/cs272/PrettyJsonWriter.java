@@ -57,7 +57,7 @@ public class PrettyJsonWriter {
 
 	/**
 	 * Indents and then writes the text element surrounded by {@code " "}
-	 * quotation marks.
+	 * quotation marks, escaping any quotation marks or backslashes inside of it.
 	 *
 	 * @param element the element to write
 	 * @param writer the writer to use
@@ -67,7 +67,7 @@ public class PrettyJsonWriter {
 	public static void writeQuote(String element, Writer writer, int indent) throws IOException {
 		writeIndent(writer, indent);
 		writer.write('"');
-		writer.write(element);
+		writer.write(element.replace("\\", "\\\\").replace("\"", "\\\""));
 		writer.write('"');
 	}
 	
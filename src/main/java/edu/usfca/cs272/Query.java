@@ -0,0 +1,145 @@
+package edu.usfca.cs272;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * One line of a query file split into the unique stems of its words and the
+ * phrases between double quotes. The stems of a phrase keep their order and
+ * their repeats, since the phrase only matches them in that order. A quote that
+ * is never closed is ignored and its words are taken as normal words.
+ *
+ * <p>
+ * A word outside of the phrases that starts with {@value #REQUIRED} has to be
+ * in every result, and one that starts with {@value #EXCLUDED} can not be in
+ * any. Their stems keep the operator in front, so a line without operators
+ * gives the same words as before.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class Query {
+
+	/** The operator in front of a word that every result has to have */
+	public static final char REQUIRED = '+';
+
+	/** The operator in front of a word that no result can have */
+	public static final char EXCLUDED = '-';
+
+	/** the unique stems of the words outside of the phrases */
+	private final TreeSet<String> words;
+
+	/** the stems of every phrase in order, by the phrase joined with spaces */
+	private final TreeMap<String, List<String>> phrases;
+
+	/**
+	 * Constructor that parses a line of a query file
+	 *
+	 * @param line the line to parse
+	 */
+	public Query(String line) {
+		this.words = new TreeSet<>();
+		this.phrases = new TreeMap<>();
+
+		String[] parts = line.split("\"", -1);
+		for (int i = 0; i < parts.length; i++) {
+			boolean quoted = i % 2 == 1 && i < parts.length - 1;
+			if (quoted) {
+				ArrayList<String> stems = WordCleaner.listStems(parts[i]);
+				if (!stems.isEmpty()) {
+					phrases.put(String.join(" ", stems), Collections.unmodifiableList(stems));
+				}
+			}
+			else {
+				addWords(parts[i]);
+			}
+		}
+	}
+
+	/**
+	 * Adds the stems of the words outside of the phrases, with the operator in
+	 * front of the ones that have it.
+	 *
+	 * @param part the text between two phrases
+	 */
+	private void addWords(String part) {
+		StringBuilder plain = new StringBuilder();
+		for (String token : WordCleaner.split(part)) {
+			char operator = token.charAt(0);
+			if (operator == REQUIRED || operator == EXCLUDED) {
+				for (String stem : WordCleaner.uniqueStems(token)) {
+					words.add(operator + stem);
+				}
+			}
+			else {
+				plain.append(token).append(' ');
+			}
+		}
+		words.addAll(WordCleaner.uniqueStems(plain.toString()));
+	}
+
+	/**
+	 * Boolean method that checks if any of the words of a search has an operator
+	 *
+	 * @param words the words of the search
+	 * @return true if a word is required or excluded
+	 */
+	public static boolean hasOperators(Set<String> words) {
+		for (String word : words) {
+			if (!word.isEmpty() && (word.charAt(0) == REQUIRED || word.charAt(0) == EXCLUDED)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Boolean method that checks if the line did not have any words
+	 *
+	 * @return true if there is nothing to search
+	 */
+	public boolean isEmpty() {
+		return words.isEmpty() && phrases.isEmpty();
+	}
+
+	/**
+	 * Getter method of the unique stems of the words outside of the phrases, the
+	 * required and excluded ones with their operator in front
+	 *
+	 * @return the sorted stems in an unmodifiable way
+	 */
+	public Set<String> getWords() {
+		return Collections.unmodifiableSet(words);
+	}
+
+	/**
+	 * Getter method of the stems of every phrase
+	 *
+	 * @return the phrases sorted in an unmodifiable way
+	 */
+	public Collection<List<String>> getPhrases() {
+		return Collections.unmodifiableCollection(phrases.values());
+	}
+
+	/**
+	 * The query the way it shows up in the results, the sorted words followed by
+	 * the sorted phrases in quotes. A line without phrases gives the same text as
+	 * it did before phrases could be searched.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(String.join(" ", words));
+		for (String phrase : phrases.keySet()) {
+			if (builder.length() > 0) {
+				builder.append(' ');
+			}
+			builder.append('"').append(phrase).append('"');
+		}
+		return builder.toString();
+	}
+}
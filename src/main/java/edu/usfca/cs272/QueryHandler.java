@@ -7,7 +7,6 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.TreeSet;
 import edu.usfca.cs272.InvertedIndex.PageScore;
 
 /**
@@ -23,29 +22,43 @@ public class QueryHandler implements QueryHandlerInterface{
 	/** the inverted Index needed to json */
 	private final InvertedIndex invertedIndex;
 	
+	/** the way the results are scored */
+	private final Scorer scorer;
+	
 	/**
 	 * Constructor for the class it takes in a inverted index and creates a new instance for the search result data structure.
 	 * @param invertedIndex inverted index to create the json file.
 	 */
 	public QueryHandler(InvertedIndex invertedIndex) {
+		this(invertedIndex, Scorer.COUNT);
+	}
+	
+	/**
+	 * Constructor for the class that scores the results with the scorer given.
+	 * @param invertedIndex inverted index to create the json file.
+	 * @param scorer the way the results are scored
+	 */
+	public QueryHandler(InvertedIndex invertedIndex, Scorer scorer) {
 		this.invertedIndex = invertedIndex;
+		this.scorer = scorer;
 		this.searchResults = new TreeMap<>();
 	}
 	
 	@Override
 	/**
-	 * Method that parses the queries with unique stems of word cleaner, it creates a string version 
-	 * and it adds it to the search results data structure. 
+	 * Method that parses the queries with unique stems of word cleaner and the phrases in quotes,
+	 * it creates a string version and it adds it to the search results data structure. 
 	 * @param input the line needed to be parsed
 	 * @param exact if we are going to do a partial or exact search
+	 * @param limit the amount of results to keep, zero or less keeps all
 	 * @throws IOException reading a file can sometimes throw.
 	 */
-	public void parseQueryLine(String input, boolean exact) throws IOException {
-		TreeSet<String> stems = WordCleaner.uniqueStems(input);
-		if(!stems.isEmpty()) {
-			String strQuery = String.join(" ", stems);
+	public void parseQueryLine(String input, boolean exact, int limit) throws IOException {
+		Query query = new Query(input);
+		if(!query.isEmpty()) {
+			String strQuery = query.toString();
 			if(!searchResults.containsKey(strQuery)) {
-				searchResults.put(strQuery, invertedIndex.search(stems, exact));
+				searchResults.put(strQuery, invertedIndex.search(query.getWords(), query.getPhrases(), exact, limit, scorer));
 			}
 		}
 	}
@@ -84,9 +97,9 @@ public class QueryHandler implements QueryHandlerInterface{
 	 * @return a collection of all the page score solutions.
 	 */
 	public Collection<PageScore> getQueryResults(String unprocessedLine) {
-		TreeSet<String> stems = WordCleaner.uniqueStems(unprocessedLine);
-		if(!stems.isEmpty()) {
-			String strQuery = String.join(" ", stems);
+		Query query = new Query(unprocessedLine);
+		if(!query.isEmpty()) {
+			String strQuery = query.toString();
 			if(searchResults.containsKey(strQuery)) {
 				return searchResults.get(strQuery);
 			}
@@ -24,10 +24,22 @@ public interface QueryHandlerInterface {
 	 * @throws IOException reading a file can cause exceptions
 	 */
 	public default void parseQueryFile(Path input, boolean exact) throws IOException {
+		parseQueryFile(input, exact, 0);
+	}
+	
+	/**
+	 * Method that goes through the file and gets all the queries to call parse query line
+	 * keeping only the best results of every query.
+	 * @param input the file to look at
+	 * @param exact checks what type of search it will be
+	 * @param limit the amount of results to keep for every query, zero or less keeps all
+	 * @throws IOException reading a file can cause exceptions
+	 */
+	public default void parseQueryFile(Path input, boolean exact, int limit) throws IOException {
 		try(BufferedReader bufferReader = Files.newBufferedReader(input)) {
 			String line;
 			while((line = bufferReader.readLine()) != null) {
-				parseQueryLine(line, exact);
+				parseQueryLine(line, exact, limit);
 			}
 		}
 	}
@@ -39,7 +51,19 @@ public interface QueryHandlerInterface {
 	 * @param exact if we are going to do a partial or exact search
 	 * @throws IOException reading a file can sometimes throw.
 	 */
-	public void parseQueryLine(String input, boolean exact) throws IOException;
+	public default void parseQueryLine(String input, boolean exact) throws IOException {
+		parseQueryLine(input, exact, 0);
+	}
+	
+	/**
+	 * Method that parses the queries like {@link #parseQueryLine(String, boolean)}
+	 * but only keeps the best results of the search.
+	 * @param input the line needed to be parsed
+	 * @param exact if we are going to do a partial or exact search
+	 * @param limit the amount of results to keep, zero or less keeps all
+	 * @throws IOException reading a file can sometimes throw.
+	 */
+	public void parseQueryLine(String input, boolean exact, int limit) throws IOException;
 	
 	
 	/**
@@ -12,7 +12,13 @@ import org.apache.logging.log4j.Logger;
  * Maintains a pair of associated locks, one for read-only operations and one
  * for writing. The read lock may be held simultaneously by multiple reader
  * threads, so long as there are no writers. The write lock is exclusive. The
- * active writer is able to acquire read or write locks as long as it is active.
+ * active writer is able to acquire read or write locks as long as it is active,
+ * and a thread that already holds the read lock is able to acquire it again.
+ *
+ * <p>
+ * The {@link Policy} decides who goes first when readers and writers are both
+ * waiting, and a lock made with instrumentation keeps {@link LockStats} of the
+ * waits and the holds that {@link #stats()} gives a copy of.
  *
  * <!-- simplified lock used for this class -->
  * @see SimpleLock
@@ -26,10 +32,10 @@ import org.apache.logging.log4j.Logger;
  * @author CS 272 Software Development (University of San Francisco)
  * @version Fall 2022
  */
-public class ReadWriteLock {
+public class ReadWriteLock implements LockStrategy {
 	/** The conditional lock used for reading. */
 	private final SimpleLock readerLock;
-	
+
 	/** The reentrant of the lock used of writing*/
 	ReentrantReadWriteLock ren;
 
@@ -45,6 +51,27 @@ public class ReadWriteLock {
 	/** The thread that holds the write lock. */
 	private Thread activeWriter;
 
+	/** Who goes first when readers and writers are waiting. */
+	private final Policy policy;
+
+	/** The number of writers waiting for the lock. */
+	private int waitingWriters;
+
+	/** The ticket the next thread that waits in line gets, only used by {@link Policy#FIFO}. */
+	private long nextTicket;
+
+	/** The ticket of the thread that can take the lock next, only used by {@link Policy#FIFO}. */
+	private long servedTicket;
+
+	/** The times the thread took the read lock and when it took it the first time. */
+	private final ThreadLocal<long[]> readHolds;
+
+	/** When the active writer took the write lock. */
+	private long writerSince;
+
+	/** The statistics of the lock, null if it is not instrumented. */
+	private final LockStats stats;
+
 	/** The log4j2 logger. */
 	private static final Logger log = LogManager.getRootLogger();
 
@@ -58,10 +85,44 @@ public class ReadWriteLock {
 	 */
 	private final Object lock;
 
+	/**
+	 * Who gets the lock first when readers and writers are waiting for it.
+	 */
+	public static enum Policy {
+		/** New readers come in whenever no writer is active, so a steady stream of readers can starve the writers. */
+		READER_PREFERENCE,
+
+		/** New readers wait while a writer is waiting, so a steady stream of writers can starve the readers. */
+		WRITER_PREFERENCE,
+
+		/** The threads get the lock in the order they asked for it, and the readers next to each other in line share it. */
+		FIFO
+	}
+
 	/**
 	 * Initializes a new simple read/write lock.
 	 */
 	public ReadWriteLock() {
+		this(Policy.READER_PREFERENCE);
+	}
+
+	/**
+	 * Initializes a new read/write lock with the policy given.
+	 *
+	 * @param policy who goes first when readers and writers are waiting
+	 */
+	public ReadWriteLock(Policy policy) {
+		this(policy, false);
+	}
+
+	/**
+	 * Initializes a new read/write lock with the policy given, that can keep
+	 * statistics of how it is used.
+	 *
+	 * @param policy who goes first when readers and writers are waiting
+	 * @param instrumented true to keep the statistics given by {@link #stats()}
+	 */
+	public ReadWriteLock(Policy policy, boolean instrumented) {
 		readerLock = new SimpleReadLock();
 		writerLock = new SimpleWriteLock();
 
@@ -71,6 +132,10 @@ public class ReadWriteLock {
 		writers = 0;
 
 		activeWriter = null;
+
+		this.policy = policy;
+		this.readHolds = ThreadLocal.withInitial(() -> new long[2]);
+		this.stats = instrumented ? new LockStats() : null;
 	}
 
 	/**
@@ -78,6 +143,7 @@ public class ReadWriteLock {
 	 *
 	 * @return the reader lock
 	 */
+	@Override
 	public SimpleLock read() {
 		return readerLock;
 	}
@@ -87,6 +153,7 @@ public class ReadWriteLock {
 	 *
 	 * @return the writer lock
 	 */
+	@Override
 	public SimpleLock write() {
 		return writerLock;
 	}
@@ -113,6 +180,30 @@ public class ReadWriteLock {
 		}
 	}
 
+	/**
+	 * Returns the policy of the lock.
+	 *
+	 * @return who goes first when readers and writers are waiting
+	 */
+	public Policy policy() {
+		return policy;
+	}
+
+	/**
+	 * Returns a copy of the statistics of the lock.
+	 *
+	 * @return the statistics up to now, or null if the lock is not instrumented
+	 */
+	@Override
+	public LockStats stats() {
+		if (stats == null) {
+			return null;
+		}
+		synchronized (lock) {
+			return new LockStats(stats);
+		}
+	}
+
 	/**
 	 * Determines whether the thread running this code and the writer thread are in
 	 * fact the same thread.
@@ -128,6 +219,24 @@ public class ReadWriteLock {
 		}
 	}
 
+	/**
+	 * Waits for the lock object until the thread is notified, and keeps waiting
+	 * if it is interrupted so the locks are always acquired. Must be called while
+	 * holding the lock object.
+	 *
+	 * @return true if the thread was interrupted
+	 */
+	private boolean await() {
+		try {
+			lock.wait();
+			return false;
+		}
+		catch (InterruptedException ex) {
+			log.catching(Level.DEBUG, ex);
+			return true;
+		}
+	}
+
 	/**
 	 * A simple lock used for conditional synchronization as an alternative to using
 	 * a {@code synchronized} block.
@@ -157,30 +266,60 @@ public class ReadWriteLock {
 	private class SimpleReadLock implements SimpleLock {
 		/**
 		 * Controls access to the read lock. The active thread is forced to wait while
-		 * there are any active writers and it is not the active writer thread. Once
-		 * safe, the thread is allowed to acquire a read lock by incrementing the number
-		 * of active readers.
+		 * there are any active writers and it is not the active writer thread, and
+		 * depending on the policy while writers are waiting or it is not its turn.
+		 * A thread that already holds the read lock does not wait. Once safe, the
+		 * thread is allowed to acquire a read lock by incrementing the number of
+		 * active readers.
 		 */
 		@Override
 		public void lock() {
 			log.debug("Acquiring read lock...");
-			try {
-				synchronized (lock) {
-					while (writers > 0 && !isActiveWriter()) {
-						lock.wait();
+			long[] held = readHolds.get();
+			long start = stats != null ? System.nanoTime() : 0;
+			boolean interrupted = false;
+			synchronized (lock) {
+				boolean waits = held[0] == 0 && !isActiveWriter();
+				if (waits) {
+					long ticket = policy == Policy.FIFO ? nextTicket++ : 0;
+					while (!canRead(ticket)) {
+						interrupted |= await();
+					}
+					if (policy == Policy.FIFO) {
+						servedTicket++;
+						lock.notifyAll();
 					}
-					
-					readers++;
+				}
+
+				readers++;
+				if (stats != null && waits) {
+					held[1] = System.nanoTime();
+					stats.readAcquired(held[1] - start, readers);
 				}
 			}
-			catch (InterruptedException ex) {
-				log.catching(Level.DEBUG, ex);
+			held[0]++;
+			if (interrupted) {
 				Thread.currentThread().interrupt();
 			}
 
 			log.debug("Read lock acquired");
 		}
 
+		/**
+		 * Checks if a new reader can take the lock with the policy of the lock.
+		 * Must be called while holding the lock object.
+		 *
+		 * @param ticket the place of the reader in line, only used by {@link Policy#FIFO}
+		 * @return true if the reader can take the lock
+		 */
+		private boolean canRead(long ticket) {
+			return switch (policy) {
+				case READER_PREFERENCE -> writers == 0;
+				case WRITER_PREFERENCE -> writers == 0 && waitingWriters == 0;
+				case FIFO -> writers == 0 && ticket == servedTicket;
+			};
+		}
+
 		/**
 		 * Will decrease the number of active readers and notify any waiting threads if
 		 * necessary.
@@ -190,6 +329,7 @@ public class ReadWriteLock {
 		@Override
 		public void unlock() throws IllegalStateException{
 			log.debug("Dismantled read unlock...");
+			long[] held = readHolds.get();
 			try {
 				synchronized (lock) {
 					assert readers != 0;
@@ -197,12 +337,17 @@ public class ReadWriteLock {
 					if(readers == 0) {
 						lock.notifyAll();
 					}
+					if (held[0] == 1 && held[1] != 0) {
+						stats.readReleased(System.nanoTime() - held[1]);
+						held[1] = 0;
+					}
 				}
 			}catch (AssertionError ex){
 				log.catching(Level.DEBUG, ex);
 				throw new IllegalStateException("calling unlock when there is no readers avaiblable");
 			}
-			
+			held[0] = Math.max(held[0] - 1, 0);
+
 			log.debug("Read unlock dismantled");
 		}
 	}
@@ -214,28 +359,40 @@ public class ReadWriteLock {
 		/**
 		 * Controls access to the write lock. The active thread is forced to wait while
 		 * there are any active readers or writers, and it is not the active writer
-		 * thread. Once safe, the thread is allowed to acquire a write lock by
-		 * incrementing the number of active writers and setting the active writer
-		 * reference.
+		 * thread, and with {@link Policy#FIFO} while it is not its turn. Once safe,
+		 * the thread is allowed to acquire a write lock by incrementing the number of
+		 * active writers and setting the active writer reference.
 		 */
 		@Override
 		public void lock() {
 			log.debug("Acquiring write lock...");
-			try {
-				synchronized (lock) {
-					while ((writers > 0 || readers > 0) && !isActiveWriter()) {
-						lock.wait();
+			long start = stats != null ? System.nanoTime() : 0;
+			boolean interrupted = false;
+			synchronized (lock) {
+				if (!isActiveWriter()) {
+					long ticket = policy == Policy.FIFO ? nextTicket++ : 0;
+					waitingWriters++;
+					while (writers > 0 || readers > 0 || (policy == Policy.FIFO && ticket != servedTicket)) {
+						interrupted |= await();
+					}
+					waitingWriters--;
+					if (policy == Policy.FIFO) {
+						servedTicket++;
+					}
+					if (stats != null) {
+						writerSince = System.nanoTime();
+						stats.writeAcquired(writerSince - start);
 					}
-					writers++;
-					activeWriter = Thread.currentThread();
 				}
-			}catch (InterruptedException ex) {
-				log.catching(Level.DEBUG, ex);
+				writers++;
+				activeWriter = Thread.currentThread();
+			}
+			if (interrupted) {
 				Thread.currentThread().interrupt();
 			}
 			log.debug("Write lock acquired");
 		}
-		
+
 		/**
 		 * Will decrease the number of active writers and notify any waiting threads if
 		 * necessary. Also unsets the active writer if appropriate.
@@ -247,23 +404,26 @@ public class ReadWriteLock {
 		@Override
 		public void unlock() throws IllegalStateException, ConcurrentModificationException {
 			log.debug("Dimantelling write unlock...");
-			
+
 			synchronized (lock) {
 				assert writers != 0;
 				if(!isActiveWriter()) {
 					throw new ConcurrentModificationException("Trying yo awake innapropriate writer that does not hold the write lock");
 				}
 				writers--;
-					
+
 				if(writers == 0) {
 					activeWriter = null;
+					if (stats != null) {
+						stats.writeReleased(System.nanoTime() - writerSince);
+					}
 				}
-				
+
 				if(writers == 0) {
 					lock.notifyAll();
 				}
 			}
-			
+
 			log.debug("Write unlock dismantled");
 		}
 	}
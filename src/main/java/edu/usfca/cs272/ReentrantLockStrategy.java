@@ -0,0 +1,70 @@
+package edu.usfca.cs272;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import edu.usfca.cs272.ReadWriteLock.SimpleLock;
+
+/**
+ * Locks with the {@link ReentrantReadWriteLock} of Java. The readers do not
+ * take a monitor or log anything, they only change the state of the lock with
+ * one compare and swap when there is no writer.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class ReentrantLockStrategy implements LockStrategy {
+
+	/** the lock of Java */
+	private final ReentrantReadWriteLock lock;
+
+	/** the read lock seen as a simple lock */
+	private final SimpleLock read;
+
+	/** the write lock seen as a simple lock */
+	private final SimpleLock write;
+
+	/**
+	 * Constructor of a lock that is not fair
+	 */
+	public ReentrantLockStrategy() {
+		this.lock = new ReentrantReadWriteLock();
+		this.read = simple(lock.readLock());
+		this.write = simple(lock.writeLock());
+	}
+
+	/**
+	 * Sees a lock of Java as a simple lock.
+	 *
+	 * @param lock the lock of Java
+	 * @return the simple lock
+	 */
+	private static SimpleLock simple(Lock lock) {
+		return new SimpleLock() {
+			@Override
+			public void lock() {
+				lock.lock();
+			}
+
+			@Override
+			public void unlock() {
+				lock.unlock();
+			}
+		};
+	}
+
+	@Override
+	public SimpleLock read() {
+		return read;
+	}
+
+	@Override
+	public SimpleLock write() {
+		return write;
+	}
+
+	@Override
+	public String toString() {
+		return "reentrant";
+	}
+}
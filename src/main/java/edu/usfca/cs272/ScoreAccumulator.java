@@ -0,0 +1,157 @@
+package edu.usfca.cs272;
+
+import java.util.Arrays;
+
+/**
+ * Adds up the matches of a search in an int array indexed by document id, so
+ * going through the postings does not look anything up in a map or create any
+ * objects. The documents that got a match are kept in the order they were first
+ * seen, and only the entries of those documents are cleared after a search, so
+ * the arrays can be reused by the next search of the same thread.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class ScoreAccumulator {
+
+	/** The capacity given to the arrays of a new accumulator */
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	/** The accumulator of every thread, a search only uses the one of its thread */
+	private static final ThreadLocal<ScoreAccumulator> LOCAL = ThreadLocal.withInitial(ScoreAccumulator::new);
+
+	/** the amount of matches of every document indexed by id */
+	private int[] counts;
+
+	/** the score of every document indexed by id, only used by the searches with a scorer */
+	private double[] scores;
+
+	/** the documents with at least one match, only the first size are used */
+	private int[] documents;
+
+	/** the amount of documents with matches */
+	private int size;
+
+	/**
+	 * Constructor of an empty accumulator
+	 */
+	public ScoreAccumulator() {
+		this.counts = new int[DEFAULT_CAPACITY];
+		this.scores = new double[DEFAULT_CAPACITY];
+		this.documents = new int[DEFAULT_CAPACITY];
+		this.size = 0;
+	}
+
+	/**
+	 * Getter method of the empty accumulator of the current thread, it is cleared
+	 * by {@link #clear()} once the search is done with it.
+	 *
+	 * @param capacity the amount of documents of the index being searched
+	 * @return the accumulator of the current thread
+	 */
+	public static ScoreAccumulator get(int capacity) {
+		ScoreAccumulator accumulator = LOCAL.get();
+		accumulator.ensureCapacity(capacity);
+		return accumulator;
+	}
+
+	/**
+	 * Adds the matches found for a document
+	 *
+	 * @param document the id of the document
+	 * @param count the amount of matches, more than zero
+	 */
+	public void add(int document, int count) {
+		if (counts[document] == 0) {
+			documents[size++] = document;
+		}
+		counts[document] += count;
+	}
+
+	/**
+	 * Adds the matches found for a document and the score they give it
+	 *
+	 * @param document the id of the document
+	 * @param count the amount of matches, more than zero
+	 * @param score the score of the matches
+	 */
+	public void add(int document, int count, double score) {
+		add(document, count);
+		scores[document] += score;
+	}
+
+	/**
+	 * The amount of documents with matches
+	 *
+	 * @return the amount of documents
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Getter method of a document with matches
+	 *
+	 * @param index of the document, between 0 and size
+	 * @return the id of the document
+	 */
+	public int getDocument(int index) {
+		return documents[index];
+	}
+
+	/**
+	 * Getter method of the matches of a document
+	 *
+	 * @param document the id of the document
+	 * @return the amount of matches added for it
+	 */
+	public int getCount(int document) {
+		return counts[document];
+	}
+
+	/**
+	 * Getter method of the score of a document
+	 *
+	 * @param document the id of the document
+	 * @return the score added for it
+	 */
+	public double getScore(int document) {
+		return scores[document];
+	}
+
+	/**
+	 * Clears the counts of the documents with matches so the arrays can be used
+	 * by the next search.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			counts[documents[i]] = 0;
+			scores[documents[i]] = 0;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Makes sure the arrays can hold the amount of documents given, used when the
+	 * index gets more documents while it is being searched.
+	 *
+	 * @param capacity the amount of documents needed
+	 */
+	public void ensureCapacity(int capacity) {
+		if (capacity > counts.length) {
+			int grown = Math.max(counts.length * 2, capacity);
+			counts = Arrays.copyOf(counts, grown);
+			scores = Arrays.copyOf(scores, grown);
+			documents = Arrays.copyOf(documents, grown);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("{");
+		for (int i = 0; i < size; i++) {
+			builder.append(i > 0 ? ", " : "").append(documents[i]).append('=').append(counts[documents[i]]);
+		}
+		return builder.append('}').toString();
+	}
+}
@@ -0,0 +1,127 @@
+package edu.usfca.cs272;
+
+/**
+ * The statistics a {@link Scorer} needs for one index, computed once so the
+ * search does not derive anything from the index while it scores: the weight
+ * of every possible document frequency and the norm of every document.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class ScoreTable {
+
+	/** the scorer of the table */
+	private final Scorer scorer;
+
+	/** the weight of a word indexed by the amount of documents that have it */
+	private final double[] weights;
+
+	/** the norm of every document indexed by id */
+	private final double[] norms;
+
+	/** the average amount of words of the documents */
+	private final double averageLength;
+
+	/**
+	 * Constructor that computes the statistics of the documents given
+	 *
+	 * @param scorer the scorer to compute them with
+	 * @param documents the document table of the index
+	 */
+	public ScoreTable(Scorer scorer, DocumentTable documents) {
+		this(scorer, documents, documents.size() - documents.numDeleted(), averageLength(documents));
+	}
+
+	/**
+	 * Constructor of the statistics of some of the documents of a bigger
+	 * collection, the weights and the norms use the amount of documents and the
+	 * average length of the whole collection so the scores are the same as if it
+	 * was a single index.
+	 *
+	 * @param scorer the scorer to compute them with
+	 * @param documents the document table of the part of the collection
+	 * @param size the amount of documents of the whole collection
+	 * @param averageLength the average amount of words of the whole collection
+	 */
+	public ScoreTable(Scorer scorer, DocumentTable documents, int size, double averageLength) {
+		this.scorer = scorer;
+		this.averageLength = averageLength;
+		this.norms = new double[documents.size()];
+		for (int document = 0; document < norms.length; document++) {
+			norms[document] = scorer.norm(documents.getCount(document), averageLength);
+		}
+		this.weights = new double[size + 1];
+		for (int frequency = 0; frequency <= size; frequency++) {
+			weights[frequency] = scorer.weight(frequency, size);
+		}
+	}
+
+	/**
+	 * The average amount of words of the documents that were not removed
+	 *
+	 * @param documents the document table of the index
+	 * @return the average length or 0 if there are no documents
+	 */
+	private static double averageLength(DocumentTable documents) {
+		int live = documents.size() - documents.numDeleted();
+		long total = 0;
+		for (int document = 0; document < documents.size(); document++) {
+			if (!documents.isDeleted(document)) {
+				total += documents.getCount(document);
+			}
+		}
+		return live > 0 ? (double) total / live : 0;
+	}
+
+	/**
+	 * Getter method of the scorer of the table
+	 *
+	 * @return the scorer
+	 */
+	public Scorer getScorer() {
+		return scorer;
+	}
+
+	/**
+	 * Getter method of the weight of a word
+	 *
+	 * @param frequency the amount of documents with the word
+	 * @return the weight of the word
+	 */
+	public double weight(int frequency) {
+		return weights[Math.min(frequency, weights.length - 1)];
+	}
+
+	/**
+	 * Getter method of the norm of a document
+	 *
+	 * @param document the id of the document
+	 * @return the norm of the document
+	 */
+	public double norm(int document) {
+		return norms[document];
+	}
+
+	/**
+	 * The amount of documents the weights were computed for
+	 *
+	 * @return the amount of documents
+	 */
+	public int size() {
+		return weights.length - 1;
+	}
+
+	/**
+	 * Getter method of the average amount of words of the documents
+	 *
+	 * @return the average length
+	 */
+	public double getAverageLength() {
+		return averageLength;
+	}
+
+	@Override
+	public String toString() {
+		return scorer + " over " + norms.length + " documents with average length " + averageLength;
+	}
+}
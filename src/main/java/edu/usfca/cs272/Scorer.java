@@ -0,0 +1,67 @@
+package edu.usfca.cs272;
+
+/**
+ * The way a search turns the matches of the words into the score of a location.
+ * The score of a location is the sum of the scores of every word of the search
+ * in it, and every word score is split in three parts so the parts that do not
+ * depend on the query are computed once for the whole index in a
+ * {@link ScoreTable}: the weight of a word only depends on how many documents
+ * have it, and the norm of a document only depends on its length.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public interface Scorer {
+
+	/** The original score, the matches of the location over its amount of words */
+	public static final Scorer COUNT = new CountScorer();
+
+	/** Okapi BM25 with the usual parameters */
+	public static final Scorer BM25 = new BM25Scorer(1.2, 0.75);
+
+	/** The matches over the amount of words weighted by the inverse document frequency */
+	public static final Scorer TF_IDF = new TfIdfScorer();
+
+	/**
+	 * The weight of a word, computed once for every document frequency.
+	 *
+	 * @param frequency the amount of documents with the word
+	 * @param documents the amount of documents in the index
+	 * @return the weight of the word
+	 */
+	public double weight(int frequency, int documents);
+
+	/**
+	 * The norm of a document, computed once for every document of the index.
+	 *
+	 * @param length the amount of words of the document
+	 * @param averageLength the average amount of words of the documents of the index
+	 * @return the norm of the document
+	 */
+	public double norm(int length, double averageLength);
+
+	/**
+	 * The score a word gives to a document.
+	 *
+	 * @param count the amount of times the word shows up in the document
+	 * @param weight the weight of the word
+	 * @param norm the norm of the document
+	 * @return the score of the word in the document
+	 */
+	public double score(int count, double weight, double norm);
+
+	/**
+	 * Finds one of the scorers by its name, used by the command line.
+	 *
+	 * @param name count, bm25 or tfidf in any case
+	 * @return the scorer or null if there is no scorer with that name
+	 */
+	public static Scorer forName(String name) {
+		return switch (name.toLowerCase()) {
+			case "count" -> COUNT;
+			case "bm25" -> BM25;
+			case "tfidf", "tf-idf" -> TF_IDF;
+			default -> null;
+		};
+	}
+}
@@ -0,0 +1,1332 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Inverted index that keeps taking new documents while it is being searched.
+ * The new documents go into a small buffer, and once the buffer has enough
+ * documents it is frozen into an immutable segment. The searches go through all
+ * the segments and the buffer and add up the matches of every location. In the
+ * background, a work queue merges segments of about the same size into bigger
+ * ones so the amount of segments stays small.
+ *
+ * <p>
+ * The lock only covers the buffer and the document table of the whole index,
+ * writers hold it while they add a local index to the buffer or flush it, but
+ * merging segments happens without it. The segments themselves are never
+ * changed, the list of segments is replaced every time one is added or merged.
+ *
+ * <p>
+ * A merge reads the compressed postings of the segments one after the other
+ * straight into the new segment, and the segments can be frozen outside of the
+ * heap, so while a big crawl is going on only the buffer and the document table
+ * of the whole index are left for the garbage collector to go through.
+ *
+ * <p>
+ * A removed location is a tombstone in the document table of the whole index,
+ * the segments keep its postings and the searches skip its id. A merge leaves
+ * out the locations removed before it started, and {@link #purge()} rewrites
+ * the segments that still have any and gives the locations left new ids.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class SegmentedInvertedIndex extends InvertedIndex {
+
+	/** The default amount of documents in the buffer before it is flushed */
+	public static final int DEFAULT_FLUSH = 64;
+
+	/** The amount of segments of the same size level that are merged together */
+	public static final int MERGE_FACTOR = 4;
+
+	/** Logger used for this class. */
+	private static final Logger log = LogManager.getLogger();
+
+	/** the lock for the buffer and the document table */
+	private final ReadWriteLock lock;
+
+	/** the amount of documents in the buffer before it is flushed */
+	private final int flushSize;
+
+	/** true if the segments keep their postings outside of the heap */
+	private final boolean offHeap;
+
+	/** the work queue that merges the segments in the background */
+	private final WorkQueue merger;
+
+	/** the segments being merged right now, also used to synchronize the merge policy */
+	private final Set<Segment> merging;
+
+	/** the newest documents, not part of any segment yet */
+	private InvertedIndex buffer;
+
+	/** the immutable list of segments */
+	private volatile List<Segment> segments;
+
+	/**
+	 * true once a location got postings in more than one part, which only the
+	 * {@link View} adds up right since the parts can repeat its positions
+	 */
+	private boolean split;
+
+	/**
+	 * the times a location was removed or the removed ones purged, so a search
+	 * that went through the segments without the lock can tell its ids changed
+	 */
+	private int removals;
+
+	/**
+	 * Constructor with the default amount of merge threads and flush size
+	 */
+	public SegmentedInvertedIndex() {
+		this(WorkQueue.DEFAULT, DEFAULT_FLUSH);
+	}
+
+	/**
+	 * Constructor of the segmented index
+	 *
+	 * @param threads the amount of threads that merge segments
+	 * @param flushSize the amount of documents in the buffer before it is flushed into a segment
+	 */
+	public SegmentedInvertedIndex(int threads, int flushSize) {
+		this(threads, flushSize, false);
+	}
+
+	/**
+	 * Constructor of the segmented index that can keep its segments off the heap
+	 *
+	 * @param threads the amount of threads that merge segments
+	 * @param flushSize the amount of documents in the buffer before it is flushed into a segment
+	 * @param offHeap true to freeze the segments into direct buffers
+	 */
+	public SegmentedInvertedIndex(int threads, int flushSize, boolean offHeap) {
+		super();
+		this.lock = new ReadWriteLock();
+		this.flushSize = Math.max(flushSize, 1);
+		this.offHeap = offHeap;
+		this.merger = new WorkQueue(threads);
+		this.merging = new HashSet<>();
+		this.buffer = new InvertedIndex();
+		this.segments = List.of();
+	}
+
+	/**
+	 * A frozen part of the index with the id that every one of its documents has
+	 * in the document table of the whole index.
+	 */
+	private static class Segment {
+		/** the frozen postings of the segment */
+		private final FrozenInvertedIndex index;
+
+		/** the id in the whole index of every document id of the segment */
+		private final int[] documents;
+
+		/**
+		 * Constructor of a segment
+		 *
+		 * @param index the frozen postings
+		 * @param documents the ids in the whole index
+		 */
+		public Segment(FrozenInvertedIndex index, int[] documents) {
+			this.index = index;
+			this.documents = documents;
+			// segments come and go with every flush and merge, so they do not keep a prefix cache each
+			this.index.setCacheBudget(0);
+		}
+	}
+
+	/**
+	 * The postings are not kept in the maps of the parent, so they are copied
+	 * with {@link #addAll(InvertedIndex)} instead of being moved.
+	 */
+	@Override
+	protected void absorb(InvertedIndex other) {
+		addAll(other);
+	}
+
+	/**
+	 * Adds the documents of the local index to the buffer, flushing the buffer when it is full.
+	 *
+	 * @param other the local index to add
+	 */
+	@Override
+	public void addAll(InvertedIndex other) {
+		lock.write().lock();
+		try {
+			InvertedIndex source = other.version();
+			DocumentTable local = source.documents();
+			for (int document = 0; document < local.size(); document++) {
+				if (local.isDeleted(document)) {
+					continue;
+				}
+				String location = local.getLocation(document);
+				checkSplit(location);
+				documents().updateCount(documents().add(location), local.getCount(document));
+			}
+			buffer.addAll(source);
+			// the statistics of the scorers are of the whole document table
+			changed();
+			if (buffer.documents().size() >= flushSize) {
+				flushBuffer();
+			}
+		}
+		finally {
+			lock.write().unlock();
+		}
+	}
+
+	@Override
+	public boolean addPosition(String word, String location, int count) {
+		lock.write().lock();
+		try {
+			checkSplit(location);
+			documents().updateCount(documents().add(location), count);
+			changed();
+			boolean added = buffer.addPosition(word, location, count);
+			if (buffer.documents().size() >= flushSize) {
+				flushBuffer();
+			}
+			return added;
+		}
+		finally {
+			lock.write().unlock();
+		}
+	}
+
+	/**
+	 * Remembers if the location is already in a segment but not in the buffer, so
+	 * adding it to the buffer splits it. Must be called while holding the write lock.
+	 *
+	 * @param location the location about to be added to the buffer
+	 */
+	private void checkSplit(String location) {
+		if (!split && documents().contains(location) && !buffer.documents().contains(location)) {
+			split = true;
+			log.debug("{} is split across the parts of the index", location);
+		}
+	}
+
+	/**
+	 * Removes a location from the whole index and from the buffer. The segments
+	 * are never changed, so their postings of the location stay until a merge or
+	 * {@link #purge()} leaves them out, and the searches skip its id meanwhile.
+	 */
+	@Override
+	public boolean removeLocation(String location) {
+		lock.write().lock();
+		try {
+			if (!super.removeLocation(location)) {
+				return false;
+			}
+			buffer.removeLocation(location);
+			removals++;
+			return true;
+		}
+		finally {
+			lock.write().unlock();
+		}
+	}
+
+	@Override
+	public void replaceLocation(String location, InvertedIndex other) {
+		lock.write().lock();
+		try {
+			super.replaceLocation(location, other);
+		}
+		finally {
+			lock.write().unlock();
+		}
+	}
+
+	@Override
+	public int numRemoved() {
+		lock.read().lock();
+		try {
+			return super.numRemoved();
+		}
+		finally {
+			lock.read().unlock();
+		}
+	}
+
+	/**
+	 * Takes the removed locations out of the segments and the buffer and gives the
+	 * locations left new ids. Only the segments with a removed location are frozen
+	 * again, and the merges that were going on are thrown away when they are done
+	 * since their segments are not in the index anymore.
+	 */
+	@Override
+	public void purge() {
+		lock.write().lock();
+		try {
+			if (documents().numDeleted() == 0) {
+				return;
+			}
+
+			List<FrozenInvertedIndex> live = new ArrayList<>();
+			for (Segment segment : segments) {
+				List<String> removed = removedLocations(segment, null);
+				FrozenInvertedIndex index = removed.isEmpty() ? segment.index : without(segment.index, removed).freeze(offHeap);
+				if (index.documents().size() > 0) {
+					live.add(index);
+				}
+			}
+			buffer.purge();
+			super.purge();
+
+			// every location left has a single id, so the new ids are looked up by location
+			List<Segment> updated = new ArrayList<>();
+			for (FrozenInvertedIndex index : live) {
+				updated.add(new Segment(index, globalIds(index)));
+			}
+			segments = Collections.unmodifiableList(updated);
+			removals++;
+			log.debug("Purged the removed locations, {} segments", updated.size());
+		}
+		finally {
+			lock.write().unlock();
+		}
+		mergeIfNeeded();
+	}
+
+	/**
+	 * Looks up the locations of a segment that were removed from the whole index.
+	 * Must be called while holding the lock.
+	 *
+	 * @param segment the segment to check
+	 * @param live where to put the id in the whole index of every location that was not removed, or null
+	 * @return the locations of the segment that were removed
+	 */
+	private List<String> removedLocations(Segment segment, Map<String, Integer> live) {
+		List<String> removed = new ArrayList<>();
+		DocumentTable local = segment.index.documents();
+		for (int document = 0; document < segment.documents.length; document++) {
+			int id = segment.documents[document];
+			if (documents().isDeleted(id)) {
+				removed.add(local.getLocation(document));
+			}
+			else if (live != null) {
+				live.put(local.getLocation(document), id);
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Copies a part of the index leaving out some locations.
+	 *
+	 * @param index the part to copy
+	 * @param removed the locations to leave out
+	 * @return the part itself if there is nothing to leave out, or the copy
+	 */
+	private static InvertedIndex without(InvertedIndex index, List<String> removed) {
+		if (removed.isEmpty()) {
+			return index;
+		}
+		InvertedIndex copy = new InvertedIndex();
+		copy.addAll(index);
+		removed.forEach(copy::removeLocation);
+		return copy;
+	}
+
+	/**
+	 * Freezes the buffer into a new segment. Must be called while holding the write lock.
+	 */
+	private void flushBuffer() {
+		if (buffer.documents().size() == 0) {
+			return;
+		}
+
+		FrozenInvertedIndex frozen = buffer.freeze(offHeap);
+		buffer = new InvertedIndex();
+
+		List<Segment> updated = new ArrayList<>(segments);
+		updated.add(new Segment(frozen, globalIds(frozen)));
+		segments = Collections.unmodifiableList(updated);
+		log.debug("Flushed a segment with {} documents, {} segments", frozen.documents().size(), updated.size());
+		mergeIfNeeded();
+	}
+
+	/**
+	 * Looks up the id that every document of the segment has in the whole index.
+	 * Must be called while holding the lock.
+	 *
+	 * @param frozen the frozen postings of the segment
+	 * @return the ids in the whole index
+	 */
+	private int[] globalIds(FrozenInvertedIndex frozen) {
+		DocumentTable local = frozen.documents();
+		int[] ids = new int[local.size()];
+		for (int document = 0; document < ids.length; document++) {
+			ids[document] = documents().getId(local.getLocation(document));
+		}
+		return ids;
+	}
+
+	/**
+	 * The merge policy: it puts every segment that is not being merged in a size
+	 * level, where every level holds segments {@value #MERGE_FACTOR} times bigger
+	 * than the one before, and merges the segments of any level that has enough of them.
+	 */
+	private void mergeIfNeeded() {
+		synchronized (merging) {
+			TreeMap<Integer, List<Segment>> levels = new TreeMap<>();
+			for (Segment segment : segments) {
+				if (!merging.contains(segment)) {
+					levels.computeIfAbsent(level(segment), level -> new ArrayList<>()).add(segment);
+				}
+			}
+
+			for (List<Segment> level : levels.values()) {
+				if (level.size() >= MERGE_FACTOR) {
+					List<Segment> parts = level.subList(0, MERGE_FACTOR);
+					merging.addAll(parts);
+					merger.execute(new MergeTask(new ArrayList<>(parts)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * The size level of a segment
+	 *
+	 * @param segment the segment to check
+	 * @return the level, 0 for segments smaller than {@value #MERGE_FACTOR} flushes
+	 */
+	private int level(Segment segment) {
+		int level = 0;
+		long limit = (long) flushSize * MERGE_FACTOR;
+		while (segment.documents.length >= limit) {
+			level++;
+			limit *= MERGE_FACTOR;
+		}
+		return level;
+	}
+
+	/**
+	 * Read only view of some segments one after the other, so they can be frozen
+	 * into a single segment straight from their compressed postings without
+	 * building the maps of a normal index first. The documents of every segment
+	 * get the ids right after the ones of the segments before it, so the postings
+	 * of a word are the postings of every segment with the ids moved.
+	 */
+	private static class Concatenation extends InvertedIndex {
+
+		/** the segments in order */
+		private final List<Segment> parts;
+
+		/** the amount of documents before every segment */
+		private final int[] offsets;
+
+		/**
+		 * Constructor of the view
+		 *
+		 * @param parts the segments in order
+		 * @param offsets the amount of documents before every segment
+		 */
+		private Concatenation(List<Segment> parts, int[] offsets) {
+			super();
+			this.parts = parts;
+			this.offsets = offsets;
+		}
+
+		/**
+		 * Creates the view of the segments if no location is in more than one of them.
+		 *
+		 * @param parts the segments to put one after the other
+		 * @return the view or null if a location is in more than one segment
+		 */
+		public static Concatenation of(List<Segment> parts) {
+			Concatenation view = new Concatenation(parts, new int[parts.size()]);
+			DocumentTable documents = view.documents();
+			for (int i = 0; i < parts.size(); i++) {
+				view.offsets[i] = documents.size();
+				DocumentTable local = parts.get(i).index.documents();
+				for (int document = 0; document < local.size(); document++) {
+					int id = documents.add(local.getLocation(document));
+					if (id != view.offsets[i] + document) {
+						return null;
+					}
+					documents.updateCount(id, local.getCount(document));
+				}
+			}
+			return view;
+		}
+
+		@Override
+		protected Collection<String> words() {
+			TreeSet<String> words = new TreeSet<>();
+			for (Segment part : parts) {
+				words.addAll(part.index.words());
+			}
+			return words;
+		}
+
+		@Override
+		protected PostingsCursor postings(String word) {
+			PostingsCursor[] cursors = new PostingsCursor[parts.size()];
+			int total = 0;
+			for (int i = 0; i < cursors.length; i++) {
+				cursors[i] = parts.get(i).index.postings(word);
+				total += cursors[i] != null ? cursors[i].documents() : 0;
+			}
+			if (total == 0) {
+				return null;
+			}
+
+			int documents = total;
+			return new PostingsCursor() {
+				/** the segment of the current document */
+				private int part = 0;
+
+				/** true once the first document was read */
+				private boolean started = false;
+
+				@Override
+				public boolean next() {
+					started = true;
+					while (part < cursors.length) {
+						if (cursors[part] != null && cursors[part].next()) {
+							return true;
+						}
+						part++;
+					}
+					return false;
+				}
+
+				@Override
+				public boolean advance(int target) {
+					if (started && part < cursors.length && document() >= target) {
+						return true;
+					}
+					while (next()) {
+						if (document() >= target) {
+							return true;
+						}
+					}
+					return false;
+				}
+
+				@Override
+				public int document() {
+					return offsets[part] + cursors[part].document();
+				}
+
+				@Override
+				public int count() {
+					return cursors[part].count();
+				}
+
+				@Override
+				public PositionList positions() {
+					return cursors[part].positions();
+				}
+
+				@Override
+				public int documents() {
+					return documents;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Task that merges some segments into a single one and puts it in their place.
+	 */
+	private class MergeTask implements Runnable {
+
+		/** the segments to merge */
+		private final List<Segment> parts;
+
+		/**
+		 * Constructor of the task
+		 *
+		 * @param parts the segments to merge
+		 */
+		public MergeTask(List<Segment> parts) {
+			this.parts = parts;
+		}
+
+		/**
+		 * Merges the segments and puts the new one in their place. The segments are
+		 * taken out of the merging ones even if the merge fails, so the merge policy
+		 * can pick them again with the next flush.
+		 */
+		@Override
+		public void run() {
+			try {
+				merge();
+			}
+			finally {
+				synchronized (merging) {
+					parts.forEach(merging::remove);
+				}
+			}
+			mergeIfNeeded();
+		}
+
+		/**
+		 * Freezes the segments into a single one and replaces them in the list,
+		 * leaving out the locations removed before the merge started. The new segment
+		 * keeps the ids the locations had in the segments, so a location removed
+		 * during the merge keeps its tombstone and is still skipped by the searches.
+		 */
+		private void merge() {
+			Map<String, Integer> live = new HashMap<>();
+			List<List<String>> removed = new ArrayList<>();
+			boolean removing = false;
+			lock.read().lock();
+			try {
+				for (Segment part : parts) {
+					removed.add(removedLocations(part, live));
+					removing |= !removed.get(removed.size() - 1).isEmpty();
+				}
+			}
+			finally {
+				lock.read().unlock();
+			}
+
+			InvertedIndex merged = removing ? null : Concatenation.of(parts);
+			if (merged == null) {
+				// a location is in more than one segment or was removed, so the postings have to be copied
+				merged = new InvertedIndex();
+				for (int i = 0; i < parts.size(); i++) {
+					merged.addAll(without(parts.get(i).index, removed.get(i)));
+				}
+			}
+			FrozenInvertedIndex frozen = merged.freeze(offHeap);
+			DocumentTable local = frozen.documents();
+			int[] ids = new int[local.size()];
+			for (int document = 0; document < ids.length; document++) {
+				ids[document] = live.get(local.getLocation(document));
+			}
+
+			lock.write().lock();
+			try {
+				if (!segments.containsAll(parts)) {
+					log.debug("Dropped the merge of {} segments that were purged", parts.size());
+					return;
+				}
+				List<Segment> updated = new ArrayList<>(segments);
+				updated.removeAll(parts);
+				if (ids.length > 0) {
+					updated.add(new Segment(frozen, ids));
+				}
+				segments = Collections.unmodifiableList(updated);
+				log.debug("Merged {} segments into one with {} documents", parts.size(), ids.length);
+			}
+			finally {
+				lock.write().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Flushes the buffer into a segment so all the documents are in segments.
+	 */
+	public void flush() {
+		lock.write().lock();
+		try {
+			flushBuffer();
+		}
+		finally {
+			lock.write().unlock();
+		}
+	}
+
+	/**
+	 * Flushes the buffer and waits for all the merges in progress to be done.
+	 */
+	public void finish() {
+		flush();
+		merger.finish();
+	}
+
+	/**
+	 * Flushes the buffer, waits for the merges in progress and stops the merge
+	 * threads. The index can still be searched but not merged anymore.
+	 */
+	public void close() {
+		flush();
+		merger.join();
+	}
+
+	/**
+	 * The amount of segments the index has right now
+	 *
+	 * @return the amount of segments
+	 */
+	public int numSegments() {
+		return segments.size();
+	}
+
+	/**
+	 * Getter method of the segments and the buffer, must be called while holding the read lock.
+	 *
+	 * @return all the parts of the index
+	 */
+	private List<InvertedIndex> parts() {
+		List<InvertedIndex> parts = new ArrayList<>();
+		for (Segment segment : segments) {
+			parts.add(segment.index);
+		}
+		parts.add(buffer);
+		return parts;
+	}
+
+	@Override
+	public List<PageScore> search(Set<String> queries, boolean exact) {
+		return search(queries, List.of(), exact, 0);
+	}
+
+	/**
+	 * Searches every segment and the buffer and adds up the matches of every
+	 * location before creating the page scores. The list of segments is taken
+	 * together with the matches of the buffer while holding the lock, so a flush
+	 * can not move documents from the buffer to a segment the search does not
+	 * see, and then the segments are searched without it. The matches of a
+	 * location can be spread over many segments, so the bounds of a single segment
+	 * do not hold for the whole index and the full search is cut to the limit.
+	 *
+	 * <p>
+	 * A required or excluded word can not be checked in one segment at a time, the
+	 * statistics of the other scorers depend on every part at once, and the count
+	 * of a location split across parts is the size of its merged positions, so
+	 * those searches go through a {@link View} of all the parts with the ids of the
+	 * whole index while holding the lock.
+	 */
+	@Override
+	public List<PageScore> search(Set<String> queries, Collection<List<String>> phrases, boolean exact, int limit, Scorer scorer) {
+		if (scorer == Scorer.COUNT && !Query.hasOperators(queries)) {
+			List<PageScore> pageScores = countSearch(queries, phrases, exact);
+			if (pageScores != null) {
+				return limit > 0 && pageScores.size() > limit ? new ArrayList<>(pageScores.subList(0, limit)) : pageScores;
+			}
+		}
+
+		lock.read().lock();
+		try {
+			return new View(segments, false).search(queries, phrases, exact, limit, scorer);
+		}
+		finally {
+			lock.read().unlock();
+		}
+	}
+
+	/**
+	 * Adds up the counts of every part in the accumulator, searching the segments
+	 * without the lock.
+	 *
+	 * @param queries the words of the search
+	 * @param phrases the words of every phrase in order
+	 * @param exact check if its exact or partial for the words
+	 * @return the sorted page scores or null if a location is split across parts or removed
+	 */
+	private List<PageScore> countSearch(Set<String> queries, Collection<List<String>> phrases, boolean exact) {
+		ScoreAccumulator accumulator = ScoreAccumulator.get(0);
+		try {
+			List<Segment> current;
+			int seen;
+			lock.read().lock();
+			try {
+				if (split || documents().numDeleted() > 0) {
+					return null;
+				}
+				current = segments;
+				seen = removals;
+				// every segment in the list has ids below the size of the table right now
+				accumulator.ensureCapacity(documents().size());
+				DocumentTable local = buffer.documents();
+				for (PostingsCursor postings : matches(buffer, queries, phrases, exact)) {
+					while (postings.next()) {
+						accumulator.add(documents().getId(local.getLocation(postings.document())), postings.count());
+					}
+				}
+			}
+			finally {
+				lock.read().unlock();
+			}
+
+			for (Segment segment : current) {
+				for (PostingsCursor postings : matches(segment.index, queries, phrases, exact)) {
+					while (postings.next()) {
+						accumulator.add(segment.documents[postings.document()], postings.count());
+					}
+				}
+			}
+
+			lock.read().lock();
+			try {
+				// a location removed meanwhile would be in the results, and a purge changes the ids
+				return removals == seen ? createScores(accumulator) : null;
+			}
+			finally {
+				lock.read().unlock();
+			}
+		}
+		finally {
+			accumulator.clear();
+		}
+	}
+
+	/**
+	 * Read only view of the segments and the buffer with the ids of the whole
+	 * index, so the searches that need the postings of a word in order of id and
+	 * the output go through the parts without copying them into a new index. The
+	 * postings of a word are gathered from every part and sorted by their id in
+	 * the whole index, and the positions are only looked up for the documents
+	 * that need them unless the view is made to read all of them. The removed
+	 * locations are skipped by their id in the whole index. The statistics of the
+	 * scorers are the ones of the whole index, kept until it changes.
+	 *
+	 * <p>
+	 * The buffer and the document table can change, so a view must only be made
+	 * and used while holding the read lock.
+	 */
+	private class View extends InvertedIndex {
+
+		/** the frozen postings of every segment and the buffer at the end */
+		private final List<InvertedIndex> parts;
+
+		/** the id in the whole index of every document id of every part */
+		private final List<int[]> ids;
+
+		/** true to read the positions of every posting while gathering them */
+		private final boolean positions;
+
+		/**
+		 * Constructor of the view, must be called while holding the read lock.
+		 *
+		 * @param segments the segments to go through besides the buffer
+		 * @param positions true if the positions of most postings will be read, like the output does
+		 */
+		private View(List<Segment> segments, boolean positions) {
+			super(SegmentedInvertedIndex.this.documents());
+			this.parts = new ArrayList<>();
+			this.ids = new ArrayList<>();
+			this.positions = positions;
+			for (Segment segment : segments) {
+				parts.add(segment.index);
+				ids.add(segment.documents);
+			}
+			DocumentTable local = buffer.documents();
+			int[] bufferIds = new int[local.size()];
+			for (int document = 0; document < bufferIds.length; document++) {
+				bufferIds[document] = documents().getId(local.getLocation(document));
+			}
+			parts.add(buffer);
+			ids.add(bufferIds);
+			// every view is used for one search, so caching its prefixes would only copy them
+			setCacheBudget(0);
+		}
+
+		@Override
+		protected ScoreTable scoreTable(Scorer scorer) {
+			return SegmentedInvertedIndex.this.scoreTable(scorer);
+		}
+
+		@Override
+		protected Collection<String> words() {
+			TreeSet<String> words = new TreeSet<>();
+			for (InvertedIndex part : parts) {
+				words.addAll(part.words());
+			}
+			return words;
+		}
+
+		@Override
+		protected List<String> prefixWords(String prefix) {
+			TreeSet<String> words = new TreeSet<>();
+			for (InvertedIndex part : parts) {
+				words.addAll(part.prefixWords(prefix));
+			}
+			return new ArrayList<>(words);
+		}
+
+		@Override
+		protected List<PostingsCursor> prefixPostings(String prefix) {
+			List<PostingsCursor> postings = new ArrayList<>();
+			for (String word : prefixWords(prefix)) {
+				postings.add(postings(word));
+			}
+			return postings;
+		}
+
+		@Override
+		protected PositionList findPositions(String word, String location) {
+			PositionList found = null;
+			for (int i = 0; i < parts.size(); i++) {
+				InvertedIndex part = parts.get(i);
+				int document = part.documents().getId(location);
+				if (document < 0 || documents().isDeleted(ids.get(i)[document])) {
+					continue;
+				}
+				PositionList positions = part.findPositions(word, location);
+				if (positions != null) {
+					if (found == null) {
+						found = new PositionList();
+					}
+					found.merge(positions);
+				}
+			}
+			return found;
+		}
+
+		/**
+		 * Gathers the postings of the word from every part and sorts them by their id
+		 * in the whole index, merging the positions of a location that is in more than one part.
+		 */
+		@Override
+		protected PostingsCursor postings(String word) {
+			int total = 0;
+			PostingsCursor[] cursors = new PostingsCursor[parts.size()];
+			for (int i = 0; i < cursors.length; i++) {
+				cursors[i] = parts.get(i).postings(word);
+				total += cursors[i] != null ? cursors[i].documents() : 0;
+			}
+			if (total == 0) {
+				return null;
+			}
+
+			// the id in the whole index in the high half and the place it was read in the low half
+			long[] order = new long[total];
+			int[] counts = new int[total];
+			PositionList[] found = positions ? new PositionList[total] : null;
+			int size = 0;
+			for (int i = 0; i < cursors.length; i++) {
+				int[] global = ids.get(i);
+				while (cursors[i] != null && cursors[i].next()) {
+					if (documents().isDeleted(global[cursors[i].document()])) {
+						continue;
+					}
+					order[size] = (long) global[cursors[i].document()] << 32 | size;
+					counts[size] = cursors[i].count();
+					if (found != null) {
+						found[size] = cursors[i].positions();
+					}
+					size++;
+				}
+			}
+			Arrays.sort(order, 0, size);
+
+			int[] documents = new int[size];
+			int[] merged = new int[size];
+			PositionList[] lists = found != null ? new PositionList[size] : null;
+			int unique = 0;
+			for (int i = 0; i < size; i++) {
+				int document = (int) (order[i] >>> 32);
+				int read = (int) order[i];
+				if (unique > 0 && documents[unique - 1] == document) {
+					// the segments can have the same positions, which the location only has once
+					if (lists != null) {
+						PositionList both = new PositionList();
+						both.merge(lists[unique - 1]);
+						both.merge(found[read]);
+						lists[unique - 1] = both;
+						merged[unique - 1] = both.size();
+					}
+					else {
+						merged[unique - 1] = findPositions(word, View.this.documents().getLocation(document)).size();
+					}
+					continue;
+				}
+				documents[unique] = document;
+				merged[unique] = counts[read];
+				if (lists != null) {
+					lists[unique] = found[read];
+				}
+				unique++;
+			}
+
+			int length = unique;
+			return new PostingsCursor() {
+				/** the index of the current document */
+				private int current = -1;
+
+				@Override
+				public boolean next() {
+					current = Math.min(current + 1, length);
+					return current < length;
+				}
+
+				@Override
+				public boolean advance(int target) {
+					if (current >= length) {
+						return false;
+					}
+					if (current >= 0 && documents[current] >= target) {
+						return true;
+					}
+					int index = Arrays.binarySearch(documents, current + 1, length, target);
+					current = index >= 0 ? index : -index - 1;
+					return current < length;
+				}
+
+				@Override
+				public int document() {
+					return documents[current];
+				}
+
+				@Override
+				public int count() {
+					return merged[current];
+				}
+
+				@Override
+				public PositionList positions() {
+					if (lists != null) {
+						return lists[current];
+					}
+					return findPositions(word, View.this.documents().getLocation(documents[current]));
+				}
+
+				@Override
+				public int documents() {
+					return length;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Getter method of the cursors of the words and phrases of a search in one part
+	 * of the index.
+	 *
+	 * @param index the segment or the buffer
+	 * @param queries the words of the search
+	 * @param phrases the words of every phrase in order
+	 * @param exact check if its exact or partial for the words
+	 * @return the cursors of every match
+	 */
+	private static List<PostingsCursor> matches(InvertedIndex index, Set<String> queries, Collection<List<String>> phrases, boolean exact) {
+		List<PostingsCursor> matches = index.matchingPostings(queries, exact);
+		matches.addAll(index.phrasePostings(phrases));
+		return matches;
+	}
+
+	@Override
+	public List<PageScore> exactSearch(Set<String> queries) {
+		return search(queries, true);
+	}
+
+	@Override
+	public List<PageScore> partialSearch(Set<String> queries) {
+		return search(queries, false);
+	}
+
+	@Override
+	public int numWords() {
+		return getWords().size();
+	}
+
+	@Override
+	public Set<String> getWords() {
+		lock.read().lock();
+		try {
+			TreeSet<String> words = new TreeSet<>();
+			for (InvertedIndex part : parts()) {
+				words.addAll(part.words());
+			}
+			return Collections.unmodifiableSet(words);
+		}
+		finally {
+			lock.read().unlock();
+		}
+	}
+
+	@Override
+	public boolean containsWord(String word) {
+		lock.read().lock();
+		try {
+			for (InvertedIndex part : parts()) {
+				if (part.postings(word) != null) {
+					return true;
+				}
+			}
+			return false;
+		}
+		finally {
+			lock.read().unlock();
+		}
+	}
+
+	@Override
+	public int numLocations(String word) {
+		Set<String> locations = getLocations(word);
+		return locations != null ? locations.size() : -1;
+	}
+
+	@Override
+	public Set<String> getLocations(String word) {
+		lock.read().lock();
+		try {
+			return new View(segments, false).getLocations(word);
+		}
+		finally {
+			lock.read().unlock();
+		}
+	}
+
+	@Override
+	protected PositionList findPositions(String word, String location) {
+		lock.read().lock();
+		try {
+			return new View(segments, false).findPositions(word, location);
+		}
+		finally {
+			lock.read().unlock();
+		}
+	}
+
+	@Override
+	public int getCount(String location) {
+		lock.read().lock();
+		try {
+			return super.getCount(location);
+		}
+		finally {
+			lock.read().unlock();
+		}
+	}
+
+	@Override
+	public boolean containsLocation(String location) {
+		lock.read().lock();
+		try {
+			return super.containsLocation(location);
+		}
+		finally {
+			lock.read().unlock();
+		}
+	}
+
+	@Override
+	public Set<String> getLocationsFilesCounter() {
+		lock.read().lock();
+		try {
+			return super.getLocationsFilesCounter();
+		}
+		finally {
+			lock.read().unlock();
+		}
+	}
+
+	@Override
+	public void countToJSON(Path output) throws IOException {
+		lock.read().lock();
+		try {
+			super.countToJSON(output);
+		}
+		finally {
+			lock.read().unlock();
+		}
+	}
+
+	@Override
+	public void toJSON(Path path) throws IOException {
+		lock.read().lock();
+		try {
+			new View(segments, true).toJSON(path);
+		}
+		finally {
+			lock.read().unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		lock.read().lock();
+		try {
+			return new View(segments, true).toString();
+		}
+		finally {
+			lock.read().unlock();
+		}
+	}
+
+	/**
+	 * Freezes the postings of all the parts straight from a {@link View}, with the
+	 * ids of the whole index.
+	 */
+	@Override
+	public FrozenInvertedIndex freeze(boolean offHeap) {
+		lock.read().lock();
+		try {
+			return new View(segments, true).freeze(offHeap);
+		}
+		finally {
+			lock.read().unlock();
+		}
+	}
+
+	/**
+	 * Counts every part on its own and adds up the counts of the words, without
+	 * merging their postings. Only the buffer and the removed ids are read while
+	 * holding the lock, the segments can not change so the builders do not wait
+	 * for them.
+	 */
+	@Override
+	public IndexStats stats() {
+		IndexStats stats;
+		List<Segment> current;
+		Map<String, long[]> words = new HashMap<>();
+		BitSet removed = new BitSet();
+		lock.read().lock();
+		try {
+			stats = new IndexStats(documents().size() - documents().numDeleted());
+			stats.addBytes("documents", documents().bytes(), false);
+			current = segments;
+			count(buffer, null, null, words);
+			buffer.estimateBytes(stats);
+			for (Segment segment : current) {
+				for (int id : segment.documents) {
+					if (documents().isDeleted(id)) {
+						removed.set(id);
+					}
+				}
+			}
+		}
+		finally {
+			lock.read().unlock();
+		}
+
+		for (Segment segment : current) {
+			count(segment.index, segment.documents, removed, words);
+			segment.index.estimateBytes(stats);
+			stats.addBytes("segment ids", IndexStats.array(segment.documents.length, Integer.BYTES), false);
+		}
+		for (var entry : words.entrySet()) {
+			stats.addWord(entry.getKey(), (int) entry.getValue()[0], entry.getValue()[1]);
+		}
+		return stats;
+	}
+
+	/**
+	 * Adds the amount of documents and positions of every word of a part to the
+	 * ones already counted.
+	 *
+	 * @param part the part of the index to count
+	 * @param ids the id in the whole index of every document of the part, or null for the buffer
+	 * @param removed the ids in the whole index of the removed locations, or null for the buffer
+	 * @param words the amount of documents and positions of every word
+	 */
+	private static void count(InvertedIndex part, int[] ids, BitSet removed, Map<String, long[]> words) {
+		for (String word : part.words()) {
+			PostingsCursor postings = part.postings(word);
+			long[] counts = words.computeIfAbsent(word, key -> new long[2]);
+			while (postings != null && postings.next()) {
+				if (removed != null && removed.get(ids[postings.document()])) {
+					continue;
+				}
+				counts[0]++;
+				counts[1] += postings.count();
+			}
+		}
+	}
+
+	/**
+	 * Puts together the postings of the word in every part of the index, with the
+	 * ids of the document table of the whole index.
+	 *
+	 * @param word the word to look for
+	 * @return the postings of the word or null if no part has it
+	 */
+	private PostingList merged(String word) {
+		lock.read().lock();
+		try {
+			return mergedPostings(word);
+		}
+		finally {
+			lock.read().unlock();
+		}
+	}
+
+	/**
+	 * Puts together the postings of the word in every part of the index leaving
+	 * out the removed locations, must be called while holding the read lock.
+	 *
+	 * @param word the word to look for
+	 * @return the postings of the word or null if no part has it
+	 */
+	private PostingList mergedPostings(String word) {
+		PostingList merged = null;
+		for (Segment segment : segments) {
+			PostingsCursor postings = segment.index.postings(word);
+			if (postings != null && merged == null) {
+				merged = new PostingList();
+			}
+			while (postings != null && postings.next()) {
+				int document = segment.documents[postings.document()];
+				if (!documents().isDeleted(document)) {
+					merged.add(document, postings.positions());
+				}
+			}
+		}
+
+		PostingsCursor postings = buffer.postings(word);
+		if (postings != null && merged == null) {
+			merged = new PostingList();
+		}
+		while (postings != null && postings.next()) {
+			int document = documents().getId(buffer.documents().getLocation(postings.document()));
+			PositionList positions = new PositionList();
+			positions.merge(postings.positions());
+			merged.add(document, positions);
+		}
+		return merged;
+	}
+
+	@Override
+	protected PostingsCursor postings(String word) {
+		PostingList merged = merged(word);
+		return merged != null ? merged.cursor() : null;
+	}
+
+	/**
+	 * Looks up the words with the prefix in the sorted words of every part, and
+	 * puts together the postings of each while holding the read lock.
+	 */
+	@Override
+	protected List<PostingsCursor> prefixPostings(String prefix) {
+		lock.read().lock();
+		try {
+			TreeSet<String> words = new TreeSet<>();
+			for (InvertedIndex part : parts()) {
+				words.addAll(part.prefixWords(prefix));
+			}
+
+			List<PostingsCursor> postings = new ArrayList<>();
+			for (String word : words) {
+				PostingList merged = mergedPostings(word);
+				if (merged != null) {
+					postings.add(merged.cursor());
+				}
+			}
+			return postings;
+		}
+		finally {
+			lock.read().unlock();
+		}
+	}
+
+	@Override
+	protected Collection<String> words() {
+		return getWords();
+	}
+}
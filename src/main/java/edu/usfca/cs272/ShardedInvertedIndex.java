@@ -0,0 +1,622 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Thread safe inverted index that splits the words into shards by their hash,
+ * every shard with its own lock, so the threads that add local indexes at the
+ * same time only wait for each other when they touch the same shard. The
+ * document table is shared by all the shards and has a lock of its own, it is
+ * only held for writing while the locations of a local index get their ids.
+ *
+ * <p>
+ * A writer never holds more than one lock at a time, except for
+ * {@link #purge()}. The readers take the locks of the shards they need in
+ * increasing order and then the one of the document table, so they can not
+ * deadlock with each other or with a purge. An exact search only locks the
+ * shards of its words, a partial search needs all of them. Replacing a location
+ * is a removal and an addition, so the searches in between do not find it.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class ShardedInvertedIndex extends InvertedIndex {
+
+	/** The default amount of shards */
+	public static final int DEFAULT_SHARDS = 16;
+
+	/** the lock of the document table */
+	private final ReadWriteLock documentsLock;
+
+	/** the shards with the postings of the words that hash to each of them */
+	private final Shard[] shards;
+
+	/**
+	 * Constructor with the default amount of shards
+	 */
+	public ShardedInvertedIndex() {
+		this(DEFAULT_SHARDS);
+	}
+
+	/**
+	 * Constructor of the sharded index
+	 *
+	 * @param shards the amount of shards to split the words into
+	 */
+	public ShardedInvertedIndex(int shards) {
+		super();
+		this.documentsLock = new ReadWriteLock();
+		this.shards = new Shard[Math.max(shards, 1)];
+		for (int i = 0; i < this.shards.length; i++) {
+			this.shards[i] = new Shard(new InvertedIndex(documents()));
+		}
+	}
+
+	/**
+	 * The postings of some of the words with the lock that covers them. The index
+	 * of a shard shares the document table of the whole index, so its postings use
+	 * the ids of the whole index.
+	 */
+	private static class Shard {
+		/** the postings of the words of the shard */
+		private final InvertedIndex index;
+
+		/** the lock of the postings of the shard */
+		private final ReadWriteLock lock;
+
+		/**
+		 * Constructor of a shard
+		 *
+		 * @param index the postings of the shard
+		 */
+		public Shard(InvertedIndex index) {
+			this.index = index;
+			this.lock = new ReadWriteLock();
+			// the partial searches merge the prefixes of all the shards in the cache of the whole index
+			this.index.setCacheBudget(0);
+		}
+	}
+
+	/**
+	 * The amount of shards of the index
+	 *
+	 * @return the amount of shards
+	 */
+	public int numShards() {
+		return shards.length;
+	}
+
+	/**
+	 * Finds the shard of a word by its hash, spreading the high bits into the low
+	 * ones like a hash map does.
+	 *
+	 * @param word the word to look for
+	 * @return the index of the shard of the word
+	 */
+	private int shard(String word) {
+		int hash = word.hashCode();
+		return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+	}
+
+	/**
+	 * Takes the read locks of the shards given in order and then the one of the
+	 * document table.
+	 *
+	 * @param needed which shards to lock
+	 */
+	private void lockRead(boolean[] needed) {
+		for (int i = 0; i < shards.length; i++) {
+			if (needed[i]) {
+				shards[i].lock.read().lock();
+			}
+		}
+		documentsLock.read().lock();
+	}
+
+	/**
+	 * Releases the read locks taken by {@link #lockRead(boolean[])}.
+	 *
+	 * @param needed which shards were locked
+	 */
+	private void unlockRead(boolean[] needed) {
+		documentsLock.read().unlock();
+		for (int i = shards.length - 1; i >= 0; i--) {
+			if (needed[i]) {
+				shards[i].lock.read().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Marks every shard as needed
+	 *
+	 * @return the flags of all the shards
+	 */
+	private boolean[] all() {
+		boolean[] needed = new boolean[shards.length];
+		Arrays.fill(needed, true);
+		return needed;
+	}
+
+	/**
+	 * Marks the shard of a single word as needed
+	 *
+	 * @param word the word to look for
+	 * @return the flags with only the shard of the word
+	 */
+	private boolean[] only(String word) {
+		boolean[] needed = new boolean[shards.length];
+		needed[shard(word)] = true;
+		return needed;
+	}
+
+	/**
+	 * Finds the shards a search has to read, every shard for a partial search
+	 * and the shards of the words and phrases for an exact one.
+	 *
+	 * @param queries the words of the search with their operators
+	 * @param phrases the words of every phrase in order
+	 * @param exact check if its exact or partial for the words
+	 * @return the flags of the shards to lock
+	 */
+	private boolean[] shardsOf(Set<String> queries, Collection<List<String>> phrases, boolean exact) {
+		if (!exact && !queries.isEmpty()) {
+			return all();
+		}
+
+		boolean[] needed = new boolean[shards.length];
+		for (String query : queries) {
+			char operator = query.isEmpty() ? ' ' : query.charAt(0);
+			boolean stripped = operator == Query.REQUIRED || operator == Query.EXCLUDED;
+			needed[shard(stripped ? query.substring(1) : query)] = true;
+		}
+		for (List<String> phrase : phrases) {
+			for (String word : phrase) {
+				needed[shard(word)] = true;
+			}
+		}
+		return needed;
+	}
+
+	/**
+	 * Gives the locations of the local index their ids, then adds the postings of
+	 * every word holding only the lock of its shard, one shard at a time. The
+	 * statistics of the scorers are dropped before the lock of the document table
+	 * is let go, so no search can use a table without the new ids once their
+	 * postings are in a shard.
+	 */
+	@Override
+	public void addAll(InvertedIndex other) {
+		InvertedIndex source = other.version();
+		DocumentTable local = source.documents();
+		int[] ids = new int[local.size()];
+		documentsLock.write().lock();
+		try {
+			for (int document = 0; document < ids.length; document++) {
+				if (!local.isDeleted(document)) {
+					ids[document] = documents().add(local.getLocation(document));
+					documents().updateCount(ids[document], local.getCount(document));
+				}
+			}
+			changed();
+		}
+		finally {
+			documentsLock.write().unlock();
+		}
+
+		List<List<String>> words = new ArrayList<>(Collections.nCopies(shards.length, null));
+		for (String word : source.words()) {
+			int shard = shard(word);
+			if (words.get(shard) == null) {
+				words.set(shard, new ArrayList<>());
+			}
+			words.get(shard).add(word);
+		}
+
+		for (int i = 0; i < shards.length; i++) {
+			if (words.get(i) == null) {
+				continue;
+			}
+			shards[i].lock.write().lock();
+			try {
+				for (String word : words.get(i)) {
+					PostingsCursor others = source.postings(word);
+					PostingList postings = null;
+					while (others.next()) {
+						if (postings == null) {
+							postings = shards[i].index.postingList(word);
+						}
+						postings.add(ids[others.document()], others.positions());
+					}
+				}
+			}
+			finally {
+				shards[i].lock.write().unlock();
+			}
+		}
+		changed();
+	}
+
+	/**
+	 * The postings are not kept in the maps of the parent, so they are copied
+	 * with {@link #addAll(InvertedIndex)} instead of being moved.
+	 */
+	@Override
+	protected void absorb(InvertedIndex other) {
+		addAll(other);
+	}
+
+	@Override
+	public boolean addPosition(String word, String location, int count) {
+		int document;
+		documentsLock.write().lock();
+		try {
+			document = documents().add(location);
+			documents().updateCount(document, count);
+			changed();
+		}
+		finally {
+			documentsLock.write().unlock();
+		}
+
+		Shard shard = shards[shard(word)];
+		shard.lock.write().lock();
+		try {
+			return shard.index.postingList(word).getOrAdd(document).addPosition(count);
+		}
+		finally {
+			shard.lock.write().unlock();
+			changed();
+		}
+	}
+
+	@Override
+	public boolean removeLocation(String location) {
+		documentsLock.write().lock();
+		try {
+			return super.removeLocation(location);
+		}
+		finally {
+			documentsLock.write().unlock();
+		}
+	}
+
+	@Override
+	public int numRemoved() {
+		documentsLock.read().lock();
+		try {
+			return super.numRemoved();
+		}
+		finally {
+			documentsLock.read().unlock();
+		}
+	}
+
+	/**
+	 * Takes the write locks of every shard in order and then the one of the
+	 * document table, since every posting list gets the new ids.
+	 */
+	@Override
+	public void purge() {
+		for (Shard shard : shards) {
+			shard.lock.write().lock();
+		}
+		documentsLock.write().lock();
+		try {
+			super.purge();
+		}
+		finally {
+			documentsLock.write().unlock();
+			for (int i = shards.length - 1; i >= 0; i--) {
+				shards[i].lock.write().unlock();
+			}
+		}
+	}
+
+	@Override
+	protected void compact(int[] remap) {
+		for (Shard shard : shards) {
+			shard.index.compact(remap);
+		}
+	}
+
+	@Override
+	public List<PageScore> search(Set<String> queries, boolean exact) {
+		boolean[] needed = shardsOf(queries, List.of(), exact);
+		lockRead(needed);
+		try {
+			return super.search(queries, exact);
+		}
+		finally {
+			unlockRead(needed);
+		}
+	}
+
+	@Override
+	public List<PageScore> search(Set<String> queries, Collection<List<String>> phrases, boolean exact, int limit, Scorer scorer) {
+		boolean[] needed = shardsOf(queries, phrases, exact);
+		lockRead(needed);
+		try {
+			return super.search(queries, phrases, exact, limit, scorer);
+		}
+		finally {
+			unlockRead(needed);
+		}
+	}
+
+	/**
+	 * Getter method of the cursor of a word from its shard, the caller has to hold
+	 * the read lock of the shard.
+	 */
+	@Override
+	protected PostingsCursor postings(String word) {
+		return shards[shard(word)].index.postings(word);
+	}
+
+	/**
+	 * Merges the words of the prefix from every shard to keep them in order, the
+	 * caller has to hold the read lock of every shard.
+	 */
+	@Override
+	protected List<PostingsCursor> prefixPostings(String prefix) {
+		List<PostingsCursor> postings = new ArrayList<>();
+		for (String word : prefixWords(prefix)) {
+			postings.add(postings(word));
+		}
+		return postings;
+	}
+
+	@Override
+	protected List<String> prefixWords(String prefix) {
+		TreeSet<String> words = new TreeSet<>();
+		for (Shard shard : shards) {
+			words.addAll(shard.index.prefixWords(prefix));
+		}
+		return new ArrayList<>(words);
+	}
+
+	/**
+	 * Merges the words of every shard in order, the caller has to hold the read
+	 * lock of every shard.
+	 */
+	@Override
+	protected Collection<String> words() {
+		TreeSet<String> words = new TreeSet<>();
+		for (Shard shard : shards) {
+			words.addAll(shard.index.words());
+		}
+		return words;
+	}
+
+	@Override
+	public int numWords() {
+		int words = 0;
+		for (Shard shard : shards) {
+			shard.lock.read().lock();
+			try {
+				words += shard.index.numWords();
+			}
+			finally {
+				shard.lock.read().unlock();
+			}
+		}
+		return words;
+	}
+
+	@Override
+	public int numLocations(String word) {
+		boolean[] needed = only(word);
+		lockRead(needed);
+		try {
+			return shards[shard(word)].index.numLocations(word);
+		}
+		finally {
+			unlockRead(needed);
+		}
+	}
+
+	@Override
+	public int numPositions(String word, String location) {
+		boolean[] needed = only(word);
+		lockRead(needed);
+		try {
+			return shards[shard(word)].index.numPositions(word, location);
+		}
+		finally {
+			unlockRead(needed);
+		}
+	}
+
+	@Override
+	public boolean containsWord(String word) {
+		boolean[] needed = only(word);
+		lockRead(needed);
+		try {
+			return shards[shard(word)].index.containsWord(word);
+		}
+		finally {
+			unlockRead(needed);
+		}
+	}
+
+	@Override
+	public boolean containsLocation(String word, String location) {
+		boolean[] needed = only(word);
+		lockRead(needed);
+		try {
+			return shards[shard(word)].index.containsLocation(word, location);
+		}
+		finally {
+			unlockRead(needed);
+		}
+	}
+
+	@Override
+	public boolean containsPosition(String word, String location, int position) {
+		boolean[] needed = only(word);
+		lockRead(needed);
+		try {
+			return shards[shard(word)].index.containsPosition(word, location, position);
+		}
+		finally {
+			unlockRead(needed);
+		}
+	}
+
+	@Override
+	public Set<String> getWords() {
+		boolean[] needed = all();
+		lockRead(needed);
+		try {
+			return Collections.unmodifiableSet(new TreeSet<>(words()));
+		}
+		finally {
+			unlockRead(needed);
+		}
+	}
+
+	@Override
+	public Set<String> getLocations(String word) {
+		boolean[] needed = only(word);
+		lockRead(needed);
+		try {
+			return shards[shard(word)].index.getLocations(word);
+		}
+		finally {
+			unlockRead(needed);
+		}
+	}
+
+	@Override
+	public Set<Integer> getPositions(String word, String location) {
+		boolean[] needed = only(word);
+		lockRead(needed);
+		try {
+			return shards[shard(word)].index.getPositions(word, location);
+		}
+		finally {
+			unlockRead(needed);
+		}
+	}
+
+	@Override
+	public int getCount(String location) {
+		documentsLock.read().lock();
+		try {
+			return super.getCount(location);
+		}
+		finally {
+			documentsLock.read().unlock();
+		}
+	}
+
+	@Override
+	public boolean containsLocation(String location) {
+		documentsLock.read().lock();
+		try {
+			return super.containsLocation(location);
+		}
+		finally {
+			documentsLock.read().unlock();
+		}
+	}
+
+	@Override
+	public Set<String> getLocationsFilesCounter() {
+		documentsLock.read().lock();
+		try {
+			return super.getLocationsFilesCounter();
+		}
+		finally {
+			documentsLock.read().unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		boolean[] needed = all();
+		lockRead(needed);
+		try {
+			return super.toString();
+		}
+		finally {
+			unlockRead(needed);
+		}
+	}
+
+	@Override
+	public void toJSON(Path path) throws IOException {
+		boolean[] needed = all();
+		lockRead(needed);
+		try {
+			super.toJSON(path);
+		}
+		finally {
+			unlockRead(needed);
+		}
+	}
+
+	@Override
+	public void countToJSON(Path output) throws IOException {
+		documentsLock.read().lock();
+		try {
+			super.countToJSON(output);
+		}
+		finally {
+			documentsLock.read().unlock();
+		}
+	}
+
+	@Override
+	public FrozenInvertedIndex freeze(boolean offHeap) {
+		boolean[] needed = all();
+		lockRead(needed);
+		try {
+			return super.freeze(offHeap);
+		}
+		finally {
+			unlockRead(needed);
+		}
+	}
+
+	/**
+	 * Counts one shard at a time so the builders only wait for the shard being
+	 * counted, which means the numbers are not from one moment if the index is
+	 * changing while they are counted.
+	 */
+	@Override
+	public IndexStats stats() {
+		IndexStats stats;
+		documentsLock.read().lock();
+		try {
+			stats = new IndexStats(documents().size() - documents().numDeleted());
+			stats.addBytes("documents", documents().bytes(), documents().isOffHeap());
+		}
+		finally {
+			documentsLock.read().unlock();
+		}
+
+		boolean[] needed = new boolean[shards.length];
+		for (int i = 0; i < shards.length; i++) {
+			needed[i] = true;
+			lockRead(needed);
+			try {
+				shards[i].index.countWords(stats);
+				shards[i].index.estimatePostingsBytes(stats);
+			}
+			finally {
+				unlockRead(needed);
+				needed[i] = false;
+			}
+		}
+		return stats;
+	}
+}
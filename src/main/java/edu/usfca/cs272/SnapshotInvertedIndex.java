@@ -0,0 +1,332 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Inverted index whose readers never wait for its writers. The searches and
+ * the getters read an immutable {@link FrozenInvertedIndex} through one
+ * volatile reference, and the writers add to a private index that nobody
+ * reads. Once a batch of locations changed, the writer that filled it freezes
+ * the private index and publishes the copy by replacing the reference, so a
+ * reader sees either the whole batch or none of it.
+ *
+ * <p>
+ * Every publish copies the whole index, so a batch is never smaller than the
+ * amount of locations already published. The batches double as the index
+ * grows, and building the whole index copies every location a constant amount
+ * of times instead of once per batch. The searches only see the locations of
+ * the batches already published, and {@link #publish()} publishes the changes
+ * left right away. The writers wait for each other, but not for the readers, so
+ * writing the index to JSON while it is being built does not stop the build.
+ * A group of searches that should see the same index reads from
+ * {@link #version()}.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class SnapshotInvertedIndex extends InvertedIndex {
+
+	/** The default amount of changed locations between publishes */
+	public static final int DEFAULT_BATCH = 32;
+
+	/** the index the writers change, only used while holding its monitor */
+	private final InvertedIndex changes;
+
+	/** the least amount of changed locations before the changes are published */
+	private final int batchSize;
+
+	/** the amount of locations changed since the last publish */
+	private int pending;
+
+	/** true if anything changed since the last publish, even only the positions of a location */
+	private boolean unpublished;
+
+	/** the bytes every published version can use to cache prefixes */
+	private long cacheBudget;
+
+	/** the latest published version, the only thing the readers use */
+	private volatile FrozenInvertedIndex current;
+
+	/**
+	 * Constructor with the default batch size
+	 */
+	public SnapshotInvertedIndex() {
+		this(DEFAULT_BATCH);
+	}
+
+	/**
+	 * Constructor of an empty index
+	 *
+	 * @param batchSize the least amount of changed locations before they are published
+	 */
+	public SnapshotInvertedIndex(int batchSize) {
+		super();
+		this.changes = new InvertedIndex();
+		this.batchSize = Math.max(batchSize, 1);
+		this.cacheBudget = PrefixCache.DEFAULT_BUDGET;
+		this.current = changes.freeze();
+	}
+
+	/**
+	 * Publishes the changes if the batch is full, which is once there are as many
+	 * changed locations as the batch size and as the published locations. Must
+	 * be called while holding the monitor of the changes.
+	 *
+	 * @param changed the amount of locations that just changed
+	 */
+	private void changed(int changed) {
+		unpublished = true;
+		pending += changed;
+		if (pending >= Math.max(batchSize, current.documents().size())) {
+			publishChanges();
+		}
+	}
+
+	/**
+	 * Freezes the changes and makes them the version the readers use. Must be
+	 * called while holding the monitor of the changes.
+	 */
+	private void publishChanges() {
+		FrozenInvertedIndex published = changes.freeze();
+		published.setCacheBudget(cacheBudget);
+		current = published;
+		pending = 0;
+		unpublished = false;
+	}
+
+	/**
+	 * Publishes the changes that are not in the version of the readers yet.
+	 */
+	public void publish() {
+		synchronized (changes) {
+			if (unpublished) {
+				publishChanges();
+			}
+		}
+	}
+
+	/**
+	 * The latest published version, which does not change.
+	 */
+	@Override
+	public InvertedIndex version() {
+		return current;
+	}
+
+	@Override
+	public boolean addPosition(String word, String location, int count) {
+		synchronized (changes) {
+			boolean newLocation = !changes.containsLocation(location);
+			boolean added = changes.addPosition(word, location, count);
+			changed(newLocation ? 1 : 0);
+			return added;
+		}
+	}
+
+	@Override
+	public void addAll(InvertedIndex other) {
+		InvertedIndex source = other.version();
+		synchronized (changes) {
+			changes.addAll(source);
+			changed(source.documents().size() - source.documents().numDeleted());
+		}
+	}
+
+	/**
+	 * The postings are not kept in the maps of the parent, so they are copied
+	 * with {@link #addAll(InvertedIndex)} instead of being moved.
+	 */
+	@Override
+	protected void absorb(InvertedIndex other) {
+		addAll(other);
+	}
+
+	@Override
+	public boolean removeLocation(String location) {
+		synchronized (changes) {
+			boolean removed = changes.removeLocation(location);
+			changed(removed ? 1 : 0);
+			return removed;
+		}
+	}
+
+	@Override
+	public void replaceLocation(String location, InvertedIndex other) {
+		InvertedIndex source = other.version();
+		synchronized (changes) {
+			changes.replaceLocation(location, source);
+			changed(1);
+		}
+	}
+
+	/**
+	 * Takes the removed locations out of the changes, the published versions
+	 * never have them.
+	 */
+	@Override
+	public void purge() {
+		synchronized (changes) {
+			changes.purge();
+		}
+	}
+
+	@Override
+	public void setCacheBudget(long bytes) {
+		synchronized (changes) {
+			cacheBudget = bytes;
+			current.setCacheBudget(bytes);
+		}
+	}
+
+	/**
+	 * Publishes the changes left, so the frozen index has all of them.
+	 */
+	@Override
+	public FrozenInvertedIndex freeze(boolean offHeap) {
+		synchronized (changes) {
+			if (unpublished) {
+				publishChanges();
+			}
+			return offHeap ? changes.freeze(true) : current;
+		}
+	}
+
+	@Override
+	public List<PageScore> search(Set<String> queries, boolean exact) {
+		return current.search(queries, exact);
+	}
+
+	@Override
+	public List<PageScore> search(Set<String> queries, Collection<List<String>> phrases, boolean exact, int limit, Scorer scorer) {
+		return current.search(queries, phrases, exact, limit, scorer);
+	}
+
+	@Override
+	public List<PageScore> exactSearch(Set<String> queries) {
+		return current.exactSearch(queries);
+	}
+
+	@Override
+	public List<PageScore> partialSearch(Set<String> queries) {
+		return current.partialSearch(queries);
+	}
+
+	@Override
+	public int getCount(String location) {
+		return current.getCount(location);
+	}
+
+	@Override
+	public boolean containsLocation(String location) {
+		return current.containsLocation(location);
+	}
+
+	@Override
+	public Set<String> getLocationsFilesCounter() {
+		return current.getLocationsFilesCounter();
+	}
+
+	@Override
+	public int numWords() {
+		return current.numWords();
+	}
+
+	@Override
+	public int numLocations(String word) {
+		return current.numLocations(word);
+	}
+
+	@Override
+	public int numPositions(String word, String location) {
+		return current.numPositions(word, location);
+	}
+
+	@Override
+	public boolean containsWord(String word) {
+		return current.containsWord(word);
+	}
+
+	@Override
+	public boolean containsLocation(String word, String location) {
+		return current.containsLocation(word, location);
+	}
+
+	@Override
+	public boolean containsPosition(String word, String location, int position) {
+		return current.containsPosition(word, location, position);
+	}
+
+	@Override
+	public Set<String> getWords() {
+		return current.getWords();
+	}
+
+	@Override
+	public Set<String> getLocations(String word) {
+		return current.getLocations(word);
+	}
+
+	@Override
+	public Set<Integer> getPositions(String word, String location) {
+		return current.getPositions(word, location);
+	}
+
+	@Override
+	public int numRemoved() {
+		return current.numRemoved();
+	}
+
+	@Override
+	public IndexStats stats() {
+		return current.stats();
+	}
+
+	@Override
+	public String toString() {
+		return current.toString();
+	}
+
+	@Override
+	public void toJSON(Path path) throws IOException {
+		current.toJSON(path);
+	}
+
+	@Override
+	public void countToJSON(Path output) throws IOException {
+		current.countToJSON(output);
+	}
+
+	@Override
+	protected PostingsCursor postings(String word) {
+		return current.postings(word);
+	}
+
+	@Override
+	protected List<PostingsCursor> prefixPostings(String prefix) {
+		return current.prefixPostings(prefix);
+	}
+
+	@Override
+	protected List<String> prefixWords(String prefix) {
+		return current.prefixWords(prefix);
+	}
+
+	@Override
+	protected Collection<String> words() {
+		return current.words();
+	}
+
+	@Override
+	protected DocumentTable documents() {
+		return current.documents();
+	}
+
+	@Override
+	protected PositionList findPositions(String word, String location) {
+		return current.findPositions(word, location);
+	}
+}
@@ -0,0 +1,127 @@
+package edu.usfca.cs272;
+
+import java.util.concurrent.locks.StampedLock;
+
+import edu.usfca.cs272.ReadWriteLock.SimpleLock;
+
+/**
+ * Locks with a {@link StampedLock}, which takes the read lock with a single
+ * atomic update instead of going through a monitor. It only uses the read and
+ * the write lock, never an optimistic stamp: the maps and the lists of the
+ * index are not made to be read while they change, and a lookup that sees them
+ * half changed can loop forever or fail with an error instead of just giving a
+ * wrong value that the stamp throws away. The searches that must not wait for
+ * the writers use the {@link SnapshotInvertedIndex} instead.
+ *
+ * <p>
+ * A stamped lock can not be taken again by the thread that holds it, so every
+ * thread keeps how many times it took each lock and only the first time goes
+ * to the stamped lock, the same as the other strategies. A thread that holds
+ * the read lock can not take the write lock.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class StampedLockStrategy implements LockStrategy {
+
+	/** the stamped lock */
+	private final StampedLock lock;
+
+	/** the times the thread took the read lock and the write lock */
+	private final ThreadLocal<int[]> holds;
+
+	/** the stamp of the write lock, only used by the thread that holds it */
+	private long writeStamp;
+
+	/** the read lock that counts the times the thread took it */
+	private final SimpleLock read;
+
+	/** the write lock that counts the times the thread took it */
+	private final SimpleLock write;
+
+	/**
+	 * Constructor of an unlocked lock
+	 */
+	public StampedLockStrategy() {
+		this.lock = new StampedLock();
+		this.holds = ThreadLocal.withInitial(() -> new int[2]);
+		this.read = new StampedReadLock();
+		this.write = new StampedWriteLock();
+	}
+
+	/**
+	 * The read lock, taken from the stamped lock only by a thread that holds no lock yet
+	 */
+	private class StampedReadLock implements SimpleLock {
+		@Override
+		public void lock() {
+			int[] held = holds.get();
+			if (held[0] == 0 && held[1] == 0) {
+				lock.readLock();
+			}
+			held[0]++;
+		}
+
+		@Override
+		public void unlock() {
+			int[] held = holds.get();
+			if (held[0] == 0) {
+				throw new IllegalStateException("Calling unlock without holding the read lock.");
+			}
+			held[0]--;
+			if (held[0] == 0 && held[1] == 0) {
+				lock.tryUnlockRead();
+			}
+		}
+	}
+
+	/**
+	 * The write lock, that gives its place to a read lock if the thread still
+	 * holds one when it lets go of the write lock
+	 */
+	private class StampedWriteLock implements SimpleLock {
+		@Override
+		public void lock() {
+			int[] held = holds.get();
+			if (held[1] == 0) {
+				if (held[0] > 0) {
+					throw new IllegalStateException("The read lock can not be upgraded to the write lock.");
+				}
+				writeStamp = lock.writeLock();
+			}
+			held[1]++;
+		}
+
+		@Override
+		public void unlock() {
+			int[] held = holds.get();
+			if (held[1] == 0) {
+				throw new IllegalStateException("Calling unlock without holding the write lock.");
+			}
+			held[1]--;
+			if (held[1] == 0) {
+				if (held[0] > 0) {
+					lock.tryConvertToReadLock(writeStamp);
+				}
+				else {
+					lock.unlockWrite(writeStamp);
+				}
+			}
+		}
+	}
+
+	@Override
+	public SimpleLock read() {
+		return read;
+	}
+
+	@Override
+	public SimpleLock write() {
+		return write;
+	}
+
+	@Override
+	public String toString() {
+		return "stamped";
+	}
+}
@@ -0,0 +1,413 @@
+package edu.usfca.cs272;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read only dictionary that gives every word of a sorted set its position in
+ * the set (its ordinal), stored as a compressed trie instead of a string per
+ * word. Every node of the trie keeps the characters of its edge, so the words
+ * only take one node for every place where they branch, and the shared prefixes
+ * are stored once.
+ *
+ * <p>
+ * The nodes are kept in preorder in a few primitive arrays: where the label of
+ * every node starts in one char array, the node after the subtree of every node
+ * and the first ordinal of the subtree. Since the words are sorted, all the
+ * words under a node have consecutive ordinals, so the words that start with a
+ * prefix are a range of ordinals found with a single walk down the trie.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class TermDictionary {
+
+	/** the characters of the labels of all the nodes one after the other */
+	private final char[] labels;
+
+	/** where the label of every node starts in the labels, with one more at the end */
+	private final int[] labelStarts;
+
+	/** the node after the subtree of every node, which is also its next sibling */
+	private final int[] ends;
+
+	/** the ordinal of the first word in the subtree of every node */
+	private final int[] ordinals;
+
+	/** the amount of words in the dictionary */
+	private final int size;
+
+	/**
+	 * Constructor of the dictionary of the words given.
+	 *
+	 * @param words the words sorted in increasing order without repeats
+	 */
+	public TermDictionary(String[] words) {
+		Builder builder = new Builder(words);
+		builder.node(0, words.length, 0);
+
+		this.labels = builder.labels.toString().toCharArray();
+		this.labelStarts = Arrays.copyOf(builder.labelStarts, builder.nodes + 1);
+		this.labelStarts[builder.nodes] = labels.length;
+		this.ends = Arrays.copyOf(builder.ends, builder.nodes);
+		this.ordinals = Arrays.copyOf(builder.ordinals, builder.nodes);
+		this.size = words.length;
+	}
+
+	/**
+	 * The amount of words in the dictionary
+	 *
+	 * @return the amount of words
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * The amount of nodes of the trie
+	 *
+	 * @return the amount of nodes
+	 */
+	public int nodes() {
+		return ends.length;
+	}
+
+	/**
+	 * The estimated bytes the dictionary takes in the heap with its arrays
+	 *
+	 * @return the bytes of the dictionary
+	 */
+	public long bytes() {
+		return IndexStats.align(IndexStats.OBJECT + 4 * IndexStats.REFERENCE + Integer.BYTES)
+				+ IndexStats.array(labels.length, Character.BYTES)
+				+ IndexStats.array(labelStarts.length, Integer.BYTES)
+				+ IndexStats.array(ends.length, Integer.BYTES)
+				+ IndexStats.array(ordinals.length, Integer.BYTES);
+	}
+
+	/**
+	 * Finds the ordinal of a word.
+	 *
+	 * @param word the word to look for
+	 * @return the ordinal of the word or -1 if it is not in the dictionary
+	 */
+	public int ordinal(String word) {
+		int node = 0;
+		int position = 0;
+		while (true) {
+			int length = labelStarts[node + 1] - labelStarts[node];
+			if (!matches(node, word, position, length)) {
+				return -1;
+			}
+
+			position += length;
+			if (position == word.length()) {
+				return isWord(node) ? ordinals[node] : -1;
+			}
+
+			node = child(node, word.charAt(position));
+			if (node < 0) {
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * Finds the ordinals of all the words that start with a prefix, they always
+	 * come one after the other.
+	 *
+	 * @param prefix the prefix of the words
+	 * @return the first ordinal and the one after the last, both the same if no
+	 *   word starts with the prefix
+	 */
+	public int[] prefixRange(String prefix) {
+		int node = 0;
+		int position = 0;
+		while (true) {
+			int length = labelStarts[node + 1] - labelStarts[node];
+			int remaining = prefix.length() - position;
+			if (!matches(node, prefix, position, Math.min(length, remaining))) {
+				return new int[] { 0, 0 };
+			}
+
+			if (remaining <= length) {
+				return new int[] { ordinals[node], endOrdinal(node) };
+			}
+
+			position += length;
+			node = child(node, prefix.charAt(position));
+			if (node < 0) {
+				return new int[] { 0, 0 };
+			}
+		}
+	}
+
+	/**
+	 * Getter method of the word with an ordinal, it is put back together from
+	 * the labels on the way down the trie.
+	 *
+	 * @param ordinal the ordinal of the word, between 0 and size
+	 * @return the word with that ordinal
+	 */
+	public String get(int ordinal) {
+		if (ordinal < 0 || ordinal >= size) {
+			throw new IndexOutOfBoundsException(ordinal);
+		}
+
+		StringBuilder word = new StringBuilder();
+		int node = 0;
+		while (true) {
+			word.append(labels, labelStarts[node], labelStarts[node + 1] - labelStarts[node]);
+			if (ordinals[node] == ordinal && isWord(node)) {
+				return word.toString();
+			}
+
+			int child = node + 1;
+			while (endOrdinal(child) <= ordinal) {
+				child = ends[child];
+			}
+			node = child;
+		}
+	}
+
+	/**
+	 * Creates a view of the words in order, every word is put back together when
+	 * it is read.
+	 *
+	 * @return the sorted words as an unmodifiable list
+	 */
+	public List<String> words() {
+		return new AbstractList<String>() {
+			@Override
+			public String get(int ordinal) {
+				return TermDictionary.this.get(ordinal);
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Boolean method that checks if the label of the node is in the word at the
+	 * position given.
+	 *
+	 * @param node the node of the label
+	 * @param word the word to compare to
+	 * @param position where the label should start in the word
+	 * @param length the amount of characters to compare
+	 * @return true if they are the same
+	 */
+	private boolean matches(int node, String word, int position, int length) {
+		if (position + length > word.length()) {
+			return false;
+		}
+		int start = labelStarts[node];
+		for (int i = 0; i < length; i++) {
+			if (labels[start + i] != word.charAt(position + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the child of a node with a label that starts with the character given,
+	 * the children are sorted by that character.
+	 *
+	 * @param node the parent node
+	 * @param character the first character of the label
+	 * @return the child or -1 if there is no such child
+	 */
+	private int child(int node, char character) {
+		for (int child = node + 1; child < ends[node]; child = ends[child]) {
+			char first = labels[labelStarts[child]];
+			if (first == character) {
+				return child;
+			}
+			if (first > character) {
+				break;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Boolean method that checks if the path to a node is a word itself, which
+	 * is the case when the node has words and its first child does not start
+	 * with the same ordinal.
+	 *
+	 * @param node the node to check
+	 * @return true if the node is the end of a word
+	 */
+	private boolean isWord(int node) {
+		if (ordinals[node] == endOrdinal(node)) {
+			return false;
+		}
+		return node + 1 == ends[node] || ordinals[node + 1] > ordinals[node];
+	}
+
+	/**
+	 * The ordinal after the last word in the subtree of a node.
+	 *
+	 * @param node the node to look at
+	 * @return the ordinal after the subtree
+	 */
+	private int endOrdinal(int node) {
+		return ends[node] < ends.length ? ordinals[ends[node]] : size;
+	}
+
+	@Override
+	public String toString() {
+		return words().toString();
+	}
+
+	/**
+	 * Builds the arrays of the trie going through the sorted words once.
+	 */
+	private static class Builder {
+
+		/** the sorted words */
+		private final String[] words;
+
+		/** the characters of the labels */
+		private final StringBuilder labels;
+
+		/** where the label of every node starts */
+		private int[] labelStarts;
+
+		/** the node after the subtree of every node */
+		private int[] ends;
+
+		/** the first ordinal of every node */
+		private int[] ordinals;
+
+		/** the amount of nodes made */
+		private int nodes;
+
+		/**
+		 * Constructor of the builder of the words given
+		 *
+		 * @param words the sorted words
+		 */
+		private Builder(String[] words) {
+			this.words = words;
+			this.labels = new StringBuilder();
+			int capacity = 2 * words.length + 1;
+			this.labelStarts = new int[capacity + 1];
+			this.ends = new int[capacity];
+			this.ordinals = new int[capacity];
+			this.nodes = 0;
+		}
+
+		/**
+		 * Adds the node of a range of words and all the nodes under it in the order
+		 * of a depth first walk. The nodes that still have children to add are kept
+		 * in a stack instead of the call stack, so a long run of words that share
+		 * their prefixes one character deeper each time does not overflow it.
+		 *
+		 * @param from the first word of the node
+		 * @param to the word after the last one
+		 * @param start the amount of characters already in the labels of the parents
+		 */
+		private void node(int from, int to, int start) {
+			ArrayList<Open> open = new ArrayList<>();
+			open.add(open(from, to, start));
+			while (!open.isEmpty()) {
+				Open parent = open.get(open.size() - 1);
+				if (parent.next < parent.to) {
+					// the next child has the words that go on with the same character
+					char character = words[parent.next].charAt(parent.shared);
+					int last = parent.next + 1;
+					while (last < parent.to && words[last].charAt(parent.shared) == character) {
+						last++;
+					}
+					open.add(open(parent.next, last, parent.shared));
+					parent.next = last;
+				}
+				else {
+					ends[parent.node] = nodes;
+					open.remove(open.size() - 1);
+				}
+			}
+		}
+
+		/**
+		 * Makes the node of a range of words that share their first characters, its
+		 * label goes up to the longest prefix all of them have. Its children are
+		 * added after it, split by the next character.
+		 *
+		 * @param from the first word of the node
+		 * @param to the word after the last one
+		 * @param start the amount of characters already in the labels of the parents
+		 * @return the node, with its first child still to add
+		 */
+		private Open open(int from, int to, int start) {
+			int node = nodes++;
+			int shared = from < to ? commonPrefix(words[from], words[to - 1]) : start;
+			labelStarts[node] = labels.length();
+			ordinals[node] = from;
+			if (from < to) {
+				labels.append(words[from], start, shared);
+			}
+
+			int next = from;
+			if (next < to && words[next].length() == shared) {
+				next++;
+			}
+			return new Open(node, to, shared, next);
+		}
+
+		/**
+		 * The length of the prefix two words share
+		 *
+		 * @param first the first word
+		 * @param second the second word
+		 * @return the amount of characters they share at the start
+		 */
+		private static int commonPrefix(String first, String second) {
+			int length = Math.min(first.length(), second.length());
+			int i = 0;
+			while (i < length && first.charAt(i) == second.charAt(i)) {
+				i++;
+			}
+			return i;
+		}
+
+		/**
+		 * A node made by the builder whose children are not all added yet.
+		 */
+		private static class Open {
+			/** the number of the node */
+			private final int node;
+
+			/** the word after the last one of the node */
+			private final int to;
+
+			/** the length of the prefix of the node, with the labels of its parents */
+			private final int shared;
+
+			/** the first word of the next child to add */
+			private int next;
+
+			/**
+			 * Constructor of an open node
+			 *
+			 * @param node the number of the node
+			 * @param to the word after the last one of the node
+			 * @param shared the length of the prefix of the node
+			 * @param next the first word of its first child
+			 */
+			private Open(int node, int to, int shared, int next) {
+				this.node = node;
+				this.to = to;
+				this.shared = shared;
+				this.next = next;
+			}
+		}
+	}
+}
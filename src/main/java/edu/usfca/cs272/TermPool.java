@@ -0,0 +1,117 @@
+package edu.usfca.cs272;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import opennlp.tools.stemmer.Stemmer;
+
+/**
+ * Pool of canonical terms shared by all the threads of one build, so every
+ * stem is the same string instance in the local indexes and in the shared
+ * index instead of one copy for every time it was read. It also remembers the
+ * stem of every word it already stemmed, since stemming makes a few new objects
+ * every time and most of the words of a text are repeats, so a repeated word
+ * skips the stemmer completely.
+ *
+ * <p>
+ * The pool is meant to live as long as the build, and once it has
+ * {@link #capacity()} entries it stops growing and the new words are stemmed
+ * without being kept.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class TermPool {
+
+	/** The default amount of words and stems the pool keeps */
+	public static final int DEFAULT_CAPACITY = 1 << 20;
+
+	/** the canonical instance of every stem */
+	private final ConcurrentHashMap<String, String> terms;
+
+	/** the canonical stem of every word that was stemmed */
+	private final ConcurrentHashMap<String, String> stems;
+
+	/** the amount of entries every map can have */
+	private final int capacity;
+
+	/**
+	 * Constructor with the default capacity
+	 */
+	public TermPool() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor of an empty pool
+	 *
+	 * @param capacity the amount of words and stems the pool can keep
+	 */
+	public TermPool(int capacity) {
+		this.terms = new ConcurrentHashMap<>();
+		this.stems = new ConcurrentHashMap<>();
+		this.capacity = Math.max(capacity, 0);
+	}
+
+	/**
+	 * Gives the canonical instance of the term, the term itself becomes the
+	 * canonical one if it was not in the pool and there is room.
+	 *
+	 * @param term the term to look for
+	 * @return the instance of the term kept in the pool
+	 */
+	public String canonical(String term) {
+		String canonical = terms.get(term);
+		if (canonical != null) {
+			return canonical;
+		}
+		if (terms.size() >= capacity) {
+			return term;
+		}
+		canonical = terms.putIfAbsent(term, term);
+		return canonical != null ? canonical : term;
+	}
+
+	/**
+	 * Gives the canonical stem of the word, only using the stemmer the first
+	 * time the word is seen.
+	 *
+	 * @param word the cleaned word to stem
+	 * @param stemmer the stemmer of the calling thread, since stemmers can not be shared
+	 * @return the canonical stem of the word
+	 */
+	public String stem(String word, Stemmer stemmer) {
+		String stem = stems.get(word);
+		if (stem != null) {
+			return stem;
+		}
+
+		stem = canonical(stemmer.stem(word).toString());
+		if (stems.size() < capacity) {
+			stems.putIfAbsent(word, stem);
+		}
+		return stem;
+	}
+
+	/**
+	 * The amount of different stems in the pool
+	 *
+	 * @return the amount of stems
+	 */
+	public int size() {
+		return terms.size();
+	}
+
+	/**
+	 * The amount of words and stems the pool can keep
+	 *
+	 * @return the capacity
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public String toString() {
+		return "TermPool[" + terms.size() + " stems, " + stems.size() + " words]";
+	}
+}
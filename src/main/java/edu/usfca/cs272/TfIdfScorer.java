@@ -0,0 +1,32 @@
+package edu.usfca.cs272;
+
+/**
+ * The matches of a word over the amount of words of the document, weighted by
+ * the smoothed inverse document frequency of the word so the rare words weigh
+ * more.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class TfIdfScorer implements Scorer {
+
+	@Override
+	public double weight(int frequency, int documents) {
+		return Math.log((1.0 + documents) / (1.0 + frequency)) + 1;
+	}
+
+	@Override
+	public double norm(int length, double averageLength) {
+		return length;
+	}
+
+	@Override
+	public double score(int count, double weight, double norm) {
+		return weight * count / norm;
+	}
+
+	@Override
+	public String toString() {
+		return "tfidf";
+	}
+}
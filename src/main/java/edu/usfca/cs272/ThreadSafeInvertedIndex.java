@@ -2,6 +2,7 @@ package edu.usfca.cs272;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -16,7 +17,7 @@ import org.apache.logging.log4j.Logger;
 public class ThreadSafeInvertedIndex extends InvertedIndex {
 	
 	/**the lock to multi thread safely with*/
-	private final ReadWriteLock lock;
+	private final LockStrategy lock;
 	
 	/**Logger for errors*/
 	private static final Logger log = LogManager.getLogger();
@@ -25,8 +26,16 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 	 * Constructor with read lock 
 	 */
 	public ThreadSafeInvertedIndex() {
+		this(new ReadWriteLock());
+	}
+	
+	/**
+	 * Constructor with the lock strategy given
+	 * @param lock the lock strategy to use
+	 */
+	public ThreadSafeInvertedIndex(LockStrategy lock) {
 		super();
-		this.lock = new ReadWriteLock();
+		this.lock = lock;
 	}
 	
 	@Override
@@ -47,7 +56,6 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 		}finally {
 			lock.read().unlock();
 		}
-		
 	}
 
 	@Override
@@ -67,7 +75,7 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 			return super.containsWord(word);
 		}finally {
 			lock.read().unlock();
-		}		
+		}
 	}
 
 	@Override
@@ -77,7 +85,7 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 			return super.containsLocation(word, location);
 		}finally {
 			lock.read().unlock();
-		}		
+		}
 	}
 
 	@Override
@@ -87,7 +95,7 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 			return super.containsPosition(word, location, position);
 		}finally {
 			lock.read().unlock();
-		}		
+		}
 	}
 
 	@Override
@@ -173,6 +181,56 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 		}
 	}
 
+	@Override
+	protected void absorb(InvertedIndex invertedIndex) {
+		lock.write().lock();
+		try {
+			super.absorb(invertedIndex);
+		}finally {
+			lock.write().unlock();
+		}
+	}
+
+	@Override
+	public boolean removeLocation(String location) {
+		lock.write().lock();
+		try {
+			return super.removeLocation(location);
+		}finally {
+			lock.write().unlock();
+		}
+	}
+
+	@Override
+	public void replaceLocation(String location, InvertedIndex invertedIndex) {
+		lock.write().lock();
+		try {
+			super.replaceLocation(location, invertedIndex);
+		}finally {
+			lock.write().unlock();
+		}
+	}
+
+	@Override
+	public int numRemoved() {
+		lock.read().lock();
+		try {
+			return super.numRemoved();
+		}finally {
+			lock.read().unlock();
+		}
+	}
+
+	@Override
+	public void purge() {
+		lock.write().lock();
+		try {
+			super.purge();
+		}finally {
+			lock.write().unlock();
+		}
+	}
+
 	@Override
 	public List<PageScore> search(Set<String> queries, boolean exact) {
 		lock.read().lock();
@@ -183,6 +241,16 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 		}
 	}
 
+	@Override
+	public List<PageScore> search(Set<String> queries, Collection<List<String>> phrases, boolean exact, int limit, Scorer scorer) {
+		lock.read().lock();
+		try {
+			return super.search(queries, phrases, exact, limit, scorer);
+		}finally {
+			lock.read().unlock();
+		}
+	}
+
 	@Override
 	public int getCount(String location) {
 		lock.read().lock();
@@ -200,7 +268,7 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 			return super.containsLocation(location);
 		}finally {
 			lock.read().unlock();
-		}	
+		}
 	}
 
 	@Override
@@ -212,4 +280,32 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 			lock.read().unlock();
 		}
 	}
+
+	@Override
+	public FrozenInvertedIndex freeze(boolean offHeap) {
+		lock.read().lock();
+		try {
+			return super.freeze(offHeap);
+		}finally {
+			lock.read().unlock();
+		}
+	}
+
+	/**
+	 * Getter method of what the lock of the index went through
+	 * @return the statistics of the lock, or null if its strategy does not keep any
+	 */
+	public LockStats lockStats() {
+		return lock.stats();
+	}
+
+	@Override
+	public IndexStats stats() {
+		lock.read().lock();
+		try {
+			return super.stats();
+		}finally {
+			lock.read().unlock();
+		}
+	}
 }
@@ -0,0 +1,177 @@
+package edu.usfca.cs272;
+
+/**
+ * Cursor over the documents that are in any of the postings given, with the
+ * matches of all of them added up in every document. It lets the words that
+ * start with a prefix be used as a single term, the postings are merged on the
+ * fly with a {@link CursorHeap} instead of being copied.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class UnionCursor implements PostingsCursor {
+
+	/** the cursors being merged */
+	private final PostingsCursor[] cursors;
+
+	/** the cursors that are not done by their next document */
+	private final CursorHeap heap;
+
+	/** the indexes of the cursors on the current document, moved on next time */
+	private final int[] matched;
+
+	/** the amount of cursors on the current document */
+	private int size;
+
+	/** the id of the current document */
+	private int document;
+
+	/** the matches of every cursor in the current document */
+	private int count;
+
+	/** if the cursors were moved to their first document */
+	private boolean started;
+
+	/** if there are no documents left */
+	private boolean done;
+
+	/**
+	 * Constructor of the union of the cursors given
+	 *
+	 * @param cursors the cursors to merge, before their first document
+	 */
+	public UnionCursor(PostingsCursor[] cursors) {
+		this.cursors = cursors;
+		this.heap = new CursorHeap(cursors);
+		this.matched = new int[cursors.length];
+		this.size = 0;
+		this.document = -1;
+		this.started = false;
+		this.done = false;
+	}
+
+	@Override
+	public boolean next() {
+		if (done) {
+			return false;
+		}
+		if (!started) {
+			start(0);
+		}
+		else {
+			release(document + 1);
+		}
+		return collect();
+	}
+
+	@Override
+	public boolean advance(int target) {
+		if (!started) {
+			start(target);
+		}
+		else if (done || document >= target) {
+			return !done;
+		}
+		else {
+			release(target);
+			heap.advance(target);
+		}
+		return collect();
+	}
+
+	/**
+	 * Moves every cursor to its first document from the target given.
+	 *
+	 * @param target the smallest document to look at
+	 */
+	private void start(int target) {
+		started = true;
+		for (int i = 0; i < cursors.length; i++) {
+			if (cursors[i].advance(target)) {
+				heap.add(i);
+			}
+		}
+	}
+
+	/**
+	 * Moves the cursors on the current document to their first document from the
+	 * target given and puts them back in the heap, taking out the ones that are
+	 * done.
+	 *
+	 * @param target the smallest document to look at
+	 */
+	private void release(int target) {
+		for (int i = 0; i < size; i++) {
+			if (cursors[matched[i]].advance(target)) {
+				heap.add(matched[i]);
+			}
+		}
+		size = 0;
+	}
+
+	/**
+	 * Makes the smallest document of the heap the current one, adding up the
+	 * matches of the cursors on it and taking them out of the heap, they stay on
+	 * it so their positions can be read until the cursor moves.
+	 *
+	 * @return true if there was a document left
+	 */
+	private boolean collect() {
+		if (heap.isEmpty()) {
+			done = true;
+			return false;
+		}
+		document = heap.document();
+		count = 0;
+		while (!heap.isEmpty() && heap.document() == document) {
+			matched[size++] = heap.top();
+			count += cursors[heap.top()].count();
+			heap.pop();
+		}
+		return true;
+	}
+
+	@Override
+	public int document() {
+		return document;
+	}
+
+	@Override
+	public int count() {
+		return count;
+	}
+
+	/**
+	 * The positions of every cursor on the current document merged together
+	 */
+	@Override
+	public PositionList positions() {
+		PositionList positions = new PositionList();
+		for (int i = 0; i < size; i++) {
+			positions.merge(cursors[matched[i]].positions());
+		}
+		return positions;
+	}
+
+	/**
+	 * The documents of all the postings added up, the union can be in fewer
+	 * documents when the postings share some.
+	 */
+	@Override
+	public int documents() {
+		int documents = 0;
+		for (PostingsCursor cursor : cursors) {
+			documents += cursor.documents();
+		}
+		return documents;
+	}
+
+	@Override
+	public double maxScore() {
+		double bound = 0;
+		for (PostingsCursor cursor : cursors) {
+			bound += cursor.maxScore();
+		}
+		return bound;
+	}
+}
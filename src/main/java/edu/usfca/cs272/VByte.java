@@ -0,0 +1,87 @@
+package edu.usfca.cs272;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Variable byte encoding of non negative ints used to compress the postings.
+ * Every byte keeps seven bits of the value starting with the lowest ones, and
+ * the high bit is set when more bytes of the same value follow. Small values
+ * like the gaps between sorted ids and positions only take one byte.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class VByte {
+
+	/**
+	 * The amount of bytes needed to encode the value
+	 *
+	 * @param value the non negative value to encode
+	 * @return the amount of bytes, between 1 and 5
+	 */
+	public static int size(int value) {
+		int size = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	/**
+	 * Writes the encoded value into the array at the offset given, the array must
+	 * have room for {@link #size(int)} bytes.
+	 *
+	 * @param bytes the array to write to
+	 * @param offset where to start writing
+	 * @param value the non negative value to encode
+	 * @return the offset after the last byte written
+	 */
+	public static int write(byte[] bytes, int offset, int value) {
+		while ((value & ~0x7F) != 0) {
+			bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[offset++] = (byte) value;
+		return offset;
+	}
+
+	/**
+	 * Writes the encoded value into the buffer at the offset given without moving
+	 * its position, the buffer must have room for {@link #size(int)} bytes.
+	 *
+	 * @param bytes the buffer to write to, on or off the heap
+	 * @param offset where to start writing
+	 * @param value the non negative value to encode
+	 * @return the offset after the last byte written
+	 */
+	public static int write(ByteBuffer bytes, int offset, int value) {
+		while ((value & ~0x7F) != 0) {
+			bytes.put(offset++, (byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		bytes.put(offset++, (byte) value);
+		return offset;
+	}
+
+	/**
+	 * Reads the value encoded in the buffer at the offset given without moving its
+	 * position. The value takes {@link #size(int)} bytes, so that is how far the
+	 * next one starts.
+	 *
+	 * @param bytes the buffer to read from, on or off the heap
+	 * @param offset where the encoded value starts
+	 * @return the decoded value
+	 */
+	public static int read(ByteBuffer bytes, int offset) {
+		int value = 0;
+		int shift = 0;
+		byte current;
+		do {
+			current = bytes.get(offset++);
+			value |= (current & 0x7F) << shift;
+			shift += 7;
+		} while (current < 0);
+		return value;
+	}
+}
@@ -4,7 +4,6 @@ import static opennlp.tools.stemmer.snowball.SnowballStemmer.ALGORITHM.ENGLISH;
 
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -27,15 +26,37 @@ public class WebCrawler {
 	private final int max;
 	private final HashMap<String, String> urlProcessed;
 	
+	/** If the crawl uses a {@link WorkStealingQueue}, since its tasks add more tasks */
+	private final boolean stealing;
+	
 	public WebCrawler(int threads, int  max) {
+		this(threads, max, false);
+	}
+	
+	/**
+	 * Constructor of a crawler that can use a work stealing queue
+	 * @param threads the amount of threads
+	 * @param max the most htmls to crawl
+	 * @param stealing true to crawl with a {@link WorkStealingQueue}
+	 */
+	public WebCrawler(int threads, int  max, boolean stealing) {
 		this.threads = threads;
 		this.max = max;
+		this.stealing = stealing;
 		urlProcessed = new HashMap<>();
 	}
 	
+	/**
+	 * Makes the work queue of the crawler
+	 * @return a new work queue
+	 */
+	private WorkQueueInterface newQueue() {
+		return stealing ? new WorkStealingQueue(threads) : new WorkQueue(threads);
+	}
+	
 
 	public void processURLS(String html) throws MalformedURLException {
-		WorkQueue workQueue = new WorkQueue(threads);
+		WorkQueueInterface workQueue = newQueue();
 		try {
 			Queue<URL> urlsHtml = new LinkedList<>();
 			processURLS(html, workQueue, urlsHtml, 1);
@@ -45,8 +66,8 @@ public class WebCrawler {
 		}
 	}
 	
-	public void processHtml(ThreadSafeInvertedIndex invertedIndex) {
-		WorkQueue workQueue = new WorkQueue(threads);
+	public void processHtml(InvertedIndex invertedIndex) {
+		WorkQueueInterface workQueue = newQueue();
 		try {
 			processHtml(invertedIndex, workQueue);
 		}finally {
@@ -54,7 +75,7 @@ public class WebCrawler {
 		}
 	}
 	
-	public void processURLS(String html, WorkQueue workQueue, Queue<URL> urlsHtml, int current) throws MalformedURLException {
+	public void processURLS(String html, WorkQueueInterface workQueue, Queue<URL> urlsHtml, int current) throws MalformedURLException {
 
 		URL htmlURL = new URL(html);
 		String htmlDownload = HtmlFetcher.fetch(htmlURL, 4);
@@ -89,13 +110,13 @@ public class WebCrawler {
 	}
 	
 	
-	public void processHtml(ThreadSafeInvertedIndex invertedIndex, WorkQueue workQueue) {
-
+	public void processHtml(InvertedIndex invertedIndex, WorkQueueInterface workQueue) {
+		TermPool pool = new TermPool();
 		for(var entry: urlProcessed.entrySet()) {
 			log.fatal("Ented" );
 			if(entry.getValue() != null) {
-				workQueue.execute(new Task3(invertedIndex, entry.getKey(),entry.getValue()));
-				log.fatal("Ented" + invertedIndex.toString());
+				workQueue.execute(new Task3(invertedIndex, entry.getKey(),entry.getValue(), pool));
+				log.debug("Ented {}", invertedIndex);
 			}
 			
 		}
@@ -113,7 +134,7 @@ public class WebCrawler {
 		private final String html;
 		
 		/**The work queue to add the task o*/
-		private final WorkQueue workQueue;
+		private final WorkQueueInterface workQueue;
 		
 		/**Where all the htmls are located*/
 		private final Queue<URL> nextHtmls;
@@ -122,7 +143,7 @@ public class WebCrawler {
 		/**The amount of htmls read*/
 		private final int count;
 		
-		public Task(String html, WorkQueue workQueue, Queue<URL> nextHtmls, int count) {
+		public Task(String html, WorkQueueInterface workQueue, Queue<URL> nextHtmls, int count) {
 			this.html = html;
 			this.workQueue = workQueue;
 			this.nextHtmls = nextHtmls;
@@ -147,16 +168,20 @@ public class WebCrawler {
 
 
 		/**The inverted to write to*/
-		private final ThreadSafeInvertedIndex invertedIndex;
+		private final InvertedIndex invertedIndex;
 		
 		private final String location;
 		
 		private final String lines;
 		
-		public Task3(ThreadSafeInvertedIndex invertedIndex, String location, String lines) {
+		/**The pool of stems shared by the tasks*/
+		private final TermPool pool;
+		
+		public Task3(InvertedIndex invertedIndex, String location, String lines, TermPool pool) {
 			this.invertedIndex = invertedIndex;
 			this.location = location;
 			this.lines = lines;
+			this.pool = pool;
 		}
 		
 		
@@ -170,14 +195,13 @@ public class WebCrawler {
 			htmlUnprocessed = HtmlCleaner.stripTags(htmlUnprocessed);
 			htmlUnprocessed = HtmlCleaner.stripEntities(htmlUnprocessed);
 			String[] processedWords = WordCleaner.parse(htmlUnprocessed);
-			log.fatal("Key" + location +" All process words" + Arrays.toString(processedWords));
+			log.debug("Key {} All process words {}", location, processedWords.length);
 			for(String word: processedWords) {
-				String stemWord = stemmer.stem(word).toString();
+				String stemWord = pool.stem(word, stemmer);
 				localIndex.addPosition(stemWord, location, count++);
 			}
 			
 			invertedIndex.addAll(localIndex);
-			log.fatal(invertedIndex.toString());
 		}
 	}
 	
@@ -13,6 +13,12 @@ import org.apache.logging.log4j.Logger;
  * Brian Goetz. It is up to the user of this class to keep track of whether
  * there is any pending work remaining.
  *
+ * <p>
+ * A queue made with a capacity holds at most that many tasks that are not
+ * running yet, and its {@link Policy} decides what {@link #execute(Runnable)}
+ * does when it is full, so a producer that adds tasks faster than the workers
+ * run them does not fill the memory with tasks.
+ *
  * @see <a href=
  *   "https://web.archive.org/web/20210126172022/https://www.ibm.com/developerworks/library/j-jtp0730/index.html">
  *   Java Theory and Practice: Thread Pools and Work Queues</a>
@@ -20,7 +26,7 @@ import org.apache.logging.log4j.Logger;
  * @author CS 272 Software Development (University of San Francisco)
  * @version Fall 2022
  */
-public class WorkQueue {
+public class WorkQueue implements WorkQueueInterface {
 	/** Workers that wait until work (or tasks) are available. */
 	private final Worker[] workers;
 	
@@ -33,9 +39,29 @@ public class WorkQueue {
 	/** Used to signal the workers should terminate. */
 	private volatile boolean shutdown;
 
+	/** The most tasks waiting in the queue, zero or less if there is no limit. */
+	private final int capacity;
+
+	/** What happens to a task added when the queue is full. */
+	private final Policy policy;
+
 	/** The default number of worker threads to use when not specified. */
 	public static final int DEFAULT = 5;
 
+	/** The default capacity of the queues of the producers that read a whole file into tasks. */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	/**
+	 * What {@link #execute(Runnable)} does when the queue is full.
+	 */
+	public static enum Policy {
+		/** The producer waits until a worker takes a task out of the queue. */
+		BLOCK,
+
+		/** The producer runs the task itself, which keeps it busy until the workers catch up. */
+		CALLER_RUNS
+	}
+
 	/** Logger used for this class. */
 	private static final Logger log = LogManager.getLogger();
 	
@@ -54,6 +80,20 @@ public class WorkQueue {
 	 * @param threads number of worker threads; should be greater than 1
 	 */
 	public WorkQueue(int threads) {
+		this(threads, 0, Policy.BLOCK);
+	}
+
+	/**
+	 * Starts a work queue with the specified number of threads that holds at most
+	 * the capacity given of tasks.
+	 *
+	 * @param threads number of worker threads; should be greater than 1
+	 * @param capacity the most tasks waiting in the queue, zero or less for no limit
+	 * @param policy what happens to a task added when the queue is full
+	 */
+	public WorkQueue(int threads, int capacity, Policy policy) {
+		this.capacity = capacity;
+		this.policy = policy;
 		this.tasks = new LinkedList<Runnable>();
 		this.workers = new Worker[threads];
 		this.shutdown = false;
@@ -69,25 +109,84 @@ public class WorkQueue {
 
 	/**
 	 * Adds a work (or task) request to the queue. A worker thread will process
-	 * this request when available.
+	 * this request when available. If the queue is full, the caller waits or runs
+	 * the task itself depending on the policy, and a worker of this queue always
+	 * runs it itself, since waiting for the other workers could be waiting for
+	 * itself.
 	 *
 	 * @param task work request (in the form of a {@link Runnable} object)
 	 */
+	@Override
 	public void execute(Runnable task) {
 		log.debug("Entered execute");
-		incrementPending();
 		synchronized (tasks) {
-			tasks.addLast(task);
-			tasks.notifyAll();
+			boolean interrupted = false;
+			while (isFull() && policy == Policy.BLOCK && !isWorker() && !shutdown) {
+				try {
+					tasks.wait();
+				}
+				catch (InterruptedException e) {
+					log.catching(Level.DEBUG, e);
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			if (!isFull()) {
+				incrementPending();
+				tasks.addLast(task);
+				tasks.notifyAll();
+				task = null;
+			}
+		}
+		if (task != null) {
+			log.trace("Work queue full, the caller runs the work.");
+			try {
+				task.run();
+			}
+			catch (RuntimeException e) {
+				System.err.printf("Warning: %s encountered an exception while running.%n", Thread.currentThread().getName());
+				log.catching(Level.DEBUG, e);
+			}
 		}
 		log.debug(tasks.size());
 		log.debug("Finish execute");
 	}
 	
+	/**
+	 * Checks if the queue can not take more tasks. Must be called while holding
+	 * the lock of the tasks.
+	 *
+	 * @return true if the queue has a capacity and is holding that many tasks
+	 */
+	private boolean isFull() {
+		return capacity > 0 && tasks.size() >= capacity;
+	}
+
+	/**
+	 * Checks if the thread running this code is one of the workers of this queue.
+	 *
+	 * @return true if it is a worker of this queue
+	 */
+	private boolean isWorker() {
+		return Thread.currentThread() instanceof Worker worker && worker.queue() == this;
+	}
+
+	/**
+	 * Returns the capacity of the queue.
+	 *
+	 * @return the most tasks waiting in the queue, zero or less if there is no limit
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
 	/**
 	 * Waits for all pending work (or tasks) to be finished. Does not terminate
 	 * the worker threads so that the work queue can continue to be used.
 	 */
+	@Override
 	public synchronized void finish() {
 		log.debug("Entered finish");
 		while(pending > 0) {
@@ -109,6 +208,7 @@ public class WorkQueue {
 	 * the worker threads to terminate. The work queue cannot be reused after this
 	 * call completes.
 	 */
+	@Override
 	public void join() {
 		try {
 			finish();
@@ -131,6 +231,7 @@ public class WorkQueue {
 	 * Asks the queue to shutdown. Any unprocessed work (or tasks) will not be
 	 * finished, but threads in-progress will not be interrupted.
 	 */
+	@Override
 	public void shutdown() {
 		// safe to do unsynchronized due to volatile keyword
 		shutdown = true;
@@ -146,6 +247,7 @@ public class WorkQueue {
 	 *
 	 * @return number of worker threads
 	 */
+	@Override
 	public int size() {
 		return workers.length;
 	}
@@ -168,6 +270,15 @@ public class WorkQueue {
 			log.trace("Worker"  + getName() +" was initiazized");
 		}
 
+		/**
+		 * The queue of the worker, to know if a task is added by one of its workers.
+		 *
+		 * @return the queue that started the worker
+		 */
+		private WorkQueue queue() {
+			return WorkQueue.this;
+		}
+
 		@Override
 		public void run() {
 			Runnable task = null;
@@ -190,14 +301,16 @@ public class WorkQueue {
 						else {
 							log.debug("Worker {} found {} tasks...", getName(), tasks.size());
 							task = tasks.removeFirst();
-							
+							if (capacity > 0 && tasks.size() == capacity - 1) {
+								// the queue was full, so producers can be waiting for room
+								tasks.notifyAll();
+							}
 						}
 					}
 
 					try {
 						log.trace("Work queue worker running work.");
 						task.run();
-						decrementPending();
 						log.trace("Work queue worker finsished work.");
 					}
 					catch (RuntimeException e) {
@@ -205,6 +318,10 @@ public class WorkQueue {
 						System.err.printf("Warning: %s encountered an exception while running.%n", this.getName());
 						log.catching(Level.DEBUG, e);
 					}
+					finally {
+						// a task that failed is still done, so finish() does not wait for it forever
+						decrementPending();
+					}
 				}
 			}
 			catch (InterruptedException e) {
@@ -0,0 +1,46 @@
+package edu.usfca.cs272;
+
+/**
+ * Interface of the queues that run tasks on a fixed set of worker threads, so
+ * the code that only adds tasks and waits for them works the same with a
+ * {@link WorkQueue} and with a {@link WorkStealingQueue}.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public interface WorkQueueInterface {
+
+	/**
+	 * Adds a work (or task) request to the queue. A worker thread will process
+	 * this request when available.
+	 *
+	 * @param task work request (in the form of a {@link Runnable} object)
+	 */
+	public void execute(Runnable task);
+
+	/**
+	 * Waits for all pending work (or tasks) to be finished. Does not terminate
+	 * the worker threads so that the work queue can continue to be used.
+	 */
+	public void finish();
+
+	/**
+	 * Similar to {@link Thread#join()}, waits for all the work to be finished and
+	 * the worker threads to terminate. The work queue cannot be reused after this
+	 * call completes.
+	 */
+	public void join();
+
+	/**
+	 * Asks the queue to shutdown. Any unprocessed work (or tasks) will not be
+	 * finished, but threads in-progress will not be interrupted.
+	 */
+	public void shutdown();
+
+	/**
+	 * Returns the number of worker threads being used by the work queue.
+	 *
+	 * @return number of worker threads
+	 */
+	public int size();
+}
@@ -0,0 +1,267 @@
+package edu.usfca.cs272;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Work queue where every worker has its own deque of tasks instead of all of
+ * them sharing one list. A task added by a worker goes to the end of the deque
+ * of that worker, and the worker takes its tasks back from the same end, so the
+ * tasks a crawl task adds are run by the same thread while what they read is
+ * still in its cache. A worker with an empty deque steals from the front of the
+ * deques of the others, where the oldest tasks are. The tasks added from
+ * outside the queue are handed to the workers one after the other.
+ *
+ * <p>
+ * The deques do not need a lock, so the workers only meet on a monitor when
+ * one of them runs out of work and goes to sleep, and adding a task only wakes
+ * one sleeping worker, and only if there is one. The pending tasks are counted
+ * without a lock too, and {@link #finish()} waits the same as in
+ * {@link WorkQueue}.
+ * A task that throws still counts as finished, so {@link #finish()} does not
+ * wait for it forever.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class WorkStealingQueue implements WorkQueueInterface {
+
+	/** the workers, the deque of worker i is deques[i] */
+	private final Stealer[] workers;
+
+	/** the tasks of every worker, the owner uses the end and the thieves the front */
+	private final ConcurrentLinkedDeque<Runnable>[] deques;
+
+	/** the amount of tasks added and not finished yet */
+	private final AtomicInteger pending;
+
+	/** the deque the next task added from outside the queue goes to */
+	private final AtomicInteger next;
+
+	/** the monitor the workers sleep on when there is nothing to steal */
+	private final Object idleLock;
+
+	/** the amount of sleeping workers, only changed while holding the idle lock */
+	private volatile int idle;
+
+	/** Used to signal the workers should terminate. */
+	private volatile boolean shutdown;
+
+	/** Logger used for this class. */
+	private static final Logger log = LogManager.getLogger();
+
+	/**
+	 * Starts a work stealing queue with the default number of threads.
+	 */
+	public WorkStealingQueue() {
+		this(WorkQueue.DEFAULT);
+	}
+
+	/**
+	 * Starts a work stealing queue with the specified number of threads.
+	 *
+	 * @param threads number of worker threads; should be greater than 1
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public WorkStealingQueue(int threads) {
+		threads = Math.max(threads, 1);
+		this.workers = new Stealer[threads];
+		this.deques = new ConcurrentLinkedDeque[threads];
+		this.pending = new AtomicInteger();
+		this.next = new AtomicInteger();
+		this.idleLock = new Object();
+		for (int i = 0; i < threads; i++) {
+			deques[i] = new ConcurrentLinkedDeque<>();
+		}
+		// the deques are all made before any worker can steal from them
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Stealer(i);
+			workers[i].start();
+		}
+
+		log.debug("Work stealing queue initialized with {} worker threads.", workers.length);
+	}
+
+	/**
+	 * Adds the task to the deque of the worker running this code, or to the next
+	 * deque if it is not one of the workers of this queue, and wakes up one
+	 * sleeping worker.
+	 */
+	@Override
+	public void execute(Runnable task) {
+		pending.incrementAndGet();
+		int index;
+		if (Thread.currentThread() instanceof Stealer worker && worker.queue() == this) {
+			index = worker.index;
+		}
+		else {
+			index = Math.floorMod(next.getAndIncrement(), deques.length);
+		}
+		deques[index].addLast(task);
+
+		// a worker counts itself idle before its last look at the deques, so it either sees the task or is woken up
+		if (idle > 0) {
+			synchronized (idleLock) {
+				idleLock.notify();
+			}
+		}
+	}
+
+	/**
+	 * Waits for all pending work (or tasks) to be finished. Does not terminate
+	 * the worker threads so that the work queue can continue to be used.
+	 */
+	@Override
+	public synchronized void finish() {
+		while (pending.get() > 0) {
+			try {
+				this.wait();
+			}
+			catch (InterruptedException e) {
+				System.err.println("Warning: Work queue interrupted while finishing.");
+				log.catching(Level.DEBUG, e);
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void join() {
+		try {
+			finish();
+			shutdown();
+
+			for (Stealer worker : workers) {
+				worker.join();
+			}
+
+			log.debug("All worker threads terminated.");
+		}
+		catch (InterruptedException e) {
+			System.err.println("Warning: Work queue interrupted while joining.");
+			log.catching(Level.DEBUG, e);
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		shutdown = true;
+
+		log.debug("Work stealing queue triggering shutdown...");
+		synchronized (idleLock) {
+			idleLock.notifyAll();
+		}
+	}
+
+	@Override
+	public int size() {
+		return workers.length;
+	}
+
+	/**
+	 * Takes a task for a worker, the newest one of its own deque or else the
+	 * oldest one of the next deque that has any.
+	 *
+	 * @param index the index of the worker
+	 * @return the task or null if all the deques are empty
+	 */
+	private Runnable take(int index) {
+		Runnable task = deques[index].pollLast();
+		for (int i = 1; task == null && i < deques.length; i++) {
+			task = deques[(index + i) % deques.length].pollFirst();
+		}
+		return task;
+	}
+
+	/**
+	 * Counts a task as finished, and wakes up the threads waiting on
+	 * {@link #finish()} if it was the last one.
+	 */
+	private void finished() {
+		if (pending.decrementAndGet() == 0) {
+			synchronized (this) {
+				this.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Worker that runs the tasks of its deque and steals when it is empty, and
+	 * sleeps when there is nothing to steal either.
+	 */
+	private class Stealer extends Thread {
+
+		/** the index of the deque of the worker */
+		private final int index;
+
+		/**
+		 * Initializes a worker thread with a custom name.
+		 *
+		 * @param index the index of the deque of the worker
+		 */
+		public Stealer(int index) {
+			this.index = index;
+			setName("Stealer" + getName());
+		}
+
+		/**
+		 * The queue of the worker, to know if a task is added by one of its workers.
+		 *
+		 * @return the queue that started the worker
+		 */
+		private WorkStealingQueue queue() {
+			return WorkStealingQueue.this;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!shutdown) {
+					Runnable task = take(index);
+					if (task == null) {
+						synchronized (idleLock) {
+							idle++;
+							try {
+								while (!shutdown && (task = take(index)) == null) {
+									idleLock.wait();
+								}
+							}
+							finally {
+								idle--;
+							}
+						}
+						if (task == null) {
+							break;
+						}
+					}
+
+					try {
+						task.run();
+					}
+					catch (RuntimeException e) {
+						// catch runtime exceptions to avoid leaking threads
+						System.err.printf("Warning: %s encountered an exception while running.%n", this.getName());
+						log.catching(Level.DEBUG, e);
+					}
+					finally {
+						finished();
+					}
+				}
+			}
+			catch (InterruptedException e) {
+				// causes early termination of worker threads
+				System.err.printf("Warning: %s interrupted while waiting.%n", this.getName());
+				log.catching(Level.DEBUG, e);
+				Thread.currentThread().interrupt();
+			}
+
+			log.debug("Worker thread terminating...");
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package edu.usfca.cs272;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Builds every kind of thread safe index with many writers while readers
+ * search it, and checks the index ends up the same as a plain index built by
+ * one thread with the same documents.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class ConcurrentIndexTest {
+
+	/** the amount of writer threads */
+	private static final int WRITERS = 4;
+
+	/** the amount of reader threads */
+	private static final int READERS = 2;
+
+	/** the amount of documents every writer adds */
+	private static final int DOCUMENTS = 30;
+
+	/** the words of the documents, short ones so the prefixes match many of them */
+	private static final String[] WORDS = { "a", "ab", "abc", "abd", "b", "ba", "bat", "bath", "c", "cat", "cab",
+			"d", "do", "dog", "e", "ear", "east", "f", "fig", "fin" };
+
+	/** the queries searched by the readers and compared at the end */
+	private static final List<Set<String>> QUERIES = List.of(Set.of("a"), Set.of("ba", "c"), Set.of("dog"),
+			Set.of("e", "fi"), Set.of("abc", "cat", "east"), Set.of("z"));
+
+	/**
+	 * Every kind of thread safe index.
+	 *
+	 * @return the name and a supplier of a new empty index of every kind
+	 */
+	public static Stream<Arguments> indexes() {
+		List<Arguments> indexes = new ArrayList<>();
+		for (String lock : List.of("simple", "writer", "fifo", "fifo-stats", "reentrant", "stamped")) {
+			indexes.add(Arguments.of("lock " + lock,
+					(Supplier<InvertedIndex>) () -> new ThreadSafeInvertedIndex(LockStrategy.forName(lock))));
+		}
+		indexes.add(Arguments.of("sharded", (Supplier<InvertedIndex>) () -> new ShardedInvertedIndex(5)));
+		indexes.add(Arguments.of("snapshots", (Supplier<InvertedIndex>) () -> new SnapshotInvertedIndex(1)));
+		indexes.add(Arguments.of("big snapshots", (Supplier<InvertedIndex>) () -> new SnapshotInvertedIndex(16)));
+		indexes.add(Arguments.of("segmented", (Supplier<InvertedIndex>) () -> new SegmentedInvertedIndex(2, 3)));
+		return indexes.stream();
+	}
+
+	/**
+	 * Makes the local index of a document with random words.
+	 *
+	 * @param location the location of the document
+	 * @param random where the words come from
+	 * @return the local index of the document
+	 */
+	private static InvertedIndex document(String location, Random random) {
+		InvertedIndex local = new InvertedIndex();
+		int length = 1 + random.nextInt(40);
+		for (int position = 1; position <= length; position++) {
+			local.addPosition(WORDS[random.nextInt(WORDS.length)], location, position);
+		}
+		return local;
+	}
+
+	/**
+	 * Makes the documents of every writer, the same ones for every index.
+	 *
+	 * @return the local indexes of every writer
+	 */
+	private static List<List<InvertedIndex>> documents() {
+		Random random = new Random(272);
+		List<List<InvertedIndex>> documents = new ArrayList<>();
+		for (int writer = 0; writer < WRITERS; writer++) {
+			List<InvertedIndex> mine = new ArrayList<>();
+			for (int document = 0; document < DOCUMENTS; document++) {
+				mine.add(document("writer" + writer + "/doc" + document + ".txt", random));
+			}
+			documents.add(mine);
+		}
+		return documents;
+	}
+
+	/**
+	 * Makes the search results easy to compare, with the location, the count
+	 * and the score of every result in order.
+	 *
+	 * @param index the index to search
+	 * @param exact true for an exact search
+	 * @param limit the most results of every query, zero for all of them
+	 * @param scorer the scorer to use
+	 * @return the results of every query
+	 */
+	private static List<String> results(InvertedIndex index, boolean exact, int limit, Scorer scorer) {
+		List<String> results = new ArrayList<>();
+		for (Set<String> query : QUERIES) {
+			for (InvertedIndex.PageScore score : index.search(query, List.of(), exact, limit, scorer)) {
+				results.add(query + " " + score.getLocation() + " " + score.getCount() + " " + score.getScore());
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Adds the documents with one thread for every writer, half of them with
+	 * {@link InvertedIndex#addAll(InvertedIndex)} and half one position at a
+	 * time, while the readers keep searching until the writers are done.
+	 *
+	 * @param name the kind of index
+	 * @param supplier makes an empty index of that kind
+	 */
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("indexes")
+	public void testWritersAndReaders(String name, Supplier<InvertedIndex> supplier) {
+		List<List<InvertedIndex>> documents = documents();
+		InvertedIndex expected = new InvertedIndex();
+		for (List<InvertedIndex> mine : documents) {
+			mine.forEach(expected::addAll);
+		}
+
+		InvertedIndex actual = supplier.get();
+		assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+			List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+			CountDownLatch start = new CountDownLatch(1);
+			AtomicBoolean writing = new AtomicBoolean(true);
+			List<Thread> writers = new ArrayList<>();
+			List<Thread> readers = new ArrayList<>();
+
+			for (List<InvertedIndex> mine : documents) {
+				writers.add(new Thread(() -> {
+					try {
+						start.await();
+						for (int i = 0; i < mine.size(); i++) {
+							InvertedIndex local = mine.get(i);
+							if (i % 2 == 0) {
+								actual.addAll(local);
+							}
+							else {
+								for (String word : local.getWords()) {
+									for (String location : local.getLocations(word)) {
+										for (int position : local.getPositions(word, location)) {
+											actual.addPosition(word, location, position);
+										}
+									}
+								}
+							}
+						}
+					}
+					catch (Throwable e) {
+						errors.add(e);
+					}
+				}));
+			}
+
+			for (int reader = 0; reader < READERS; reader++) {
+				boolean exact = reader % 2 == 0;
+				readers.add(new Thread(() -> {
+					try {
+						start.await();
+						while (writing.get()) {
+							results(actual, exact, 3, Scorer.BM25);
+							results(actual, exact, 0, Scorer.COUNT);
+							actual.numWords();
+							actual.containsWord("dog");
+						}
+					}
+					catch (Throwable e) {
+						errors.add(e);
+					}
+				}));
+			}
+
+			writers.forEach(Thread::start);
+			readers.forEach(Thread::start);
+			start.countDown();
+			for (Thread writer : writers) {
+				writer.join();
+			}
+			writing.set(false);
+			for (Thread reader : readers) {
+				reader.join();
+			}
+			finish(actual);
+			assertEquals(List.of(), errors);
+		});
+
+		assertEquals(expected.toString(), actual.toString());
+		assertEquals(expected.getLocationsFilesCounter(), actual.getLocationsFilesCounter());
+		for (Scorer scorer : List.of(Scorer.COUNT, Scorer.BM25, Scorer.TF_IDF)) {
+			for (boolean exact : List.of(true, false)) {
+				assertEquals(results(expected, exact, 0, scorer), results(actual, exact, 0, scorer), scorer + " " + exact);
+				assertEquals(results(expected, exact, 5, scorer), results(actual, exact, 5, scorer), scorer + " " + exact);
+			}
+		}
+	}
+
+	/**
+	 * Finishes the background work of the indexes that have any, so all the
+	 * documents can be read.
+	 *
+	 * @param index the index to finish
+	 */
+	private static void finish(InvertedIndex index) {
+		if (index instanceof SnapshotInvertedIndex snapshots) {
+			snapshots.publish();
+		}
+		else if (index instanceof SegmentedInvertedIndex segments) {
+			segments.close();
+		}
+	}
+}
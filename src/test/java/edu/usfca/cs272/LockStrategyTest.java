@@ -0,0 +1,207 @@
+package edu.usfca.cs272;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks every lock strategy lets many readers or a single writer in, that a
+ * writer can take both locks again, and what the instrumented locks record.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class LockStrategyTest {
+
+	/** the amount of threads of every test */
+	private static final int THREADS = 6;
+
+	/** the times every thread takes a lock */
+	private static final int ROUNDS = 500;
+
+	/**
+	 * Readers and writers take turns and a writer never sees anyone else inside,
+	 * the same as a counter that only the writers change.
+	 *
+	 * @param name the name of the strategy
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = { "simple", "writer", "fifo", "fifo-stats", "reentrant", "stamped" })
+	public void testMutualExclusion(String name) {
+		LockStrategy lock = LockStrategy.forName(name);
+		assertNotNull(lock);
+
+		AtomicInteger readers = new AtomicInteger();
+		AtomicInteger writers = new AtomicInteger();
+		int[] counter = { 0 };
+		List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+		assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Thread> threads = new ArrayList<>();
+			for (int i = 0; i < THREADS; i++) {
+				boolean writer = i % 2 == 0;
+				threads.add(new Thread(() -> {
+					try {
+						start.await();
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+					for (int round = 0; round < ROUNDS; round++) {
+						if (writer) {
+							lock.write().lock();
+							try {
+								if (writers.incrementAndGet() != 1 || readers.get() != 0) {
+									errors.add("writer with others inside");
+								}
+								counter[0]++;
+								writers.decrementAndGet();
+							}
+							finally {
+								lock.write().unlock();
+							}
+						}
+						else {
+							lock.read().lock();
+							try {
+								readers.incrementAndGet();
+								if (writers.get() != 0) {
+									errors.add("reader with a writer inside");
+								}
+								readers.decrementAndGet();
+							}
+							finally {
+								lock.read().unlock();
+							}
+						}
+					}
+				}));
+			}
+			threads.forEach(Thread::start);
+			start.countDown();
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		});
+
+		assertEquals(List.of(), errors);
+		assertEquals((THREADS + 1) / 2 * ROUNDS, counter[0]);
+	}
+
+	/**
+	 * A thread that holds the write lock can take the read lock and the write
+	 * lock again.
+	 *
+	 * @param name the name of the strategy
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = { "simple", "writer", "fifo", "reentrant", "stamped" })
+	public void testWriterReenters(String name) {
+		LockStrategy lock = LockStrategy.forName(name);
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+			lock.write().lock();
+			lock.write().lock();
+			lock.read().lock();
+			lock.read().unlock();
+			lock.write().unlock();
+			lock.write().unlock();
+
+			// another thread can take the write lock once it is let go
+			Thread other = new Thread(() -> {
+				lock.write().lock();
+				lock.write().unlock();
+			});
+			other.start();
+			other.join();
+		});
+	}
+
+	/**
+	 * The stamped lock can not be upgraded from a read lock to a write lock.
+	 */
+	@Test
+	public void testStampedCanNotUpgrade() {
+		LockStrategy lock = new StampedLockStrategy();
+		lock.read().lock();
+		try {
+			assertThrows(IllegalStateException.class, () -> lock.write().lock());
+		}
+		finally {
+			lock.read().unlock();
+		}
+		assertThrows(IllegalStateException.class, () -> lock.read().unlock());
+	}
+
+	/**
+	 * Only the locks made with -stats keep statistics, and they count every time
+	 * a thread took and let go of the lock, not the times it took it again.
+	 */
+	@Test
+	public void testInstrumented() {
+		assertNull(LockStrategy.forName("fifo").stats());
+		assertNull(LockStrategy.forName("stamped").stats());
+		assertNull(LockStrategy.forName("unknown"));
+
+		LockStrategy lock = LockStrategy.forName("writer-stats");
+		assertEquals(ReadWriteLock.Policy.WRITER_PREFERENCE, ((ReadWriteLock) lock).policy());
+		for (int i = 0; i < 3; i++) {
+			lock.read().lock();
+			lock.read().lock();
+			lock.read().unlock();
+			lock.read().unlock();
+		}
+		lock.write().lock();
+		lock.read().lock();
+		lock.read().unlock();
+		lock.write().unlock();
+
+		LockStats stats = lock.stats();
+		assertEquals(3, stats.getReadWait().getCount());
+		assertEquals(3, stats.getReadHold().getCount());
+		assertEquals(1, stats.getWriteWait().getCount());
+		assertEquals(1, stats.getWriteHold().getCount());
+		assertEquals(1, stats.getPeakReaders());
+		assertEquals(0, stats.getReaderStarvations() + stats.getWriterStarvations());
+
+		// the copy does not change with the lock
+		lock.write().lock();
+		lock.write().unlock();
+		assertEquals(1, stats.getWriteHold().getCount());
+		assertEquals(2, lock.stats().getWriteHold().getCount());
+	}
+
+	/**
+	 * The index gives the statistics of its lock, which counts the lookups and
+	 * the writes of the index.
+	 */
+	@Test
+	public void testIndexLockStats() {
+		assertNull(new ThreadSafeInvertedIndex().lockStats());
+
+		ThreadSafeInvertedIndex index = new ThreadSafeInvertedIndex(LockStrategy.forName("simple-stats"));
+		index.addPosition("hello", "hello.txt", 1);
+		index.addPosition("world", "hello.txt", 2);
+		assertTrue(index.containsWord("hello"));
+		assertEquals(2, index.numWords());
+
+		LockStats stats = index.lockStats();
+		assertEquals(2, stats.getWriteHold().getCount());
+		assertEquals(2, stats.getReadHold().getCount());
+	}
+}
@@ -0,0 +1,313 @@
+package edu.usfca.cs272;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Removes and replaces locations of every kind of index, and checks
+ * the searches and the output are the same as the ones of an index that never
+ * had the removed locations, before and after they are purged.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class RemoveLocationTest {
+
+	/** the queries searched, some of them only match the removed location */
+	private static final List<Set<String>> QUERIES = List.of(Set.of("apple"), Set.of("ban"), Set.of("cherry", "date"),
+			Set.of("fig"), Set.of("a", "c"), Set.of("elder"));
+
+	/**
+	 * Every kind of index, the segmented one with the removed location in a
+	 * segment and in the buffer.
+	 *
+	 * @return the name and a supplier of a new empty index of every kind
+	 */
+	public static Stream<Arguments> indexes() {
+		return Stream.of(
+				Arguments.of("plain", (Supplier<InvertedIndex>) InvertedIndex::new),
+				Arguments.of("thread safe", (Supplier<InvertedIndex>) ThreadSafeInvertedIndex::new),
+				Arguments.of("stamped", (Supplier<InvertedIndex>) () -> new ThreadSafeInvertedIndex(new StampedLockStrategy())),
+				Arguments.of("sharded", (Supplier<InvertedIndex>) () -> new ShardedInvertedIndex(3)),
+				Arguments.of("snapshots", (Supplier<InvertedIndex>) () -> new SnapshotInvertedIndex(1)),
+				Arguments.of("segments", (Supplier<InvertedIndex>) () -> new SegmentedInvertedIndex(1, 1)),
+				Arguments.of("segments and buffer", (Supplier<InvertedIndex>) () -> new SegmentedInvertedIndex(1, 8)));
+	}
+
+	/** the indexes made by the test, the segmented ones are closed after it */
+	private final List<InvertedIndex> created = new ArrayList<>();
+
+	/**
+	 * Makes a new index and remembers it to close it after the test.
+	 *
+	 * @param supplier makes an empty index
+	 * @return the new index
+	 */
+	private InvertedIndex create(Supplier<InvertedIndex> supplier) {
+		InvertedIndex index = supplier.get();
+		created.add(index);
+		return index;
+	}
+
+	/**
+	 * Stops the merge threads of the segmented indexes.
+	 */
+	@AfterEach
+	public void closeIndexes() {
+		for (InvertedIndex index : created) {
+			if (index instanceof SegmentedInvertedIndex segments) {
+				segments.close();
+			}
+		}
+	}
+
+	/**
+	 * Adds the words of a text to the index, one position for every word.
+	 *
+	 * @param index the index to add to
+	 * @param location the location of the text
+	 * @param text the words separated by spaces
+	 */
+	private static void add(InvertedIndex index, String location, String text) {
+		String[] words = text.split(" ");
+		for (int i = 0; i < words.length; i++) {
+			index.addPosition(words[i], location, i + 1);
+		}
+	}
+
+	/**
+	 * Adds the three documents every test starts with.
+	 *
+	 * @param index the index to add to
+	 * @param removed true to also add the document that is removed later
+	 */
+	private static void addDocuments(InvertedIndex index, boolean removed) {
+		add(index, "one.txt", "apple banana cherry apple");
+		if (removed) {
+			add(index, "two.txt", "banana fig fig elderberry apple");
+		}
+		add(index, "three.txt", "cherry date apple cherry");
+	}
+
+	/**
+	 * Makes the search results easy to compare, with the location, the count
+	 * and the score of every result in order.
+	 *
+	 * @param index the index to search
+	 * @param exact true for an exact search
+	 * @param scorer the scorer to use
+	 * @return the results of every query
+	 */
+	private static List<String> results(InvertedIndex index, boolean exact, Scorer scorer) {
+		List<String> results = new ArrayList<>();
+		for (Set<String> query : QUERIES) {
+			for (InvertedIndex.PageScore score : index.search(query, List.of(), exact, 0, scorer)) {
+				results.add(query + " " + score.getLocation() + " " + score.getCount() + " " + score.getScore());
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Checks the searches with the count scorer and the output are the same as
+	 * the expected index.
+	 *
+	 * @param expected the index that never had the removed location
+	 * @param actual the index the location was removed from
+	 */
+	private static void assertSameCounts(InvertedIndex expected, InvertedIndex actual) {
+		assertEquals(results(expected, true, Scorer.COUNT), results(actual, true, Scorer.COUNT));
+		assertEquals(results(expected, false, Scorer.COUNT), results(actual, false, Scorer.COUNT));
+		assertEquals(expected.toString(), actual.toString());
+		assertEquals(expected.getLocationsFilesCounter(), actual.getLocationsFilesCounter());
+	}
+
+	/**
+	 * Checks the searches with every scorer are the same as the expected index.
+	 *
+	 * @param expected the index that never had the removed location
+	 * @param actual the index the location was removed from
+	 */
+	private static void assertSameScores(InvertedIndex expected, InvertedIndex actual) {
+		for (Scorer scorer : List.of(Scorer.COUNT, Scorer.BM25, Scorer.TF_IDF)) {
+			assertEquals(results(expected, true, scorer), results(actual, true, scorer), scorer.toString());
+			assertEquals(results(expected, false, scorer), results(actual, false, scorer), scorer.toString());
+		}
+	}
+
+	/**
+	 * A removed location is left out of the searches and the output right away,
+	 * and purging it does not change them.
+	 *
+	 * @param name the kind of index
+	 * @param supplier makes an empty index of that kind
+	 */
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("indexes")
+	public void testRemoveThenPurge(String name, Supplier<InvertedIndex> supplier) {
+		InvertedIndex expected = create(supplier);
+		addDocuments(expected, false);
+		publish(expected);
+
+		InvertedIndex actual = create(supplier);
+		addDocuments(actual, true);
+		assertTrue(actual.removeLocation("two.txt"));
+		assertFalse(actual.removeLocation("two.txt"));
+		publish(actual);
+
+		assertFalse(actual.containsLocation("two.txt"));
+		// the published versions of the snapshots are frozen, which leaves the removed locations out
+		assertEquals(actual instanceof SnapshotInvertedIndex ? 0 : 1, actual.numRemoved());
+		assertSameCounts(expected, actual);
+
+		actual.purge();
+		publish(actual);
+		assertEquals(0, actual.numRemoved());
+		assertSameCounts(expected, actual);
+		assertSameScores(expected, actual);
+		assertEquals(expected.numWords(), actual.numWords());
+	}
+
+	/**
+	 * Replacing a location gives the same index as only adding its new text.
+	 *
+	 * @param name the kind of index
+	 * @param supplier makes an empty index of that kind
+	 */
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("indexes")
+	public void testReplace(String name, Supplier<InvertedIndex> supplier) {
+		InvertedIndex expected = create(supplier);
+		addDocuments(expected, false);
+		add(expected, "two.txt", "grape banana apple");
+		publish(expected);
+
+		InvertedIndex actual = create(supplier);
+		addDocuments(actual, true);
+		InvertedIndex local = new InvertedIndex();
+		add(local, "two.txt", "grape banana apple");
+		actual.replaceLocation("two.txt", local);
+		publish(actual);
+		assertSameCounts(expected, actual);
+
+		actual.purge();
+		publish(actual);
+		assertSameCounts(expected, actual);
+		assertSameScores(expected, actual);
+	}
+
+	/**
+	 * The frozen copy and the saved file of an index with a removed location are
+	 * the same as the ones of the index that never had it.
+	 *
+	 * @param name the kind of index
+	 * @param supplier makes an empty index of that kind
+	 * @param directory where the indexes are saved
+	 * @throws IOException if the index can not be saved or loaded
+	 */
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("indexes")
+	public void testFreeze(String name, Supplier<InvertedIndex> supplier, @TempDir Path directory) throws IOException {
+		InvertedIndex expected = create(supplier);
+		addDocuments(expected, false);
+		publish(expected);
+
+		InvertedIndex actual = create(supplier);
+		addDocuments(actual, true);
+		actual.removeLocation("two.txt");
+
+		FrozenInvertedIndex frozen = actual.freeze();
+		assertEquals(0, frozen.numRemoved());
+		assertSameCounts(expected, frozen);
+		assertSameScores(expected.freeze(), frozen);
+
+		Path expectedJson = directory.resolve("expected.json");
+		Path actualJson = directory.resolve("actual.json");
+		expected.toJSON(expectedJson);
+		FrozenInvertedIndex.load(save(frozen, directory.resolve("actual.bin"))).toJSON(actualJson);
+		assertEquals(Files.readString(expectedJson), Files.readString(actualJson));
+	}
+
+	/**
+	 * The merges of the segmented index leave out the locations removed before
+	 * they start, a location added again is not mixed with its old postings,
+	 * and the index keeps merging after a purge.
+	 */
+	@Test
+	public void testSegmentedMerges() {
+		InvertedIndex expected = new InvertedIndex();
+		SegmentedInvertedIndex actual = new SegmentedInvertedIndex(1, 1);
+		created.add(actual);
+		for (int i = 0; i < 6; i++) {
+			add(expected, "doc" + i + ".txt", "apple banana" + i + " cherry");
+			add(actual, "doc" + i + ".txt", "apple banana" + i + " cherry");
+		}
+		add(actual, "gone.txt", "apple fig");
+		actual.removeLocation("gone.txt");
+		InvertedIndex local = new InvertedIndex();
+		add(local, "doc0.txt", "date apple");
+		expected.replaceLocation("doc0.txt", local);
+		actual.replaceLocation("doc0.txt", local);
+		assertSameCounts(expected, actual);
+
+		// the first merges start with both locations removed
+		actual.finish();
+		assertSameCounts(expected, actual);
+		assertSameScores(expected.freeze(), actual.freeze());
+
+		actual.purge();
+		expected.purge();
+		assertEquals(0, actual.numRemoved());
+		assertEquals(expected.numWords(), actual.numWords());
+
+		for (int i = 6; i < 12; i++) {
+			add(expected, "doc" + i + ".txt", "apple banana" + i);
+			add(actual, "doc" + i + ".txt", "apple banana" + i);
+		}
+		actual.finish();
+		assertTrue(actual.numSegments() < 6);
+		assertSameCounts(expected, actual);
+		assertSameScores(expected, actual);
+	}
+
+	/**
+	 * Publishes the changes of a snapshot index, the other indexes have nothing to publish.
+	 *
+	 * @param index the index to publish
+	 */
+	private static void publish(InvertedIndex index) {
+		if (index instanceof SnapshotInvertedIndex snapshots) {
+			snapshots.publish();
+		}
+	}
+
+	/**
+	 * Saves the frozen index to a file.
+	 *
+	 * @param frozen the index to save
+	 * @param path the file to save to
+	 * @return the path of the file
+	 * @throws IOException if the file can not be written
+	 */
+	private static Path save(FrozenInvertedIndex frozen, Path path) throws IOException {
+		frozen.save(path);
+		return path;
+	}
+}
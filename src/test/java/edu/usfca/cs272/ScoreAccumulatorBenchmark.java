@@ -0,0 +1,188 @@
+package edu.usfca.cs272;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Times the searches that add up their matches in a {@link ScoreAccumulator}
+ * against adding them up in a map of the document ids, the way the searches
+ * did before, over the same postings of a mutable and a frozen index. It is not
+ * a test, it is run by hand with the test classpath:
+ *
+ * <pre>
+ * java -cp target/test-classes:target/classes edu.usfca.cs272.ScoreAccumulatorBenchmark [documents] [runs]
+ * </pre>
+ *
+ * Every case is run a few times to warm up and the fastest run is printed with
+ * the time and the memory allocated by every query. The prefix cache is turned
+ * off so every search goes through the postings.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class ScoreAccumulatorBenchmark {
+
+	/** the amount of different words of the documents */
+	private static final int VOCABULARY = 5000;
+
+	/** the amount of queries of every run */
+	private static final int QUERIES = 100;
+
+	/** the ways the matches of a search are added up */
+	private enum Method {
+		/** the accumulator of the thread, the same as the search */
+		ACCUMULATOR,
+		/** a new map of the document ids for every search */
+		MAP,
+		/** the whole search, with the page scores and the sort */
+		SEARCH
+	}
+
+	/** measures the memory allocated by the thread of the benchmark */
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	/** keeps the results used so the work is not optimized away */
+	private static long sink = 0;
+
+	/**
+	 * Builds an index of random documents, a few words are in most of them and
+	 * most words only in a few, the same as real text.
+	 *
+	 * @param documents the amount of documents
+	 * @param random where the words come from
+	 * @return the index of the documents
+	 */
+	private static InvertedIndex build(int documents, Random random) {
+		InvertedIndex index = new InvertedIndex();
+		for (int document = 0; document < documents; document++) {
+			int length = 20 + random.nextInt(200);
+			for (int position = 1; position <= length; position++) {
+				int word = (int) (VOCABULARY * Math.pow(random.nextDouble(), 4));
+				index.addPosition("t" + word, "doc" + document, position);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Makes the queries, every one with a common word, a less common one and a
+	 * random one.
+	 *
+	 * @param random where the words come from
+	 * @return the queries
+	 */
+	private static List<Set<String>> queries(Random random) {
+		List<Set<String>> queries = new ArrayList<>();
+		for (int i = 0; i < QUERIES; i++) {
+			Set<String> query = new TreeSet<>();
+			query.add("t" + random.nextInt(20));
+			query.add("t" + (20 + random.nextInt(500)));
+			query.add("t" + random.nextInt(VOCABULARY));
+			queries.add(query);
+		}
+		return queries;
+	}
+
+	/**
+	 * Adds up the matches of a query the way it is asked.
+	 *
+	 * @param index the index to search
+	 * @param query the words of the query
+	 * @param exact true for an exact search
+	 * @param method how the matches are added up
+	 * @return the amount of documents with matches
+	 */
+	private static int run(InvertedIndex index, Set<String> query, boolean exact, Method method) {
+		if (method == Method.SEARCH) {
+			return index.search(query, exact).size();
+		}
+
+		List<PostingsCursor> matches = index.matchingPostings(query, exact);
+		if (method == Method.MAP) {
+			Map<Integer, int[]> counts = new HashMap<>();
+			for (PostingsCursor postings : matches) {
+				while (postings.next()) {
+					counts.computeIfAbsent(postings.document(), document -> new int[1])[0] += postings.count();
+				}
+			}
+			return counts.size();
+		}
+
+		ScoreAccumulator accumulator = ScoreAccumulator.get(index.documents().size());
+		try {
+			for (PostingsCursor postings : matches) {
+				while (postings.next()) {
+					accumulator.add(postings.document(), postings.count());
+				}
+			}
+			return accumulator.size();
+		}
+		finally {
+			accumulator.clear();
+		}
+	}
+
+	/**
+	 * Runs every query a few times and prints the fastest run.
+	 *
+	 * @param index the index to search
+	 * @param queries the queries to search
+	 * @param exact true for exact searches
+	 * @param method how the matches are added up
+	 * @param runs the amount of runs
+	 */
+	private static void measure(InvertedIndex index, List<Set<String>> queries, boolean exact, Method method, int runs) {
+		long best = Long.MAX_VALUE;
+		long allocated = 0;
+		for (int i = 0; i < runs; i++) {
+			long bytes = THREADS.getCurrentThreadAllocatedBytes();
+			long start = System.nanoTime();
+			for (Set<String> query : queries) {
+				sink += run(index, query, exact, method);
+			}
+			long elapsed = System.nanoTime() - start;
+			if (elapsed < best) {
+				best = elapsed;
+				allocated = THREADS.getCurrentThreadAllocatedBytes() - bytes;
+			}
+		}
+		System.out.printf("%-21s %-7s %-11s %8.3f ms/query %8.3f MB/query%n", index.getClass().getSimpleName(),
+				exact ? "exact" : "partial", method.name().toLowerCase(), best / 1e6 / queries.size(),
+				allocated / 1e6 / queries.size());
+	}
+
+	/**
+	 * Builds the indexes and prints the time of every way of adding up the
+	 * matches.
+	 *
+	 * @param args the amount of documents and of runs of every case, 50000 and 6
+	 *   if not given
+	 */
+	public static void main(String[] args) {
+		int documents = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+
+		Random random = new Random(1);
+		InvertedIndex mutable = build(documents, random);
+		FrozenInvertedIndex frozen = mutable.freeze();
+		mutable.setCacheBudget(0);
+		frozen.setCacheBudget(0);
+		List<Set<String>> queries = queries(random);
+
+		for (InvertedIndex index : List.of(mutable, frozen)) {
+			for (boolean exact : List.of(true, false)) {
+				for (Method method : Method.values()) {
+					measure(index, queries, exact, method, runs);
+				}
+			}
+		}
+		System.out.println("(" + sink + ")");
+	}
+}
@@ -0,0 +1,108 @@
+package edu.usfca.cs272;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the segmented index gives the same searches and output as a plain
+ * index when a location ends up in more than one segment.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class SegmentedIndexTest {
+
+	/** the queries searched, the ones with "a" match the split location */
+	private static final List<Set<String>> QUERIES = List.of(Set.of("apple"), Set.of("a"), Set.of("banana", "fig"),
+			Set.of("cherry"), Set.of("b", "c", "f"));
+
+	/**
+	 * Makes the local index of a text, one position for every word.
+	 *
+	 * @param location the location of the text
+	 * @param text the words separated by spaces
+	 * @param first the position of the first word
+	 * @return the local index
+	 */
+	private static InvertedIndex local(String location, String text, int first) {
+		InvertedIndex local = new InvertedIndex();
+		String[] words = text.split(" ");
+		for (int i = 0; i < words.length; i++) {
+			local.addPosition(words[i], location, first + i);
+		}
+		return local;
+	}
+
+	/**
+	 * Makes the search results easy to compare, with the location, the count
+	 * and the score of every result in order.
+	 *
+	 * @param index the index to search
+	 * @param exact true for an exact search
+	 * @param limit the most results of every query, zero for all of them
+	 * @param scorer the scorer to use
+	 * @return the results of every query
+	 */
+	private static List<String> results(InvertedIndex index, boolean exact, int limit, Scorer scorer) {
+		List<String> results = new ArrayList<>();
+		for (Set<String> query : QUERIES) {
+			for (InvertedIndex.PageScore score : index.search(query, List.of(), exact, limit, scorer)) {
+				results.add(query + " " + score.getLocation() + " " + score.getCount() + " " + score.getScore());
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Checks the searches with every scorer and limit and the output are the same.
+	 *
+	 * @param expected the plain index
+	 * @param actual the segmented index
+	 */
+	private static void assertSame(InvertedIndex expected, InvertedIndex actual) {
+		for (Scorer scorer : List.of(Scorer.COUNT, Scorer.BM25)) {
+			for (boolean exact : List.of(true, false)) {
+				for (int limit : List.of(0, 1)) {
+					String message = scorer + " " + exact + " " + limit;
+					assertEquals(results(expected, exact, limit, scorer), results(actual, exact, limit, scorer), message);
+				}
+			}
+		}
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	/**
+	 * A location added again with the same positions, the way loading a saved
+	 * index over the same files does, and then with new positions, is in two
+	 * segments that repeat its positions and in the buffer. It is counted once
+	 * for every position, before and after the buffer is flushed.
+	 */
+	@Test
+	public void testSplitLocation() {
+		InvertedIndex expected = new InvertedIndex();
+		SegmentedInvertedIndex actual = new SegmentedInvertedIndex(1, 2);
+		try {
+			// two segments and the buffer, too few segments to be merged yet
+			List<InvertedIndex> locals = List.of(local("one.txt", "apple apple banana cherry", 1),
+					local("two.txt", "banana fig apple", 1), local("one.txt", "apple apple banana cherry", 1),
+					local("three.txt", "cherry apple", 1), local("one.txt", "apple fig", 5));
+			for (InvertedIndex local : locals) {
+				expected.addAll(local);
+				actual.addAll(local);
+			}
+			assertEquals(2, actual.numSegments());
+			assertSame(expected, actual);
+
+			actual.finish();
+			assertSame(expected, actual);
+		}
+		finally {
+			actual.close();
+		}
+	}
+}
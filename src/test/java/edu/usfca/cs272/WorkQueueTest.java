@@ -0,0 +1,166 @@
+package edu.usfca.cs272;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Checks every kind of work queue runs all the tasks added, from outside the
+ * queue and from its own tasks, and that {@link WorkQueueInterface#finish()} still
+ * returns when some of the tasks throw.
+ *
+ * @author Santiago Jaramillo
+ *
+ */
+public class WorkQueueTest {
+
+	/** the amount of tasks added from outside the queue */
+	private static final int TASKS = 300;
+
+	/**
+	 * Every kind of work queue.
+	 *
+	 * @return the name and a supplier of a new work queue of every kind
+	 */
+	public static Stream<Arguments> queues() {
+		return Stream.of(
+				Arguments.of("unbounded", (Supplier<WorkQueueInterface>) () -> new WorkQueue(3)),
+				Arguments.of("block", (Supplier<WorkQueueInterface>) () -> new WorkQueue(3, 2, WorkQueue.Policy.BLOCK)),
+				Arguments.of("caller runs", (Supplier<WorkQueueInterface>) () -> new WorkQueue(3, 2, WorkQueue.Policy.CALLER_RUNS)),
+				Arguments.of("work stealing", (Supplier<WorkQueueInterface>) () -> new WorkStealingQueue(3)));
+	}
+
+	/**
+	 * Runs the tasks and the tasks they add, twice on the same queue.
+	 *
+	 * @param name the kind of queue
+	 * @param supplier makes a queue of that kind
+	 */
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("queues")
+	public void testNestedTasks(String name, Supplier<WorkQueueInterface> supplier) {
+		WorkQueueInterface queue = supplier.get();
+		assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+			for (int round = 1; round <= 2; round++) {
+				AtomicInteger done = new AtomicInteger();
+				for (int i = 0; i < TASKS; i++) {
+					queue.execute(() -> {
+						// every task adds two more, which add none
+						for (int j = 0; j < 2; j++) {
+							queue.execute(done::incrementAndGet);
+						}
+						done.incrementAndGet();
+					});
+				}
+				queue.finish();
+				assertEquals(3 * TASKS, done.get(), "round " + round);
+			}
+			queue.join();
+		});
+	}
+
+	/**
+	 * The tasks that throw are counted as finished, so finish and join do not
+	 * wait for them forever, and the workers go on with the other tasks.
+	 *
+	 * @param name the kind of queue
+	 * @param supplier makes a queue of that kind
+	 */
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("queues")
+	public void testThrowingTasks(String name, Supplier<WorkQueueInterface> supplier) {
+		WorkQueueInterface queue = supplier.get();
+		AtomicInteger done = new AtomicInteger();
+		assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+			for (int i = 0; i < TASKS; i++) {
+				int task = i;
+				queue.execute(() -> {
+					if (task % 3 == 0) {
+						throw new IllegalStateException("task " + task + " fails on purpose");
+					}
+					done.incrementAndGet();
+				});
+			}
+			queue.finish();
+			queue.join();
+		});
+		assertEquals(TASKS - (TASKS + 2) / 3, done.get());
+	}
+
+	/**
+	 * A full queue that runs the tasks on the caller runs some of them on the
+	 * thread that adds them while the only worker is busy.
+	 */
+	@Test
+	public void testCallerRuns() {
+		WorkQueue queue = new WorkQueue(1, 1, WorkQueue.Policy.CALLER_RUNS);
+		AtomicInteger onCaller = new AtomicInteger();
+		AtomicInteger done = new AtomicInteger();
+		assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+			// the timeout runs this on a thread of its own
+			Thread caller = Thread.currentThread();
+			for (int i = 0; i < 20; i++) {
+				queue.execute(() -> {
+					if (Thread.currentThread() == caller) {
+						onCaller.incrementAndGet();
+					}
+					else {
+						sleep(20);
+					}
+					done.incrementAndGet();
+				});
+			}
+			queue.join();
+		});
+		assertEquals(20, done.get());
+		assertTrue(onCaller.get() > 0);
+	}
+
+	/**
+	 * A full queue that blocks never holds more tasks than its capacity.
+	 */
+	@Test
+	public void testBlockKeepsCapacity() {
+		WorkQueue queue = new WorkQueue(1, 2, WorkQueue.Policy.BLOCK);
+		AtomicInteger added = new AtomicInteger();
+		AtomicInteger done = new AtomicInteger();
+		AtomicInteger most = new AtomicInteger();
+		assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+			for (int i = 0; i < 20; i++) {
+				queue.execute(() -> {
+					sleep(5);
+					done.incrementAndGet();
+				});
+				// the worker holds one task and the queue at most two more
+				most.accumulateAndGet(added.incrementAndGet() - done.get(), Math::max);
+			}
+			queue.join();
+		});
+		assertEquals(20, done.get());
+		assertTrue(most.get() <= 3, "tasks not done " + most.get());
+	}
+
+	/**
+	 * Sleeps without throwing.
+	 *
+	 * @param millis the time to sleep
+	 */
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}